@@ -0,0 +1,31 @@
+package com.eventure.calendar_app.auth.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A JWT revoked before its expiry, by its token id (the jti claim).
+// Deleted once the token expired, from then on the expiry check rejects it anyway.
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revokedAt"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevokedTokens {
+
+    @Id
+    private String jti;
+    private Instant expiresAt;
+
+    // Time of the revocation, the other nodes pick up the revocations made since their last refresh
+    private Instant revokedAt;
+}
@@ -0,0 +1,37 @@
+package com.eventure.calendar_app.auth.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A key of the JWT key ring, shared by all nodes through the database.
+// Tokens name their key in the kid header. A key signs from activatesAt until a newer key is active and verifies
+// until retiresAt (null while it is the current key).
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SigningKeys {
+
+    @Id
+    private String kid;
+
+    // JWS algorithm id: HS256/384/512, RS256/384/512, PS256/384/512, ES256/384/512 or EdDSA
+    private String algorithm;
+
+    // Base64 of the HMAC secret, or of the PKCS#8 private key for the asymmetric algorithms
+    @Column(length = 4096)
+    private String secret;
+
+    // Base64 of the X.509 public key, null for HMAC keys
+    @Column(length = 4096)
+    private String publicKey;
+
+    private Instant activatesAt;
+    private Instant retiresAt;
+}
@@ -0,0 +1,29 @@
+package com.eventure.calendar_app.auth.repo;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.auth.model.RevokedTokens;
+
+@Repository
+public interface RevokedTokenRepo extends JpaRepository<RevokedTokens, String> {
+
+    @Query("select r.jti from RevokedTokens r")
+    List<String> findAllIds();
+
+    @Query("select r.jti from RevokedTokens r where r.revokedAt > :since")
+    List<String> findIdsRevokedAfter(@Param("since") Instant since);
+
+    // Drop the revocations of expired tokens
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedTokens r where r.expiresAt < :cutoff")
+    int deleteExpiredBefore(@Param("cutoff") Instant cutoff);
+}
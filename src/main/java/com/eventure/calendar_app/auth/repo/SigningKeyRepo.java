@@ -0,0 +1,22 @@
+package com.eventure.calendar_app.auth.repo;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.auth.model.SigningKeys;
+
+@Repository
+public interface SigningKeyRepo extends JpaRepository<SigningKeys, String> {
+
+    // Drop the keys that no longer verify any token
+    @Modifying
+    @Transactional
+    @Query("delete from SigningKeys k where k.retiresAt < :cutoff")
+    int deleteRetiredBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,61 @@
+package com.eventure.calendar_app.auth.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A Bloom filter of strings: mightContain is true for every string that was put, and for about the given share of
+// the others. Strings cannot be removed, the owner builds a new filter instead.
+// Thread-safe without locks, bits are only ever set (atomically), so readers never see a put string as missing.
+class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    // Sized for the expected number of strings at the false positive probability (fewer strings give fewer false positives)
+    BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long expected = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+
+        words = new AtomicLongArray(wordCount);
+        bitCount = wordCount * 64L;
+        hashCount = (int) Math.max(1, Math.round((double) bitCount / expected * Math.log(2)));
+    }
+
+    void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, set) -> word | set);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the chars, finished with the MurmurHash3 mixer so every bit depends on the whole string
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for(int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
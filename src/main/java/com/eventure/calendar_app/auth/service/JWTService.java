@@ -1,88 +1,208 @@
 package com.eventure.calendar_app.auth.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
+import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.eventure.calendar_app.user.model.UserPrincipal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
+// Issues and verifies the JWTs of the users.
+// Tokens carry the id ("uid") and the roles of the user besides the username, so a request can be authenticated
+// from the verified token alone; tokens issued without them make the filter load the user.
+// Tokens are signed with the current key of the KeyRing and name it in their kid header, so any node verifies them.
+// The signing key and the parser are built once, a token is verified with a single parse (signature, expiry and
+// subject together). Verified tokens are cached by the SHA-256 of the token, so the next requests with the same token
+// skip the HMAC and the JSON decoding; an entry expires after the TTL or at the expiry of its token, whichever is first.
+// Hits and misses are published as the "jwt.tokens" cache metrics.
+// Every token gets an id (jti), so it can be revoked before its expiry; the RevocationList is asked on every
+// verification, cached or not, and answers from memory unless the token may have been revoked.
 @Service
 public class JWTService {
-	private String secretkey = "";
-
-	// Constructor that generates a key and encode in Base64 format for the secret key
-	public JWTService() {
-		try {
-			KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
-			SecretKey sk = keyGen.generateKey();
-			secretkey = Base64.getEncoder().encodeToString(sk.getEncoded());
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException(e);
-		}
+
+	public static final Duration TOKEN_LIFETIME = Duration.ofHours(10);
+	public static final String USER_ID_CLAIM = "uid";
+	public static final String ROLES_CLAIM = "roles";
+
+	// A token that passed verification, with what the filter needs from it (id is null without the jti claim,
+	// userId without the uid claim)
+	public record VerifiedToken(String id, String username, Long userId, List<String> roles, Instant expiresAt) {
+	}
+
+	private KeyRing keyRing;
+	private RevocationList revocations;
+	private JwtParser parser;
+	private Cache<String, VerifiedToken> verifiedTokens;
+
+	// Constructor that builds the parser, it finds the verification key of each token by its kid
+	public JWTService(KeyRing keyRing, RevocationList revocations,
+					  @Value("${app.jwt.cache.max-tokens:10000}") long maxTokens,
+					  @Value("${app.jwt.cache.ttl-minutes:5}") long ttlMinutes,
+					  MeterRegistry meterRegistry) {
+		this.keyRing = keyRing;
+		this.revocations = revocations;
+		parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+			@Override
+			protected Key locate(JwsHeader header) {
+				KeyRing.RingKey key = keyRing.verificationKey(header.getKeyId());
+				return key != null ? key.verificationKey() : null;
+			}
+		}).build();
+
+		Duration ttl = Duration.ofMinutes(ttlMinutes);
+		verifiedTokens = Caffeine.newBuilder()
+				.maximumSize(maxTokens)
+				.expireAfter(Expiry.creating((String hash, VerifiedToken token) -> {
+					Duration untilExpiry = Duration.between(Instant.now(), token.expiresAt());
+					return untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+				}))
+				.recordStats()
+				.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.tokens");
+	}
+
+	// Token with the id and roles of the user
+	public String generateToken(UserPrincipal principal) {
+		List<String> roles = principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+		return generateToken(principal.getUsername(), principal.getUserId(), roles);
+	}
+
+	// Token with only the username, the filter loads the user for it
+	public String generateToken(String username) {
+		return generateToken(username, null, List.of());
 	}
 
 	// Generating JWT token (a claim)
-	// Includes subject(username), issue date, exp date and the "stamp" (the key)
-    public String generateToken(String username) {
+	// Includes id, subject(username), user id and roles, issue date, exp date and the "stamp" (the key)
+    private String generateToken(String username, Long userId, List<String> roles) {
+		KeyRing.RingKey key = keyRing.signingKey();
 		Map<String, Object> claims = new HashMap<>();
+		if(userId != null) {
+			claims.put(USER_ID_CLAIM, userId);
+			claims.put(ROLES_CLAIM, roles);
+		}
 
 		return Jwts.builder()
+				.header()
+				.keyId(key.kid())
+				.and()
 				.claims()
 				.add(claims)
+				.id(UUID.randomUUID().toString())
 				.subject(username)
 				.issuedAt(new Date(System.currentTimeMillis()))
-				.expiration(new Date(System.currentTimeMillis() + 1000L * 60 * 60 * 10))
+				.expiration(new Date(System.currentTimeMillis() + TOKEN_LIFETIME.toMillis()))
 				.and()
-				.signWith(getKey())
+				.signWith(key.signingKey(), signatureAlgorithm(key))
 				.compact();
     }
 
-	// Decode the secret key
-    private SecretKey getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretkey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Verify the token once (from the cache when it was verified recently), null when it is invalid, expired or revoked
+    public VerifiedToken verify(String token) {
+        if(token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String hash = hash(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(hash);
+        if(verified == null || !verified.expiresAt().isAfter(Instant.now())) {
+            verified = parse(token);
+            if(verified == null) {
+                return null;
+            }
+            verifiedTokens.put(hash, verified);
+        }
+        return revocations.isRevoked(verified.id()) ? null : verified;
+    }
+
+    // Revoke a valid token until its expiry, false when it is invalid or has no id
+    public boolean revoke(String token) {
+        VerifiedToken verified = verify(token);
+        if(verified == null || verified.id() == null) {
+            return false;
+        }
+
+        revocations.revoke(verified.id(), verified.expiresAt());
+        verifiedTokens.invalidate(hash(token));
+        return true;
     }
 
+    // The username of a valid token, null when the token is invalid or expired
     public String extractUserName(String token) {
-        // extract the username from jwt token
-        return extractClaim(token, Claims::getSubject);
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.username() : null;
+    }
+
+    public boolean validateToken(String token, UserDetails userDetails) {
+        VerifiedToken verified = verify(token);
+        return verified != null && verified.username().equals(userDetails.getUsername());
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimResolver.apply(claims);
+    // Signature and expiry are checked by the parser, tokens without subject or expiry are not accepted
+    private VerifiedToken parse(String token) {
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if(claims.getSubject() == null || claims.getExpiration() == null) {
+                return null;
+            }
+            return new VerifiedToken(claims.getId(), claims.getSubject(), userId(claims), roles(claims), claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    @SuppressWarnings("unchecked")
+    private static SecureDigestAlgorithm<Key, ?> signatureAlgorithm(KeyRing.RingKey key) {
+        return (SecureDigestAlgorithm<Key, ?>) key.algorithm();
     }
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private static Long userId(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static List<String> roles(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if(!(roles instanceof List<?> list)) {
+            return List.of();
+        }
+        return list.stream().map(String::valueOf).toList();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package com.eventure.calendar_app.auth.service;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.eventure.calendar_app.auth.model.SigningKeys;
+import com.eventure.calendar_app.auth.repo.SigningKeyRepo;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.MacAlgorithm;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+// The JWT signing keys, kept in the SigningKeys table so every node signs and verifies with the same keys.
+// The ring is read at startup and again every refresh interval, and right away (at most every few seconds) when a
+// token names a key this node does not know yet. With no usable key the first node creates one.
+// Keys rotate every rotation period: the new key is saved activation-delay ahead of its use, so all nodes know it
+// before anyone signs with it, and the old key keeps verifying for one token lifetime after the new one took over.
+// Retired keys are deleted. Nodes that rotate at the same moment both save a key, all of them verify and the
+// newest one signs.
+@Service
+public class KeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyRing.class);
+
+    // Reloads triggered by unknown kids are at most this frequent
+    private static final Duration MIN_RELOAD_INTERVAL = Duration.ofSeconds(5);
+
+    // A key ready for use: what signs with it and what verifies it
+    public record RingKey(String kid, SecureDigestAlgorithm<?, ?> algorithm, Key signingKey, Key verificationKey,
+                          Instant activatesAt, Instant retiresAt) {
+    }
+
+    private record Snapshot(Map<String, RingKey> keys, RingKey signing, Instant loadedAt) {
+    }
+
+    private SigningKeyRepo repo;
+    private String algorithm;
+    private Duration rotation;
+    private Duration activationDelay;
+    private volatile Snapshot snapshot;
+
+    public KeyRing(SigningKeyRepo repo,
+                   @Value("${app.jwt.keys.algorithm:HS256}") String algorithm,
+                   @Value("${app.jwt.keys.rotation-days:30}") long rotationDays,
+                   @Value("${app.jwt.keys.activation-delay-minutes:5}") long activationDelayMinutes) {
+        this.repo = repo;
+        this.algorithm = algorithm;
+        this.rotation = Duration.ofDays(rotationDays);
+        this.activationDelay = Duration.ofMinutes(activationDelayMinutes);
+
+        // Fails at startup for unknown algorithms instead of on the first login
+        Jwts.SIG.get().forKey(algorithm);
+        refresh();
+    }
+
+    // The key new tokens are signed with
+    public RingKey signingKey() {
+        return snapshot.signing();
+    }
+
+    // The key a token names in its kid header, null when there is no such key (or it retired)
+    public RingKey verificationKey(String kid) {
+        if(kid == null) {
+            return null;
+        }
+
+        Snapshot current = snapshot;
+        RingKey key = current.keys().get(kid);
+        if(key == null && current.loadedAt().plus(MIN_RELOAD_INTERVAL).isBefore(Instant.now())) {
+            // Possibly created by another node since the last refresh
+            reload();
+            key = snapshot.keys().get(kid);
+        }
+        return key != null && (key.retiresAt() == null || key.retiresAt().isAfter(Instant.now())) ? key : null;
+    }
+
+    // Reload the ring, rotate when the current key is due and drop retired keys
+    @Scheduled(fixedDelayString = "${app.jwt.keys.refresh-ms:60000}", initialDelayString = "${app.jwt.keys.refresh-ms:60000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        List<SigningKeys> keys = repo.findAll();
+
+        SigningKeys newest = keys.stream()
+                .filter(key -> key.getRetiresAt() == null || key.getRetiresAt().isAfter(now))
+                .max(Comparator.comparing(SigningKeys::getActivatesAt).thenComparing(SigningKeys::getKid))
+                .orElse(null);
+
+        if(newest == null) {
+            // First start: nobody can hold a token yet, the key is used right away
+            keys = new ArrayList<>(keys);
+            keys.add(repo.save(generate(now)));
+        } else if(!newest.getActivatesAt().isAfter(now) && newest.getActivatesAt().plus(rotation).isBefore(now)) {
+            rotate(keys, now);
+            keys = repo.findAll();
+        }
+
+        repo.deleteRetiredBefore(now);
+        snapshot = snapshot(keys, now);
+    }
+
+    // Save a new key that takes over after the activation delay, the keys before it retire one token lifetime later
+    public void rotate() {
+        Instant now = Instant.now();
+        rotate(repo.findAll(), now);
+        reload();
+    }
+
+    private void rotate(List<SigningKeys> keys, Instant now) {
+        SigningKeys next = generate(now.plus(activationDelay));
+        Instant retiresAt = next.getActivatesAt().plus(JWTService.TOKEN_LIFETIME);
+
+        List<SigningKeys> changed = new ArrayList<>();
+        changed.add(next);
+        for(SigningKeys key: keys) {
+            if(key.getRetiresAt() == null || key.getRetiresAt().isAfter(retiresAt)) {
+                key.setRetiresAt(retiresAt);
+                changed.add(key);
+            }
+        }
+        repo.saveAll(changed);
+        log.info("Rotated JWT signing key, {} signs from {}", next.getKid(), next.getActivatesAt());
+    }
+
+    private void reload() {
+        snapshot = snapshot(repo.findAll(), Instant.now());
+    }
+
+    // The keys that verify now, and the newest active one as signing key
+    private Snapshot snapshot(List<SigningKeys> keys, Instant now) {
+        List<RingKey> usable = keys.stream()
+                .filter(key -> key.getRetiresAt() == null || key.getRetiresAt().isAfter(now))
+                .map(this::decode)
+                .toList();
+
+        RingKey signing = usable.stream()
+                .filter(key -> !key.activatesAt().isAfter(now))
+                .max(Comparator.comparing(RingKey::activatesAt).thenComparing(RingKey::kid))
+                .orElseGet(() -> usable.stream().min(Comparator.comparing(RingKey::activatesAt)).orElseThrow());
+
+        Map<String, RingKey> byKid = usable.stream().collect(Collectors.toUnmodifiableMap(RingKey::kid, Function.identity()));
+        return new Snapshot(byKid, signing, now);
+    }
+
+    private SigningKeys generate(Instant activatesAt) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        SigningKeys key = new SigningKeys();
+        key.setKid(UUID.randomUUID().toString());
+        key.setAlgorithm(algorithm);
+        key.setActivatesAt(activatesAt);
+
+        SecureDigestAlgorithm<?, ?> jwsAlgorithm = Jwts.SIG.get().forKey(algorithm);
+        if(jwsAlgorithm instanceof MacAlgorithm mac) {
+            key.setSecret(base64.encodeToString(mac.key().build().getEncoded()));
+        } else if(jwsAlgorithm instanceof SignatureAlgorithm signature) {
+            KeyPair pair = signature.keyPair().build();
+            key.setSecret(base64.encodeToString(pair.getPrivate().getEncoded()));
+            key.setPublicKey(base64.encodeToString(pair.getPublic().getEncoded()));
+        }
+        return key;
+    }
+
+    private RingKey decode(SigningKeys key) {
+        Base64.Decoder base64 = Base64.getDecoder();
+        SecureDigestAlgorithm<?, ?> jwsAlgorithm = Jwts.SIG.get().forKey(key.getAlgorithm());
+        try {
+            if(jwsAlgorithm instanceof MacAlgorithm) {
+                SecretKey secret = new SecretKeySpec(base64.decode(key.getSecret()), "HmacSHA" + key.getAlgorithm().substring(2));
+                return new RingKey(key.getKid(), jwsAlgorithm, secret, secret, key.getActivatesAt(), key.getRetiresAt());
+            }
+
+            KeyFactory factory = KeyFactory.getInstance(keyFactoryAlgorithm(key.getAlgorithm()));
+            Key privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(base64.decode(key.getSecret())));
+            Key publicKey = factory.generatePublic(new X509EncodedKeySpec(base64.decode(key.getPublicKey())));
+            return new RingKey(key.getKid(), jwsAlgorithm, privateKey, publicKey, key.getActivatesAt(), key.getRetiresAt());
+        } catch (GeneralSecurityException | IllegalArgumentException ex) {
+            throw new IllegalStateException("invalid JWT signing key " + key.getKid(), ex);
+        }
+    }
+
+    private static String keyFactoryAlgorithm(String algorithm) {
+        if(algorithm.startsWith("RS")) {
+            return "RSA";
+        }
+        if(algorithm.startsWith("PS")) {
+            return "RSASSA-PSS";
+        }
+        if(algorithm.startsWith("ES")) {
+            return "EC";
+        }
+        return "EdDSA";
+    }
+}
@@ -0,0 +1,113 @@
+package com.eventure.calendar_app.auth.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.eventure.calendar_app.auth.model.RevokedTokens;
+import com.eventure.calendar_app.auth.repo.RevokedTokenRepo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// The JWTs revoked before their expiry, by token id (jti), kept in the RevokedTokens table for all nodes.
+// Every node holds a Bloom filter of the revoked ids, so checking a token that was never revoked (nearly all of them)
+// costs a few hashes and no query. Only when the filter answers "maybe" the table is asked, and the answer is kept
+// for a while; false positives cost a query, never a wrong answer.
+// Each refresh adds the revocations of the other nodes since the last one (with some overlap for slow commits and
+// clock differences), so a revocation is in force everywhere after one refresh interval. Revocations of expired tokens
+// are deleted, and the filter is rebuilt periodically to drop them from it as well.
+@Service
+public class RevocationList {
+
+    // Revocations from slightly before the last refresh are read again, a token is never missed by a late commit
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    private RevokedTokenRepo repo;
+    private long expectedTokens;
+    private Duration rebuildInterval;
+    private Cache<String, Boolean> checked;
+    private volatile BloomFilter filter;
+    private volatile Instant refreshedAt;
+    private volatile Instant rebuiltAt;
+
+    public RevocationList(RevokedTokenRepo repo,
+                          @Value("${app.jwt.revocation.expected-tokens:100000}") long expectedTokens,
+                          @Value("${app.jwt.revocation.rebuild-minutes:60}") long rebuildMinutes,
+                          MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.expectedTokens = expectedTokens;
+        this.rebuildInterval = Duration.ofMinutes(rebuildMinutes);
+
+        // Cached answers expire within the overlap, while the refreshes still invalidate the ids revoked meanwhile
+        checked = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(REFRESH_OVERLAP)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, checked, "jwt.revocations");
+
+        rebuild(Instant.now());
+    }
+
+    // Whether the token with this id was revoked, tokens without an id cannot be revoked
+    public boolean isRevoked(String jti) {
+        if(jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+
+        Boolean revoked = checked.getIfPresent(jti);
+        if(revoked == null) {
+            revoked = repo.existsById(jti);
+            checked.put(jti, revoked);
+        }
+        return revoked;
+    }
+
+    // Revoke the token until its expiry, effective on this node right away and on the others after their next refresh
+    public void revoke(String jti, Instant expiresAt) {
+        repo.save(new RevokedTokens(jti, expiresAt, Instant.now()));
+        filter.put(jti);
+        checked.put(jti, true);
+    }
+
+    // Pick up the revocations of the other nodes and drop the expired ones
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.refresh-ms:5000}", initialDelayString = "${app.jwt.revocation.refresh-ms:5000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        repo.deleteExpiredBefore(now);
+
+        if(rebuiltAt.plus(rebuildInterval).isBefore(now)) {
+            rebuild(now);
+            return;
+        }
+
+        List<String> revoked = repo.findIdsRevokedAfter(refreshedAt.minus(REFRESH_OVERLAP));
+        BloomFilter current = filter;
+        for(String jti: revoked) {
+            current.put(jti);
+            checked.invalidate(jti);
+        }
+        refreshedAt = now;
+    }
+
+    // A new filter of the revocations in the table, with room for twice as many as there are
+    private void rebuild(Instant now) {
+        List<String> revoked = repo.findAllIds();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, 2L * revoked.size()), FALSE_POSITIVE_PROBABILITY);
+        revoked.forEach(rebuilt::put);
+
+        filter = rebuilt;
+        checked.invalidateAll();
+        refreshedAt = now;
+        rebuiltAt = now;
+    }
+}
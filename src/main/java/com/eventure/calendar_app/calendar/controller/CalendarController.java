@@ -4,6 +4,7 @@ import java.nio.file.AccessDeniedException;
 import java.security.Principal;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -14,20 +15,32 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.service.CalendarService;
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 
 @RestController
 @CrossOrigin
 @RequestMapping("/api")
 public class CalendarController {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    // Browsers keep the listing but revalidate it on every use, which the ETag turns into a 304 while nothing changed
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
     
     private CalendarService service;
+    private CalendarVersionService versions;
 
-    public CalendarController (CalendarService service) {
+    public CalendarController (CalendarService service, CalendarVersionService versions) {
         this.service = service;
+        this.versions = versions;
     }
 
     // Create new calendar for the logged in user
@@ -35,7 +48,7 @@ public class CalendarController {
     public ResponseEntity<?> createCalendar(@RequestBody Calendars calendar, Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
-            service.createCalendar(calendar, username);
+            service.createCalendar(calendar, UserPrincipal.userId(principal), username);
             return ResponseEntity.status(HttpStatus.CREATED).build();
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
@@ -45,12 +58,28 @@ public class CalendarController {
     }
 
     // Fetch all the calendars
+    // With limit or cursor one page is returned as {items, next}, pass next back as cursor for the following page
+    // While nothing of the user changed, If-None-Match with the ETag is answered with 304 after one single-row version query
     @GetMapping("/calendars")
-    public ResponseEntity<?> getAllCalendars(Principal principal) {
+    public ResponseEntity<?> getAllCalendars(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request,
+            Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
+            ChangeVersion version = versions.userVersion(username);
+            if(version != null && request.checkNotModified(version.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+
+            if(limit != null || cursor != null) {
+                return ResponseEntity.ok().cacheControl(REVALIDATE).body(service.getCalendarPage(username, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE));
+            }
             List<Calendars> calendars = service.getAllCalendars(username);
-            return ResponseEntity.ok(calendars);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(calendars);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
         }
@@ -1,6 +1,9 @@
 package com.eventure.calendar_app.calendar.model;
 
+import java.time.Instant;
+
 import com.eventure.calendar_app.user.model.Users;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Entity;
@@ -8,13 +11,16 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(indexes = @Index(name = "idx_calendars_user_mod_seq", columnList = "users_id, modSeq"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -30,4 +36,17 @@ public class Calendars {
     @JoinColumn(name = "users_id", nullable = false)
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private Users owner;
+
+    // Incremented on every committed change of the calendar or its events, the ETag of the .ics feed.
+    // Null on calendars that have not changed since the column was added.
+    @JsonIgnore
+    private Long changeVersion;
+
+    @JsonIgnore
+    private Instant changedAt;
+
+    // Change version of the owner at the commit that last wrote the calendar, for delta sync.
+    // Writes reset it to null and the commit stamps it.
+    @JsonIgnore
+    private Long modSeq;
 }
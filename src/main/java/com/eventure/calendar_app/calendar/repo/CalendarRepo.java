@@ -1,13 +1,51 @@
 package com.eventure.calendar_app.calendar.repo;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 
 @Repository
 public interface CalendarRepo extends JpaRepository<Calendars, Integer> {
+
+    // Listings return the entities directly, so the owner is fetched in the same query
+    @EntityGraph(attributePaths = "owner")
     List<Calendars> findByOwner_Username(String username);
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Calendars> findAll();
+
+    // Keyset pages in id order
+    @EntityGraph(attributePaths = "owner")
+    List<Calendars> findByOwner_UsernameAndIdGreaterThanOrderByIdAsc(String username, Integer afterId, Pageable page);
+
+    @EntityGraph(attributePaths = "owner")
+    List<Calendars> findByIdGreaterThanOrderByIdAsc(Integer afterId, Pageable page);
+
+    // Calendars of the user written since the given change version
+    @EntityGraph(attributePaths = "owner")
+    List<Calendars> findByOwner_UsernameAndModSeqGreaterThan(String username, Long modSeq);
+
+    // Stamp the calendars of the user written by the committing transaction with its change version
+    @Modifying
+    @Transactional
+    @Query("update Calendars c set c.modSeq = :modSeq where c.owner.id = :userId and c.modSeq is null")
+    int stampModSeq(@Param("userId") Long userId, @Param("modSeq") Long modSeq);
+
+    // Move the change version of the calendars one step on, in one statement
+    @Modifying
+    @Transactional
+    @Query("update Calendars c set c.changeVersion = coalesce(c.changeVersion, 0) + 1, c.changedAt = :now where c.id in :ids")
+    int bumpChangeVersion(@Param("ids") Collection<Integer> ids, @Param("now") Instant now);
 }
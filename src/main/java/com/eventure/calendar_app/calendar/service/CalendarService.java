@@ -3,27 +3,42 @@ package com.eventure.calendar_app.calendar.service;
 import java.nio.file.AccessDeniedException;
 import java.util.List;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.CursorPage;
+import com.eventure.calendar_app.common.Cursors;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
 @Service
 public class CalendarService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
     private CalendarRepo calRepo;
     private UserRepo userRepo;
+    private CalendarVersionService versions;
 
-    public CalendarService (CalendarRepo calRepo, UserRepo userRepo) {
+    public CalendarService (CalendarRepo calRepo, UserRepo userRepo, CalendarVersionService versions) {
         this.calRepo = calRepo;
         this.userRepo = userRepo;
+        this.versions = versions;
     }
 
-    // Create new calendar for the logged in user
+    @Transactional
     public void createCalendar(Calendars calendar, String username) {
-        Users user = userRepo.findByUsername(username);
+        createCalendar(calendar, null, username);
+    }
+
+    // Create new calendar for the logged in user, userId is the id carried by the token of the request (may be null)
+    // Writes are transactional so the change version, modSeq and tombstone are written in the same commit
+    @Transactional
+    public void createCalendar(Calendars calendar, Long userId, String username) {
+        Users user = userRepo.findOwner(userId, username);
 
         if(user == null) {
             throw new IllegalArgumentException("user not found: " + username);
@@ -31,6 +46,7 @@ public class CalendarService {
 
         calendar.setOwner(user);
         calRepo.save(calendar);
+        versions.calendarChanged(calendar.getId(), username);
     }
 
     // Fetch all the calendars for the logged in user
@@ -42,7 +58,37 @@ public class CalendarService {
         return calRepo.findByOwner_Username(username);
     }
 
+    // One page of the calendars of the user (of all users when username is null) in id order,
+    // the cursor is the id of the last calendar of the previous page
+    public CursorPage<Calendars> getCalendarPage(String username, String cursor, int limit) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        int afterId = Integer.MIN_VALUE;
+        if(cursor != null) {
+            try {
+                afterId = Integer.parseInt(Cursors.decode(cursor, 1)[0]);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid cursor", ex);
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Calendars> calendars = username == null
+                ? calRepo.findByIdGreaterThanOrderByIdAsc(afterId, page)
+                : calRepo.findByOwner_UsernameAndIdGreaterThanOrderByIdAsc(username, afterId, page);
+
+        if(calendars.size() <= limit) {
+            return new CursorPage<>(calendars, null);
+        }
+        List<Calendars> items = calendars.subList(0, limit);
+        return new CursorPage<>(items, Cursors.encode(items.get(limit - 1).getId()));
+    }
+
     // Update an existing calendar
+    @Transactional
     public void updateCalendar(Integer id, Calendars updated, String username) throws AccessDeniedException {
         Calendars existing = calRepo.findById(id).orElseThrow(() -> new IllegalArgumentException("calendar not found: "  + id));
 
@@ -57,11 +103,14 @@ public class CalendarService {
         existing.setId(updated.getId());
         existing.setName(updated.getName());
         existing.setColor(updated.getColor());
+        existing.setModSeq(null);
 
         calRepo.save(existing);
+        versions.calendarChanged(id, username);
     }
 
     // Delete a calendar
+    @Transactional
     public void deleteCalendar(Integer id, String username) throws AccessDeniedException {
         Calendars existing = calRepo.findById(id).orElseThrow(() -> new IllegalArgumentException("calendar not found: "  + id));
 
@@ -73,5 +122,6 @@ public class CalendarService {
         }
 
         calRepo.deleteById(id);
+        versions.calendarDeleted(id, username);
     }
 }
@@ -0,0 +1,207 @@
+package com.eventure.calendar_app.calendar.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.service.EventChange;
+import com.eventure.calendar_app.sync.model.ChangeNotification;
+import com.eventure.calendar_app.sync.model.ChangeNotification.Operation;
+import com.eventure.calendar_app.sync.model.Tombstones;
+import com.eventure.calendar_app.sync.model.Tombstones.Kind;
+import com.eventure.calendar_app.sync.repo.TombstoneRepo;
+import com.eventure.calendar_app.sync.service.ChangeStreamService;
+import com.eventure.calendar_app.user.repo.UserRepo;
+
+// Keeps the change versions behind the ETags of the listings and .ics feeds and behind delta sync: the version of
+// every calendar whose events changed and the version of the user, moved on by every event and calendar write.
+// The changes of a transaction are collected and written just before it commits, with one update per table however
+// many events were written, so the versions move together with the data they describe and a rolled back write
+// leaves them alone. Writes outside a transaction are recorded in a transaction of their own.
+// The same step stamps the events and calendars written by the transaction (modSeq null) with the new version of
+// their user and records tombstones for the deleted ones. The update of the user row holds its lock until the
+// commit, so the writes of one user commit in version order and a sync token never skips a later commit.
+// Once committed, the writes are pushed to the change streams of their user with the new version.
+// The version of a user is read from the database every time (one single-row query by username), never cached per
+// node: any node may commit a write of the user, so only the database knows the current version.
+@Service
+public class CalendarVersionService {
+
+    private CalendarRepo calRepo;
+    private UserRepo userRepo;
+    private EventRepo eventRepo;
+    private TombstoneRepo tombstoneRepo;
+    private TransactionTemplate transactionTemplate;
+    private ChangeStreamService changeStream;
+
+    public CalendarVersionService(CalendarRepo calRepo, UserRepo userRepo, EventRepo eventRepo, TombstoneRepo tombstoneRepo,
+                                  TransactionTemplate transactionTemplate, ChangeStreamService changeStream) {
+        this.calRepo = calRepo;
+        this.userRepo = userRepo;
+        this.eventRepo = eventRepo;
+        this.tombstoneRepo = tombstoneRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.changeStream = changeStream;
+    }
+
+    // Current version of the events and calendars of the user, null for unknown users
+    public ChangeVersion userVersion(String username) {
+        if(username == null) {
+            return null;
+        }
+        return userRepo.findChangeVersion(username);
+    }
+
+    @EventListener
+    public void onEventChange(EventChange change) {
+        PendingVersions pending = pending();
+        pending.add(change.calendarIds(), change.username());
+        if(change.isDeletion() && !change.isBulk()) {
+            pending.deleted(change.username(), Kind.EVENT, change.eventId());
+        } else {
+            pending.eventsWritten = true;
+            pending.notify(change.username(), Kind.EVENT, change.eventId(), Operation.CHANGED);
+        }
+        complete(pending);
+    }
+
+    // A calendar of the user was created or updated
+    public void calendarChanged(Integer calendarId, String username) {
+        PendingVersions pending = pending();
+        pending.add(calendarId != null ? Set.of(calendarId) : Set.of(), username);
+        pending.calendarsWritten = true;
+        pending.notify(username, Kind.CALENDAR, calendarId, Operation.CHANGED);
+        complete(pending);
+    }
+
+    // A calendar of the user was deleted
+    public void calendarDeleted(Integer calendarId, String username) {
+        PendingVersions pending = pending();
+        pending.add(Set.of(), username);
+        pending.deleted(username, Kind.CALENDAR, calendarId);
+        complete(pending);
+    }
+
+    // The changes of the current transaction, a new set when there is none
+    private PendingVersions pending() {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingVersions();
+        }
+
+        PendingVersions pending = (PendingVersions) TransactionSynchronizationManager.getResource(this);
+        if(pending == null) {
+            pending = new PendingVersions();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    // Changes made outside a transaction are recorded right away
+    private void complete(PendingVersions pending) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> pending.bump());
+            pending.afterCommit();
+        }
+    }
+
+    // The calendars and users changed by the current transaction, with the deletions per user
+    private class PendingVersions implements TransactionSynchronization {
+
+        private final Set<Integer> calendarIds = new HashSet<>();
+        private final Set<String> usernames = new HashSet<>();
+        private final Map<String, List<Tombstones>> deletions = new HashMap<>();
+        // Versioned in bump() with the version of the commit
+        private final Map<String, Set<ChangeNotification>> notifications = new HashMap<>();
+        // Only the tables written by the transaction have rows to stamp
+        private boolean eventsWritten;
+        private boolean calendarsWritten;
+
+        void add(Set<Integer> changedCalendarIds, String username) {
+            calendarIds.addAll(changedCalendarIds);
+            if(username != null) {
+                usernames.add(username);
+            }
+        }
+
+        void deleted(String username, Kind kind, Integer id) {
+            if(username != null && id != null) {
+                deletions.computeIfAbsent(username, key -> new ArrayList<>()).add(new Tombstones(null, null, kind, id, null, null));
+                notify(username, kind, id, Operation.DELETED);
+            }
+        }
+
+        void notify(String username, Kind kind, Integer id, Operation operation) {
+            if(username != null) {
+                notifications.computeIfAbsent(username, key -> new LinkedHashSet<>()).add(new ChangeNotification(kind, id, operation, 0));
+            }
+        }
+
+        void bump() {
+            Instant now = Instant.now();
+            if(!calendarIds.isEmpty()) {
+                calRepo.bumpChangeVersion(calendarIds, now);
+            }
+            if(usernames.isEmpty()) {
+                return;
+            }
+
+            userRepo.bumpChangeVersion(usernames, now);
+            for(String username: usernames) {
+                ChangeVersion version = userRepo.findChangeVersion(username);
+                if(version == null) {
+                    continue;
+                }
+
+                if(eventsWritten) {
+                    eventRepo.stampModSeq(version.userId(), version.version());
+                }
+                if(calendarsWritten) {
+                    calRepo.stampModSeq(version.userId(), version.version());
+                }
+                List<Tombstones> tombstones = deletions.getOrDefault(username, List.of());
+                for(Tombstones tombstone: tombstones) {
+                    tombstone.setUserId(version.userId());
+                    tombstone.setModSeq(version.version());
+                    tombstone.setDeletedAt(now);
+                }
+                tombstoneRepo.saveAll(tombstones);
+
+                notifications.computeIfPresent(username, (key, changes) -> {
+                    Set<ChangeNotification> versioned = new LinkedHashSet<>();
+                    changes.forEach(change -> versioned.add(change.withVersion(version.version())));
+                    return versioned;
+                });
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            bump();
+        }
+
+        @Override
+        public void afterCommit() {
+            notifications.forEach(changeStream::publish);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CalendarVersionService.this);
+        }
+    }
+}
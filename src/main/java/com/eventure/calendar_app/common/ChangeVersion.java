@@ -0,0 +1,13 @@
+package com.eventure.calendar_app.common;
+
+import java.time.Instant;
+
+// Version of the events and calendars of a user, incremented by every committed write.
+// changedAt is null when the user has not written anything since versions were introduced.
+public record ChangeVersion(Long userId, Long version, Instant changedAt) {
+
+    // Weak, the listings are regenerated on every request. The user id keeps the tags of users sharing a browser apart.
+    public String etag() {
+        return "W/\"u" + userId + "-v" + version + "\"";
+    }
+}
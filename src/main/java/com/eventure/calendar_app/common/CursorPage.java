@@ -0,0 +1,8 @@
+package com.eventure.calendar_app.common;
+
+import java.util.List;
+
+// One page of a keyset-paginated listing.
+// next is the opaque cursor of the following page, null on the last page.
+public record CursorPage<T>(List<T> items, String next) {
+}
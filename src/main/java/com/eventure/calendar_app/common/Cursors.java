@@ -0,0 +1,42 @@
+package com.eventure.calendar_app.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque pagination cursors: the key of the last item of a page, URL-safe Base64 encoded.
+// Clients must pass them back unchanged, the format may change at any time.
+public final class Cursors {
+
+    private static final String SEPARATOR = "|";
+
+    private Cursors() {
+    }
+
+    public static String encode(Object... parts) {
+        StringBuilder key = new StringBuilder();
+
+        for(Object part: parts) {
+            if(!key.isEmpty()) {
+                key.append(SEPARATOR);
+            }
+            key.append(part);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Throws IllegalArgumentException when the cursor was not produced by encode with the given number of parts
+    public static String[] decode(String cursor, int parts) {
+        String[] key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("invalid cursor", ex);
+        }
+
+        if(key.length != parts) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+        return key;
+    }
+}
@@ -0,0 +1,5 @@
+package com.eventure.calendar_app.common;
+
+// The change version of a user by username, as polled for the change streams open on a node
+public record UserVersion(String username, Long version) {
+}
@@ -13,6 +13,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.eventure.calendar_app.auth.service.JWTService;
+import com.eventure.calendar_app.user.model.UserPrincipal;
+import com.eventure.calendar_app.user.model.Users;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,7 +41,16 @@ public class OAuth2LoginSuccessHandler implements AuthenticationSuccessHandler {
         String username = Optional.ofNullable((String) oauthUser.getAttributes().get("username"))
                         .orElse((String) oauthUser.getName());
 
-        String token = jwtService.generateToken(username);
+        // With the app's user id (also put there by CustomOAuth2UserService) the token carries the id and roles
+        String token;
+        if(oauthUser.getAttributes().get("appUserId") instanceof Long userId) {
+            Users user = new Users();
+            user.setId(userId);
+            user.setUsername(username);
+            token = jwtService.generateToken(new UserPrincipal(user));
+        } else {
+            token = jwtService.generateToken(username);
+        }
 
         // Build a redirect URL and append token as query parameter (app.oauth2.authorized-redirect-uri + ?token=...)
         String targetUrl = UriComponentsBuilder.fromUriString(redirectUri)
@@ -21,6 +21,8 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.eventure.calendar_app.user.service.CustomOAuth2UserService;
 
+import jakarta.servlet.DispatcherType;
+
 import java.util.Arrays;
 
 @Configuration
@@ -62,6 +64,7 @@ public class SecurityConfig {
 					.csrf(customizer -> customizer.disable())
 					.cors(Customizer.withDefaults())
 					.authorizeHttpRequests(request -> request
+							.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()	// Completing an async response (event stream) of an already authorized request
 							.requestMatchers("/api/users/register", "/api/users/login", "/oauth2/**", "/login/oauth2/**")	// Don't authorize the register and login page
 							.permitAll()								// But permit authorization for any other requests
 							.anyRequest().authenticated())
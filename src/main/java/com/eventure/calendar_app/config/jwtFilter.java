@@ -12,6 +12,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.eventure.calendar_app.auth.service.JWTService;
+import com.eventure.calendar_app.auth.service.JWTService.VerifiedToken;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.service.MyUserDetailsService;
 
 import jakarta.servlet.FilterChain;
@@ -36,21 +38,22 @@ public class jwtFilter extends OncePerRequestFilter{
 			throws ServletException, IOException {
 
 		String authHeader = request.getHeader("Authorization");
-		String token = null;
-		String username = null;
+		VerifiedToken verified = null;
 
-		// Extract the header, the username and the token
+		// Extract the header and verify the token (once per request, signature and expiry together)
 		if(authHeader != null && authHeader.startsWith("Bearer ")) {
-			token = authHeader.substring(7);
-			username = jwtService.extractUserName(token);
+			verified = jwtService.verify(authHeader.substring(7));
 		}
 
 		// Authentication must be null because the token isn't validated yet and we want it to be null
-		if(username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-			UserDetails userDetails = context.getBean(MyUserDetailsService.class).loadUserByUsername(username);
+		if(verified != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+			// Tokens with the user id and roles describe the principal completely, older ones need the user
+			UserDetails userDetails = verified.userId() != null
+					? UserPrincipal.fromClaims(verified.userId(), verified.username(), verified.roles())
+					: context.getBean(MyUserDetailsService.class).loadUserByUsername(verified.username());
 
-			// Validate jwt token
-			if(jwtService.validateToken(token, userDetails)) {
+			// The token must belong to the user that was loaded
+			if(verified.username().equals(userDetails.getUsername())) {
 
 				// After the jwt filter, we wanna pass the token to the UsernamePasswordAuthenticationFilter
 				UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
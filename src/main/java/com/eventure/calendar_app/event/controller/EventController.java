@@ -3,14 +3,32 @@ package com.eventure.calendar_app.event.controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventBatchOperation;
+import com.eventure.calendar_app.event.model.EventBatchResult;
+import com.eventure.calendar_app.event.model.EventOccurrence;
 import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.service.ConflictMode;
+import com.eventure.calendar_app.event.service.EventBatchService;
+import com.eventure.calendar_app.event.service.EventIndexService;
 import com.eventure.calendar_app.event.service.EventService;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -19,27 +37,60 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @CrossOrigin
 @RequestMapping("/api")
 public class EventController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Streamed responses are flushed after the first event and then every FLUSH_INTERVAL events
+    private static final int FLUSH_INTERVAL = 256;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    // Browsers keep the listing but revalidate it on every use, which the ETag turns into a 304 while nothing changed
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private EventService service;
+    private EventIndexService indexService;
+    private EventBatchService batchService;
+    private CalendarVersionService versions;
+    private ObjectMapper objectMapper;
 
     // Constructor injection
-    public EventController(EventService service) {
+    public EventController(EventService service, EventIndexService indexService, EventBatchService batchService,
+                           CalendarVersionService versions, ObjectMapper objectMapper) {
         this.service = service;
+        this.indexService = indexService;
+        this.batchService = batchService;
+        this.versions = versions;
+        this.objectMapper = objectMapper;
     }
     
     // Create new event after log in
     // Use Principal to fetch the username of the logged in user
+    // With conflicts=REPORT the overlapping events and repetitions of the user are returned,
+    // with conflicts=REJECT they are returned with 409 and the event is not created
     @PostMapping("/events")
-    public ResponseEntity<?> createEvent(@RequestBody Events event, Principal principal) {
+    public ResponseEntity<?> createEvent(@RequestBody Events event,
+                                         @RequestParam(defaultValue = "IGNORE") ConflictMode conflicts,
+                                         Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
-            service.createEvent(event, username);
-            return ResponseEntity.status(HttpStatus.CREATED).build();
+            List<EventOccurrence> found = service.createEvent(event, UserPrincipal.userId(principal), username, conflicts);
+            if(conflicts == ConflictMode.REJECT && !found.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(found);
+            }
+            return conflicts == ConflictMode.IGNORE
+                    ? ResponseEntity.status(HttpStatus.CREATED).build()
+                    : ResponseEntity.status(HttpStatus.CREATED).body(found);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
         } catch (Exception ex) {
@@ -47,25 +98,148 @@ public class EventController {
         }
     }
 
-    // Fetch all the events for the logged in user
+    // Apply a list of creates, updates and deletes of the logged in user in one transaction.
+    // Answers 200 with one {index, id, status, error} result per operation, failed operations are skipped.
+    @PostMapping("/events/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody List<EventBatchOperation> operations, Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            List<EventBatchResult> results = batchService.apply(operations, UserPrincipal.userId(principal), username);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    // Fetch the events for the logged in user
+    // With from/to (and optionally calendarId) only the events overlapping that window are returned.
+    // With limit or cursor one page of the events starting in [from, to) is returned as {items, next},
+    // pass next back as cursor (with the same from/to/calendarId) for the following page.
+    // The ETag is the change version of the user: while nothing of the user changed, If-None-Match is answered
+    // with 304 Not Modified without loading or expanding any event.
     @GetMapping("/events")
-    public ResponseEntity<?> getEvents(Principal principal) {
+    public ResponseEntity<?> getEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer calendarId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request,
+            Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            ChangeVersion version = versions.userVersion(username);
+            if(version != null && request.checkNotModified(version.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
+            if(limit != null || cursor != null) {
+                return ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(service.getEventPage(username, from, to, calendarId, cursor,
+                        limit != null ? limit : DEFAULT_PAGE_SIZE));
+            }
+            // Without parameters the full events are returned, windowed listings use the compact occurrence form
+            List<?> events = from == null && to == null && calendarId == null
+                    ? service.getEvents(username)
+                    : service.getEvents(username, from, to, calendarId);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(events);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    // Same as getEvents in the compact occurrence form, streamed as newline-delimited JSON (Accept: application/x-ndjson).
+    // Events are written while the recurring series are expanded, so memory use does not grow with the result.
+    // Revalidated with the same ETag as getEvents, the responses vary by Accept so caches keep both forms apart.
+    @GetMapping(value = "/events", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer calendarId,
+            WebRequest request,
+            Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
-            List<Events> events = service.getEvents(username);
+            ChangeVersion version = versions.userVersion(username);
+            if(version != null && request.checkNotModified(version.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
+            Stream<EventOccurrence> events = from == null && to == null && calendarId == null
+                    ? service.streamEvents(username)
+                    : service.streamEvents(username, from, to, calendarId);
+
+            StreamingResponseBody body = out -> {
+                int[] written = {0};
+
+                try (events) {
+                    events.forEach(event -> {
+                        try {
+                            out.write(objectMapper.writeValueAsBytes(event));
+                            out.write('\n');
+
+                            if(written[0]++ % FLUSH_INTERVAL == 0) {
+                                out.flush();
+                            }
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+                out.flush();
+            };
+
+            return ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).contentType(NDJSON).body(body);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        }
+    }
+
+    // Events of the logged in user in progress at the given instant, or overlapping [from, to), answered from the interval index
+    @GetMapping("/events/overlapping")
+    public ResponseEntity<?> getOverlappingEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            List<EventOccurrence> events = at != null
+                    ? indexService.findAt(username, at)
+                    : indexService.findOverlapping(username, from, to);
             return ResponseEntity.ok(events);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
         }
     }
 
+    private StreamingResponseBody message(String text) {
+        return out -> out.write(String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+    }
+
     // Update an existing event
     @PutMapping("/events/{id}")
-    public ResponseEntity<?> updateEvent(@PathVariable Integer id, @RequestBody Events event, Principal principal) {
+    public ResponseEntity<?> updateEvent(@PathVariable Integer id, @RequestBody Events event,
+                                         @RequestParam(defaultValue = "IGNORE") ConflictMode conflicts,
+                                         Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
-            service.updateEvent(id, event, username);
-            return ResponseEntity.noContent().build();
+            List<EventOccurrence> found = service.updateEvent(id, event, username, conflicts);
+            if(conflicts == ConflictMode.REJECT && !found.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(found);
+            }
+            return conflicts == ConflictMode.IGNORE
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.ok(found);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
         } catch (AccessDeniedException ex) {
@@ -0,0 +1,11 @@
+package com.eventure.calendar_app.event.model;
+
+// One write of a batch request: CREATE takes the event, UPDATE the id and the new event data, DELETE the id
+public record EventBatchOperation(Action action, Integer id, Events event) {
+
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+}
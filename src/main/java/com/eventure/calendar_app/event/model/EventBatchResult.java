@@ -0,0 +1,17 @@
+package com.eventure.calendar_app.event.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Outcome of the operation at the given position of a batch request, with the HTTP status the single-event
+// endpoint would have answered. id is the id of the written event, error is only set for failed operations.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventBatchResult(int index, Integer id, int status, String error) {
+
+    public static EventBatchResult succeeded(int index, Integer id, int status) {
+        return new EventBatchResult(index, id, status, null);
+    }
+
+    public static EventBatchResult failed(int index, Integer id, int status, String error) {
+        return new EventBatchResult(index, id, status, error);
+    }
+}
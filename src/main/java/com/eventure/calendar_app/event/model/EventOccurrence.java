@@ -0,0 +1,66 @@
+package com.eventure.calendar_app.event.model;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+// One occurrence of an event in a listing: either the event itself or a repetition of a recurring series (the id
+// component is null). The JSON id is a string for every row, "eventId" for the event and "seriesId:occurrenceIndex"
+// for a repetition, unique and the same across windows and pages for any series id and any number of repetitions.
+// The series-level data is referenced, not copied, and serialized as a few flat fields.
+@JsonPropertyOrder({"id", "seriesId", "occurrenceIndex", "title", "startTime", "endTime", "calendarId", "recurring", "completed"})
+public record EventOccurrence(
+        @JsonIgnore Integer id,
+        @JsonIgnore EventSeries series,
+        LocalDateTime startTime,
+        LocalDateTime endTime,
+        Integer occurrenceIndex) {
+
+    // The event itself
+    public EventOccurrence(Integer id, EventSeries series, LocalDateTime startTime, LocalDateTime endTime) {
+        this(id, series, startTime, endTime, null);
+    }
+
+    // The repetition of a series at the given position (counted from 0 after the original event)
+    public static EventOccurrence repetition(EventSeries series, int occurrenceIndex, LocalDateTime startTime, LocalDateTime endTime) {
+        return new EventOccurrence(null, series, startTime, endTime, occurrenceIndex);
+    }
+
+    // The id of the listing entry, the event id or the position of the repetition in its series
+    @JsonProperty("id")
+    public String key() {
+        return occurrenceIndex == null ? String.valueOf(id) : series.id() + ":" + occurrenceIndex;
+    }
+
+    @JsonIgnore
+    public boolean isRepetition() {
+        return occurrenceIndex != null;
+    }
+
+    @JsonProperty("seriesId")
+    public Integer seriesId() {
+        return series.id();
+    }
+
+    @JsonProperty("title")
+    public String title() {
+        return series.title();
+    }
+
+    @JsonProperty("calendarId")
+    public Integer calendarId() {
+        return series.calendarId();
+    }
+
+    @JsonProperty("recurring")
+    public boolean recurring() {
+        return series.isRecurring();
+    }
+
+    @JsonProperty("completed")
+    public Boolean completed() {
+        return series.completed();
+    }
+}
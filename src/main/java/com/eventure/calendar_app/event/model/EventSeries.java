@@ -0,0 +1,25 @@
+package com.eventure.calendar_app.event.model;
+
+import java.time.LocalDateTime;
+
+// Series-level data of an event, built once per event and shared by all of its occurrences.
+// Only the calendar id is kept so the lazy calendar and user associations are never loaded.
+public record EventSeries(
+        Integer id,
+        String title,
+        Integer calendarId,
+        Boolean completed,
+        String recurrenceRule,
+        LocalDateTime recurrenceEndDate) {
+
+    public static EventSeries of(Events event) {
+        Integer calendarId = event.getCalendar() != null ? event.getCalendar().getId() : null;
+
+        return new EventSeries(event.getId(), event.getTitle(), calendarId, event.getCompleted(),
+                event.getRecurrenceRule(), event.getRecurrenceEndDate());
+    }
+
+    public boolean isRecurring() {
+        return recurrenceRule != null && !recurrenceRule.isEmpty();
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.user.model.Users;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
@@ -12,20 +13,31 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_events_calendar_uid", columnList = "calendar_id, uid"),
+        @Index(name = "idx_events_user_mod_seq", columnList = "users_id, modSeq")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Events {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Ids come from a sequence in blocks of 50 so inserts can be sent in JDBC batches (identity columns force one round trip per row)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)     // Auto-generate the IDs in the database so that you don't need to hard-code
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "events_seq")
+    @SequenceGenerator(name = "events_seq", sequenceName = "events_seq", allocationSize = Events.ID_ALLOCATION_SIZE)
     private Integer id;
     private String title;
     private LocalDateTime startTime;
@@ -51,4 +63,16 @@ public class Events {
     
     // End date for recurring events
     private LocalDateTime recurrenceEndDate;
+
+    // iCalendar UID of an imported event, re-imports update the event with the same UID in the calendar
+    private String uid;
+
+    // Occurrences starting at or before this instant are stored in the occurrence table (back to the retention cut-off)
+    @JsonIgnore
+    private LocalDateTime materializedUntil;
+
+    // Change version of the user at the commit that last wrote the event, for delta sync.
+    // Writes reset it to null and the commit stamps it, background maintenance leaves it alone.
+    @JsonIgnore
+    private Long modSeq;
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.eventure.calendar_app.event.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One expanded instance of a recurring event, materialized up to a rolling horizon.
+// A position of a series is stored at most once, whichever node materializes it.
+@Entity
+@Table(indexes = @Index(name = "idx_occurrences_event_start", columnList = "event_id, start_time"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_occurrences_event_index", columnNames = {"event_id", "occurrence_index"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Occurrences {
+
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Sequence ids so that the occurrences of a series are inserted in JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "occurrences_seq")
+    @SequenceGenerator(name = "occurrences_seq", sequenceName = "occurrences_seq", allocationSize = Occurrences.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)  // Many occurrences -> one recurring event
+    @JoinColumn(name = "event_id", nullable = false)
+    private Events event;
+
+    // Position of the occurrence in the series (the original event is not counted)
+    private Integer occurrenceIndex;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+}
@@ -1,13 +1,136 @@
 package com.eventure.calendar_app.event.repo;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.eventure.calendar_app.event.model.Events;
 
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EventRepo extends JpaRepository<Events, Integer>{
+
+    // Listings return the entities directly, so the user and calendar are fetched in the same query
+    @EntityGraph(attributePaths = {"createdBy", "calendar"})
     List<Events> findByCreatedBy_Username(String username);
-}
\ No newline at end of file
+
+    @Override
+    @EntityGraph(attributePaths = {"createdBy", "calendar"})
+    List<Events> findAll();
+
+    // Events of the user written since the given change version
+    @EntityGraph(attributePaths = {"createdBy", "calendar"})
+    List<Events> findByCreatedBy_UsernameAndModSeqGreaterThan(String username, Long modSeq);
+
+    // Stamp the events of the user written by the committing transaction with its change version
+    @Modifying
+    @Transactional
+    @Query("update Events e set e.modSeq = :modSeq where e.createdBy.id = :userId and e.modSeq is null")
+    int stampModSeq(@Param("userId") Long userId, @Param("modSeq") Long modSeq);
+
+    // The event with its row locked until the transaction ends, background jobs on several nodes take turns on it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Events e where e.id = :id")
+    Optional<Events> findByIdForUpdate(@Param("id") Integer id);
+
+    // Move the materialized range of a series on without writing the rest of the row, if it still ends at :previous
+    @Modifying
+    @Transactional
+    @Query("update Events e set e.materializedUntil = :until where e.id = :id and e.materializedUntil = :previous")
+    int updateMaterializedUntil(@Param("id") Integer id, @Param("previous") LocalDateTime previous, @Param("until") LocalDateTime until);
+
+    // Same for a series that has no materialized range yet
+    @Modifying
+    @Transactional
+    @Query("update Events e set e.materializedUntil = :until where e.id = :id and e.materializedUntil is null")
+    int initMaterializedUntil(@Param("id") Integer id, @Param("until") LocalDateTime until);
+
+    // Events of the calendar with one of the iCalendar UIDs
+    List<Events> findByCalendar_IdAndUidIn(Integer calendarId, Collection<String> uids);
+
+    // Keyset pages in id order, used to export a calendar or all events of a user
+    List<Events> findByCalendar_IdAndIdGreaterThanOrderByIdAsc(Integer calendarId, Integer afterId, Pageable page);
+
+    List<Events> findByCreatedBy_UsernameAndIdGreaterThanOrderByIdAsc(String username, Integer afterId, Pageable page);
+
+    // Non-recurring events of the user that overlap [from, to)
+    @Query("""
+            select e from Events e
+            where e.createdBy.username = :username
+              and (e.recurrenceRule is null or e.recurrenceRule = '')
+              and (:calendarId is null or e.calendar.id = :calendarId)
+              and e.startTime < :to
+              and (e.endTime > :from or (e.endTime is null and e.startTime >= :from))
+            """)
+    List<Events> findSingleEventsInWindow(@Param("username") String username,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("calendarId") Integer calendarId);
+
+    // Recurring series of the user that may have occurrences in [from, to)
+    @Query("""
+            select e from Events e
+            where e.createdBy.username = :username
+              and e.recurrenceRule is not null and e.recurrenceRule <> ''
+              and (:calendarId is null or e.calendar.id = :calendarId)
+              and e.startTime < :to
+              and (e.recurrenceEndDate is null or e.recurrenceEndDate >= :from)
+            """)
+    List<Events> findRecurringSeriesInWindow(@Param("username") String username,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("calendarId") Integer calendarId);
+
+    // Non-recurring events of the user (of all users when username is null) after the (afterStart, afterId) key
+    // and starting before :to, in (startTime, id) order
+    @Query("""
+            select e from Events e
+            where (:username is null or e.createdBy.username = :username)
+              and (e.recurrenceRule is null or e.recurrenceRule = '')
+              and (:calendarId is null or e.calendar.id = :calendarId)
+              and (e.startTime > :afterStart or (e.startTime = :afterStart and e.id > :afterId))
+              and e.startTime < :to
+            order by e.startTime, e.id
+            """)
+    List<Events> findSingleEventsAfter(@Param("username") String username,
+                                       @Param("afterStart") LocalDateTime afterStart,
+                                       @Param("afterId") Integer afterId,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("calendarId") Integer calendarId,
+                                       Pageable page);
+
+    // Recurring series of the user (of all users when username is null) that may have occurrences in [from, to)
+    @Query("""
+            select e from Events e
+            where (:username is null or e.createdBy.username = :username)
+              and e.recurrenceRule is not null and e.recurrenceRule <> ''
+              and (:calendarId is null or e.calendar.id = :calendarId)
+              and e.startTime < :to
+              and (e.recurrenceEndDate is null or e.recurrenceEndDate >= :from)
+            """)
+    List<Events> findRecurringSeriesFrom(@Param("username") String username,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("calendarId") Integer calendarId);
+
+    // Recurring series ordered by id, used to walk all series in pages
+    @Query("""
+            select e from Events e
+            where e.recurrenceRule is not null and e.recurrenceRule <> ''
+              and e.id > :afterId
+            order by e.id
+            """)
+    List<Events> findRecurringSeriesAfter(@Param("afterId") Integer afterId, Pageable page);
+}
@@ -0,0 +1,64 @@
+package com.eventure.calendar_app.event.repo;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.event.model.Occurrences;
+
+@Repository
+public interface OccurrenceRepo extends JpaRepository<Occurrences, Long> {
+
+    // Occurrences of the given series that overlap [from, to)
+    @Query("""
+            select o from Occurrences o
+            where o.event.id in :eventIds
+              and o.startTime < :to
+              and o.endTime > :from
+            order by o.startTime
+            """)
+    List<Occurrences> findInWindow(@Param("eventIds") Collection<Integer> eventIds,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
+
+    // Occurrences of the given series after the (afterStart, afterId) key and starting before :to,
+    // in (startTime, series id) order
+    @Query("""
+            select o from Occurrences o
+            where o.event.id in :eventIds
+              and (o.startTime > :afterStart or (o.startTime = :afterStart and o.event.id > :afterId))
+              and o.startTime < :to
+            order by o.startTime, o.event.id
+            """)
+    List<Occurrences> findAfter(@Param("eventIds") Collection<Integer> eventIds,
+                                @Param("afterStart") LocalDateTime afterStart,
+                                @Param("afterId") Integer afterId,
+                                @Param("to") LocalDateTime to,
+                                Pageable page);
+
+    List<Occurrences> findByEvent_IdOrderByOccurrenceIndex(Integer eventId);
+
+    // Occurrences that ended before the given instant, in one statement
+    @Modifying
+    @Transactional
+    @Query("delete from Occurrences o where o.endTime < :before")
+    int deleteEndedBefore(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Occurrences o where o.event.id = :eventId")
+    void deleteByEventId(@Param("eventId") Integer eventId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Occurrences o where o.event.id in :eventIds")
+    void deleteByEventIds(@Param("eventIds") Collection<Integer> eventIds);
+}
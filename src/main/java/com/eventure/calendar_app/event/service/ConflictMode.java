@@ -0,0 +1,9 @@
+package com.eventure.calendar_app.event.service;
+
+// How an event write treats overlaps with the other events of the user:
+// IGNORE saves without checking, REPORT saves and returns the conflicts, REJECT only saves when there are none
+public enum ConflictMode {
+    IGNORE,
+    REPORT,
+    REJECT
+}
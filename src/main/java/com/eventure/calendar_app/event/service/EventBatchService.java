@@ -0,0 +1,205 @@
+package com.eventure.calendar_app.event.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.EventBatchOperation;
+import com.eventure.calendar_app.event.model.EventBatchResult;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+
+// Applies many event writes of one user in a single transaction.
+// The user, the events named by the operations and the calendars they reference are loaded with one query each,
+// new events get their ids from the sequence without a round trip per row, and the inserts and updates are sent
+// in JDBC batches when the transaction flushes. Deletes are collected and run as two statements at the end, and the
+// stored occurrences of the updated events are replaced after the last operation with one delete for all of them.
+// Every operation is validated like on the single-event endpoints; one that fails gets an error result
+// and is skipped, the others are still applied.
+@Service
+public class EventBatchService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private EventRepo eventRepo;
+    private UserRepo userRepo;
+    private CalendarRepo calRepo;
+    private OccurrenceStoreService occurrenceStore;
+    private ApplicationEventPublisher eventPublisher;
+
+    public EventBatchService(EventRepo eventRepo, UserRepo userRepo, CalendarRepo calRepo,
+                             OccurrenceStoreService occurrenceStore, ApplicationEventPublisher eventPublisher) {
+        this.eventRepo = eventRepo;
+        this.userRepo = userRepo;
+        this.calRepo = calRepo;
+        this.occurrenceStore = occurrenceStore;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public List<EventBatchResult> apply(List<EventBatchOperation> operations, String username) {
+        return apply(operations, null, username);
+    }
+
+    // Apply the operations in order, returns one result per operation in the same order.
+    // userId is the id carried by the token of the request, null to look the user up by username.
+    @Transactional
+    public List<EventBatchResult> apply(List<EventBatchOperation> operations, Long userId, String username) {
+        if(operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("a batch must hold between 1 and " + MAX_BATCH_SIZE + " operations");
+        }
+
+        Users user = userRepo.findOwner(userId, username);
+        if(user == null) {
+            throw new IllegalArgumentException("user not found: " + username);
+        }
+
+        Set<Integer> eventIds = new HashSet<>();
+        Set<Integer> calendarIds = new HashSet<>();
+        for(EventBatchOperation operation: operations) {
+            if(operation == null) {
+                continue;
+            }
+            if(operation.id() != null) {
+                eventIds.add(operation.id());
+            }
+            if(operation.event() != null && operation.event().getCalendar() != null && operation.event().getCalendar().getId() != null) {
+                calendarIds.add(operation.event().getCalendar().getId());
+            }
+        }
+
+        Map<Integer, Events> events = new HashMap<>();
+        eventRepo.findAllById(eventIds).forEach(event -> events.put(event.getId(), event));
+        Map<Integer, Calendars> calendars = new HashMap<>();
+        calRepo.findAllById(calendarIds).forEach(calendar -> calendars.put(calendar.getId(), calendar));
+
+        Map<Integer, Events> updated = new LinkedHashMap<>();
+        Set<Integer> deleted = new LinkedHashSet<>();
+        List<EventBatchResult> results = new ArrayList<>(operations.size());
+        for(int index = 0; index < operations.size(); index++) {
+            results.add(apply(index, operations.get(index), username, user, events, calendars, updated, deleted));
+        }
+
+        updated.keySet().removeAll(deleted);
+        occurrenceStore.materializeAll(updated.values());
+        if(!deleted.isEmpty()) {
+            occurrenceStore.removeAll(deleted);
+            eventRepo.deleteAllByIdInBatch(deleted);
+        }
+        return results;
+    }
+
+    private EventBatchResult apply(int index, EventBatchOperation operation, String username, Users user, Map<Integer, Events> events,
+                                   Map<Integer, Calendars> calendars, Map<Integer, Events> updated, Set<Integer> deleted) {
+        if(operation == null || operation.action() == null) {
+            return EventBatchResult.failed(index, null, HttpStatus.BAD_REQUEST.value(), "action is required");
+        }
+
+        return switch(operation.action()) {
+            case CREATE -> create(index, operation, username, user, events, calendars);
+            case UPDATE -> update(index, operation, username, user, events, calendars, updated, deleted);
+            case DELETE -> delete(index, operation, username, user, events, deleted);
+        };
+    }
+
+    private EventBatchResult create(int index, EventBatchOperation operation, String username, Users user, Map<Integer, Events> events,
+                                    Map<Integer, Calendars> calendars) {
+        Events event = operation.event();
+        if(event == null) {
+            return EventBatchResult.failed(index, null, HttpStatus.BAD_REQUEST.value(), "event is required");
+        }
+
+        Integer calId = calendarId(event);
+        if(calId != null && !calendars.containsKey(calId)) {
+            return EventBatchResult.failed(index, null, HttpStatus.NOT_FOUND.value(), "calendar not found: " + calId);
+        }
+
+        // The id is always assigned by the sequence, so a batch cannot overwrite an existing event by id
+        event.setId(null);
+        event.setCreatedBy(user);
+        event.setCalendar(calId != null ? calendars.get(calId) : null);
+
+        Events saved = eventRepo.save(event);
+        occurrenceStore.materializeNew(saved);
+        events.put(saved.getId(), saved);
+        eventPublisher.publishEvent(new EventChange(username, saved.getId(), saved));
+        return EventBatchResult.succeeded(index, saved.getId(), HttpStatus.CREATED.value());
+    }
+
+    private EventBatchResult update(int index, EventBatchOperation operation, String username, Users user, Map<Integer, Events> events,
+                                    Map<Integer, Calendars> calendars, Map<Integer, Events> updatedEvents, Set<Integer> deleted) {
+        Integer id = operation.id();
+        Events updated = operation.event();
+        if(id == null || updated == null) {
+            return EventBatchResult.failed(index, id, HttpStatus.BAD_REQUEST.value(), "id and event are required");
+        }
+
+        Events existing = deleted.contains(id) ? null : events.get(id);
+        if(existing == null) {
+            return EventBatchResult.failed(index, id, HttpStatus.NOT_FOUND.value(), "event not found: " + id);
+        }
+        if(!isOwner(existing, user)) {
+            return EventBatchResult.failed(index, id, HttpStatus.FORBIDDEN.value(), "Not allowed to update this event");
+        }
+
+        // Same as the single update: the calendar only changes when the update names one
+        Integer calId = calendarId(updated);
+        if(calId != null && !calendars.containsKey(calId)) {
+            return EventBatchResult.failed(index, id, HttpStatus.NOT_FOUND.value(), "calendar not found: " + calId);
+        }
+
+        Integer previousCalendarId = calendarId(existing);
+        EventService.copyEditableFields(existing, updated);
+        if(updated.getCalendar() != null) {
+            existing.setCalendar(calId != null ? calendars.get(calId) : null);
+        }
+
+        updatedEvents.put(id, existing);
+        eventPublisher.publishEvent(EventChange.updated(username, existing, previousCalendarId));
+        return EventBatchResult.succeeded(index, id, HttpStatus.OK.value());
+    }
+
+    private EventBatchResult delete(int index, EventBatchOperation operation, String username, Users user, Map<Integer, Events> events,
+                                    Set<Integer> deleted) {
+        Integer id = operation.id();
+        if(id == null) {
+            return EventBatchResult.failed(index, null, HttpStatus.BAD_REQUEST.value(), "id is required");
+        }
+
+        Events existing = deleted.contains(id) ? null : events.get(id);
+        if(existing == null) {
+            return EventBatchResult.failed(index, id, HttpStatus.NOT_FOUND.value(), "event not found: " + id);
+        }
+        if(!isOwner(existing, user)) {
+            return EventBatchResult.failed(index, id, HttpStatus.FORBIDDEN.value(), "Not allowed to delete this event");
+        }
+
+        deleted.add(id);
+        eventPublisher.publishEvent(EventChange.deleted(username, id, calendarId(existing)));
+        return EventBatchResult.succeeded(index, id, HttpStatus.NO_CONTENT.value());
+    }
+
+    // By id, so neither the user nor the owner of the event has to be loaded
+    private boolean isOwner(Events event, Users user) {
+        Users owner = event.getCreatedBy();
+        return owner != null && owner.getId() != null && owner.getId().equals(user.getId());
+    }
+
+    private Integer calendarId(Events event) {
+        return event.getCalendar() != null ? event.getCalendar().getId() : null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.eventure.calendar_app.event.service;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.eventure.calendar_app.event.model.Events;
+
+// Published by the event write paths once an event of the user was created, updated (event is the saved state)
+// or deleted (event is null). Bulk writes publish one change without an event id instead, listeners then drop
+// what they derived from the events of the user. calendarIds are the calendars whose content changed: the
+// calendar of the event, and on an update also the one it was moved from.
+// Listeners that keep derived state should react after the transaction commits.
+public record EventChange(String username, Integer eventId, Events event, Set<Integer> calendarIds) {
+
+    // A created event, or an update that kept the calendar
+    public EventChange(String username, Integer eventId, Events event) {
+        this(username, eventId, event, calendars(event != null && event.getCalendar() != null ? event.getCalendar().getId() : null));
+    }
+
+    public static EventChange updated(String username, Events event, Integer previousCalendarId) {
+        Integer calendarId = event.getCalendar() != null ? event.getCalendar().getId() : null;
+        return new EventChange(username, event.getId(), event, calendars(calendarId, previousCalendarId));
+    }
+
+    public static EventChange deleted(String username, Integer eventId, Integer calendarId) {
+        return new EventChange(username, eventId, null, calendars(calendarId));
+    }
+
+    public static EventChange bulk(String username, Integer... calendarIds) {
+        return new EventChange(username, null, null, calendars(calendarIds));
+    }
+
+    public boolean isBulk() {
+        return eventId == null;
+    }
+
+    public boolean isDeletion() {
+        return event == null;
+    }
+
+    private static Set<Integer> calendars(Integer... calendarIds) {
+        return Arrays.stream(calendarIds).filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,389 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.service.IntervalIndex.Interval;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// In-memory interval index of the events of every active user, for "what overlaps this time" questions.
+// Single events are indexed by their own interval. The repetitions of a recurring series are indexed one interval
+// each over the same window as the occurrence store (from the retention cut-off up to the horizon, at most
+// MAX_INDEXED_REPETITIONS per series), so a lookup touches only the occurrences in range. The rest of a series
+// before and after the window is indexed as one span each, whose repetitions are generated inside the queried
+// range only. The index of a user is built on first use from one query, updated after every committed
+// write and dropped when idle, when too many users are indexed or when the JVM runs short of memory.
+// Every index carries the change version of its user it was built at. Any node may commit a write of the user, so
+// every query reads the version from the database (one single-row query, skipped when the caller passes the version
+// it has just read) and rebuilds an index that fell behind.
+// The node that committed a write applies it in place and moves the version of the index on with it.
+// Index hits, misses and evictions are published as the "events.index" cache metrics.
+@Service
+public class EventIndexService {
+
+    private static final Comparator<EventOccurrence> BY_START =
+            Comparator.comparing(EventOccurrence::startTime).thenComparing(EventOccurrence::seriesId);
+
+    // Repetitions of a recurring event checked for conflicts, a bit more than a year of a daily event
+    public static final int MAX_CONFLICT_CHECKS = 400;
+
+    // Repetitions of a series indexed one by one, an hourly series for a year. Later ones fall into the span after the window.
+    public static final int MAX_INDEXED_REPETITIONS = 10_000;
+
+    private EventRepo eventRepo;
+    private RecurrenceExpander expander;
+    private CalendarVersionService versions;
+    private int horizonDays;
+    private int retentionDays;
+    private Cache<String, VersionedIndex> indexes;
+
+    public EventIndexService(EventRepo eventRepo, RecurrenceExpander expander, CalendarVersionService versions,
+                             @Value("${app.events.index.max-users:10000}") long maxUsers,
+                             @Value("${app.events.index.idle-minutes:30}") long idleMinutes,
+                             @Value("${app.occurrences.horizon-days:365}") int horizonDays,
+                             @Value("${app.occurrences.retention-days:90}") int retentionDays,
+                             MeterRegistry meterRegistry) {
+        this.eventRepo = eventRepo;
+        this.expander = expander;
+        this.versions = versions;
+        this.horizonDays = horizonDays;
+        this.retentionDays = retentionDays;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .softValues()
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, "events.index");
+    }
+
+    // Events and repetitions of the user overlapping [from, to), in start order
+    public List<EventOccurrence> findOverlapping(String username, LocalDateTime from, LocalDateTime to) {
+        checkWindow(from, to);
+        return overlapping(index(username, currentVersion(username)), from, to);
+    }
+
+    // Same as findOverlapping(username, from, to) for a caller that has just read the version of the user
+    public List<EventOccurrence> findOverlapping(String username, ChangeVersion version, LocalDateTime from, LocalDateTime to) {
+        checkWindow(from, to);
+        return overlapping(index(username, version), from, to);
+    }
+
+    // Events and repetitions of the user starting in [from, to), in start order
+    public List<EventOccurrence> findStartingBetween(String username, LocalDateTime from, LocalDateTime to) {
+        return findOverlapping(username, from, to).stream()
+                .filter(occurrence -> !occurrence.startTime().isBefore(from))
+                .toList();
+    }
+
+    // Events and repetitions of the user in progress at the given instant, in start order
+    public List<EventOccurrence> findAt(String username, LocalDateTime instant) {
+        if(instant == null) {
+            throw new IllegalArgumentException("instant is required");
+        }
+        return findOverlapping(username, instant, instant.plusNanos(1));
+    }
+
+    // Events and repetitions of the user overlapping the candidate event or one of its first MAX_CONFLICT_CHECKS
+    // repetitions, in start order. ignoredEventId is the event being updated, which never conflicts with itself.
+    // The index is queried once for the span of the checked occurrences, the result is matched against them in memory.
+    public List<EventOccurrence> findConflicts(String username, Events candidate, Integer ignoredEventId) {
+        if(candidate == null || candidate.getStartTime() == null) {
+            return List.of();
+        }
+
+        EventSeries series = EventSeries.of(candidate);
+        List<EventOccurrence> occurrences = new ArrayList<>();
+        occurrences.add(new EventOccurrence(candidate.getId(), series, candidate.getStartTime(), candidate.getEndTime()));
+        if(expander.isRecurring(candidate) && candidate.getEndTime() != null) {
+            // Repetitions of a rule that cannot be parsed are not checked, the write is rejected elsewhere
+            try {
+                expander.repetitions(candidate, series, null, null)
+                        .limit(MAX_CONFLICT_CHECKS)
+                        .forEach(occurrences::add);
+            } catch (IllegalArgumentException ex) {
+                // Keep the original occurrence only
+            }
+        }
+
+        // Repetitions keep the duration of the event, so the occurrences are in end order as well as in start order.
+        // An event without a duration conflicts with whatever is in progress when it starts.
+        LocalDateTime[] starts = new LocalDateTime[occurrences.size()];
+        LocalDateTime[] ends = new LocalDateTime[occurrences.size()];
+        for(int i = 0; i < occurrences.size(); i++) {
+            EventOccurrence occurrence = occurrences.get(i);
+            starts[i] = occurrence.startTime();
+            ends[i] = occurrence.endTime() != null && occurrence.endTime().isAfter(occurrence.startTime())
+                    ? occurrence.endTime()
+                    : occurrence.startTime().plusNanos(1);
+        }
+
+        List<EventOccurrence> conflicts = new ArrayList<>();
+        for(EventOccurrence existing: findOverlapping(username, starts[0], ends[ends.length - 1])) {
+            if(ignoredEventId != null && ignoredEventId.equals(existing.seriesId())) {
+                continue;
+            }
+
+            // Of the occurrences ending after the existing one starts, the first one is the most likely to overlap it
+            int first = firstEndingAfter(ends, existing.startTime());
+            if(first < ends.length && overlaps(existing.startTime(), existing.endTime(), starts[first], ends[first])) {
+                conflicts.add(existing);
+            }
+        }
+        return conflicts;
+    }
+
+    // Apply a committed write to the index of its user, users without an index are left alone.
+    // The write moved the version of the user one step on, so it is applied only to an index one version behind;
+    // an index that missed another write (committed on another node) is dropped instead, as is the index after a
+    // bulk write or after the second write of the same transaction. Dropped indexes are rebuilt on the next query.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        if(change.username() == null) {
+            return;
+        }
+        if(change.isBulk()) {
+            indexes.invalidate(change.username());
+            return;
+        }
+        if(!indexes.asMap().containsKey(change.username())) {
+            return;
+        }
+
+        ChangeVersion current = versions.userVersion(change.username());
+        indexes.asMap().computeIfPresent(change.username(), (username, indexed) -> {
+            if(current == null || current.version() != indexed.version() + 1) {
+                return null;
+            }
+            return new VersionedIndex(current.version(), indexed.window(), indexed.index().replace(
+                    event -> Objects.equals(event.event().seriesId(), change.eventId()),
+                    change.isDeletion() ? List.of() : intervals(change.event(), indexed.window())));
+        });
+    }
+
+    // Drop the index of the user, it is rebuilt on the next query
+    public void invalidate(String username) {
+        indexes.invalidate(username);
+    }
+
+    private List<EventOccurrence> overlapping(IntervalIndex<IndexedEvent> index, LocalDateTime from, LocalDateTime to) {
+        List<EventOccurrence> results = new ArrayList<>();
+        for(IndexedEvent candidate: index.overlapping(floorSecond(from), ceilSecond(to))) {
+            if(candidate.series() == null) {
+                if(overlaps(candidate.event().startTime(), candidate.event().endTime(), from, to)) {
+                    results.add(candidate.event());
+                }
+                continue;
+            }
+
+            // An occurrence overlaps the range if it starts before to and ends after from, so look back by the event duration
+            Duration duration = Duration.between(candidate.series().getStartTime(), candidate.series().getEndTime());
+            LocalDateTime rangeStart = later(from.minus(duration), candidate.seriesFrom());
+            repetitions(candidate, rangeStart, to)
+                    .filter(occurrence -> candidate.seriesTo() == null || occurrence.startTime().isBefore(candidate.seriesTo()))
+                    .filter(occurrence -> overlaps(occurrence.startTime(), occurrence.endTime(), from, to))
+                    .forEach(results::add);
+        }
+
+        results.sort(BY_START);
+        return results;
+    }
+
+    private void checkWindow(LocalDateTime from, LocalDateTime to) {
+        if(from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("invalid time window: from must be before to");
+        }
+    }
+
+    private ChangeVersion currentVersion(String username) {
+        if(username == null) {
+            throw new IllegalArgumentException("user required");
+        }
+        return versions.userVersion(username);
+    }
+
+    // The index of the user at the given version, unknown users have an empty index that is not kept
+    private IntervalIndex<IndexedEvent> index(String username, ChangeVersion current) {
+        if(username == null) {
+            throw new IllegalArgumentException("user required");
+        }
+        if(current == null) {
+            return IntervalIndex.of(List.of());
+        }
+
+        VersionedIndex cached = indexes.getIfPresent(username);
+        if(cached != null && cached.version() == current.version()) {
+            return cached.index();
+        }
+
+        // Of two concurrent builds the one at the later version is kept
+        VersionedIndex built = build(username, current.version());
+        indexes.asMap().merge(username, built, (old, fresh) -> old.version() > fresh.version() ? old : fresh);
+        return built.index();
+    }
+
+    // The version is read before the events, so a write committed in between leaves the index behind and it is rebuilt once more
+    private VersionedIndex build(String username, long version) {
+        LocalDate today = LocalDate.now();
+        IndexWindow window = new IndexWindow(today.minusDays(retentionDays).atStartOfDay(), today.plusDays(horizonDays).atStartOfDay());
+
+        List<Interval<IndexedEvent>> intervals = new ArrayList<>();
+        for(Events event: eventRepo.findByCreatedBy_Username(username)) {
+            intervals.addAll(intervals(event, window));
+        }
+        return new VersionedIndex(version, window, IntervalIndex.of(intervals));
+    }
+
+    // The intervals of the event and of its repetitions, none when the event has no start.
+    // Repetitions starting inside the window get an interval each, the rest of the series a span before and after it.
+    private List<Interval<IndexedEvent>> intervals(Events event, IndexWindow window) {
+        if(event.getStartTime() == null) {
+            return List.of();
+        }
+
+        EventSeries series = EventSeries.of(event);
+        List<Interval<IndexedEvent>> intervals = new ArrayList<>();
+        intervals.add(interval(new EventOccurrence(event.getId(), series, event.getStartTime(), event.getEndTime())));
+        if(!expander.isRecurring(event) || event.getEndTime() == null) {
+            return intervals;
+        }
+
+        Events recurring = detached(event);
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        LocalDateTime seriesEnd = expander.seriesEnd(event);
+
+        if(event.getStartTime().isBefore(window.from())) {
+            intervals.add(span(event, recurring, null, window.from(), window.from().plus(duration)));
+        }
+
+        List<EventOccurrence> inWindow;
+        try {
+            inWindow = expander.repetitions(recurring, series, window.from(), window.to())
+                    .filter(occurrence -> occurrence.startTime().isBefore(window.to()))
+                    .limit(MAX_INDEXED_REPETITIONS + 1)
+                    .toList();
+        } catch (IllegalArgumentException ex) {
+            // A rule that cannot be parsed has no repetitions
+            return intervals;
+        }
+
+        LocalDateTime spanFrom = later(window.from(), event.getStartTime());
+        for(EventOccurrence occurrence: inWindow.subList(0, Math.min(inWindow.size(), MAX_INDEXED_REPETITIONS))) {
+            intervals.add(interval(occurrence));
+            spanFrom = occurrence.startTime().plusNanos(1);
+        }
+        if(inWindow.size() <= MAX_INDEXED_REPETITIONS) {
+            spanFrom = later(spanFrom, window.to());
+        }
+        if(!spanFrom.isAfter(seriesEnd)) {
+            intervals.add(span(event, recurring, spanFrom, null, seriesEnd.plus(duration)));
+        }
+        return intervals;
+    }
+
+    // Events without a duration are indexed as one second so that they can be found at all
+    private Interval<IndexedEvent> interval(EventOccurrence occurrence) {
+        LocalDateTime end = occurrence.endTime() != null && occurrence.endTime().isAfter(occurrence.startTime())
+                ? occurrence.endTime()
+                : occurrence.startTime();
+        long start = floorSecond(occurrence.startTime());
+        return new Interval<>(start, Math.max(ceilSecond(end), start + 1), new IndexedEvent(occurrence, null, null, null));
+    }
+
+    // The repetitions of the series starting in [seriesFrom, seriesTo) (unbounded when null), generated when queried
+    private Interval<IndexedEvent> span(Events event, Events recurring, LocalDateTime seriesFrom, LocalDateTime seriesTo, LocalDateTime end) {
+        EventOccurrence original = new EventOccurrence(event.getId(), EventSeries.of(event), event.getStartTime(), event.getEndTime());
+        long start = floorSecond(seriesFrom != null ? seriesFrom : event.getStartTime());
+        return new Interval<>(start, Math.max(ceilSecond(end), start + 1), new IndexedEvent(original, recurring, seriesFrom, seriesTo));
+    }
+
+    private Stream<EventOccurrence> repetitions(IndexedEvent candidate, LocalDateTime from, LocalDateTime to) {
+        try {
+            return expander.repetitions(candidate.series(), candidate.event().series(), from, to);
+        } catch (IllegalArgumentException ex) {
+            return Stream.empty();
+        }
+    }
+
+    // The fields needed to expand a series, without the user and calendar associations
+    private Events detached(Events event) {
+        Events series = new Events();
+        series.setId(event.getId());
+        series.setStartTime(event.getStartTime());
+        series.setEndTime(event.getEndTime());
+        series.setRecurrenceRule(event.getRecurrenceRule());
+        series.setRecurrenceEndDate(event.getRecurrenceEndDate());
+        return series;
+    }
+
+    // Same rule as the windowed listing: an event without an end only overlaps when it starts inside the range
+    private boolean overlaps(LocalDateTime start, LocalDateTime end, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime effectiveEnd = end != null ? end : start;
+        return start.isBefore(to) && (effectiveEnd.isAfter(from) || (end == null && !start.isBefore(from)));
+    }
+
+    // Index of the first end after the instant, ends.length when there is none
+    private static int firstEndingAfter(LocalDateTime[] ends, LocalDateTime instant) {
+        int low = 0;
+        int high = ends.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(ends[middle].isAfter(instant)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static LocalDateTime later(LocalDateTime time, LocalDateTime other) {
+        return other != null && other.isAfter(time) ? other : time;
+    }
+
+    private static long floorSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long ceilSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0);
+    }
+
+    // The index of a user with the change version of the user it reflects and the window its repetitions were expanded in
+    private record VersionedIndex(long version, IndexWindow window, IntervalIndex<IndexedEvent> index) {
+    }
+
+    // Repetitions starting in [from, to) are indexed one by one
+    private record IndexWindow(LocalDateTime from, LocalDateTime to) {
+    }
+
+    // An indexed event or repetition. For the span of a series, event is the original event and series holds the data
+    // needed to expand the repetitions starting in [seriesFrom, seriesTo).
+    private record IndexedEvent(EventOccurrence event, Events series, LocalDateTime seriesFrom, LocalDateTime seriesTo) {
+    }
+}
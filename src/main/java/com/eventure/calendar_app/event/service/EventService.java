@@ -1,42 +1,95 @@
 package com.eventure.calendar_app.event.service;
 
 import java.nio.file.AccessDeniedException;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.CursorPage;
+import com.eventure.calendar_app.common.Cursors;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
 import com.eventure.calendar_app.event.model.Events;
 import com.eventure.calendar_app.event.repo.EventRepo;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
-import net.fortuna.ical4j.model.Recur;
-import net.fortuna.ical4j.model.Period;
-
 @Service
 public class EventService {
 
+    private static final Comparator<EventOccurrence> BY_START =
+            Comparator.comparing(EventOccurrence::startTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    // Page order: a single event is keyed by its own id, a repeated event by the id of its series
+    private static final Comparator<EventOccurrence> BY_KEY = BY_START.thenComparing(EventOccurrence::seriesId);
+
+    // Bounds of an open-ended page listing
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    public static final int MAX_PAGE_SIZE = 500;
+
     private EventRepo eventRepo;
     private UserRepo userRepo;
     private CalendarRepo calRepo;
+    private RecurrenceExpander expander;
+    private OccurrenceStoreService occurrenceStore;
+    private SeriesExpansionExecutor expansionExecutor;
+    private ApplicationEventPublisher eventPublisher;
+    private EventIndexService indexService;
 
     // Constructor injection
-    public EventService(EventRepo eventRepo, UserRepo userRepo, CalendarRepo calRepo) {
+    public EventService(EventRepo eventRepo, UserRepo userRepo, CalendarRepo calRepo, RecurrenceExpander expander,
+                        OccurrenceStoreService occurrenceStore, SeriesExpansionExecutor expansionExecutor,
+                        ApplicationEventPublisher eventPublisher, EventIndexService indexService) {
         this.eventRepo = eventRepo;
         this.userRepo = userRepo;
         this.calRepo = calRepo;
+        this.expander = expander;
+        this.occurrenceStore = occurrenceStore;
+        this.expansionExecutor = expansionExecutor;
+        this.eventPublisher = eventPublisher;
+        this.indexService = indexService;
     }
 
     // Create new event
+    @Transactional
     public void createEvent(Events event, String username) {
+        createEvent(event, null, username, ConflictMode.IGNORE);
+    }
+
+    @Transactional
+    public List<EventOccurrence> createEvent(Events event, String username, ConflictMode mode) {
+        return createEvent(event, null, username, mode);
+    }
+
+    // Create new event, unless mode is IGNORE it is first checked against the other events of the user.
+    // Returns the conflicting events and repetitions, with REJECT the event is only saved when there are none.
+    // userId is the id carried by the token of the request, null to look the user up by username.
+    @Transactional
+    public List<EventOccurrence> createEvent(Events event, Long userId, String username, ConflictMode mode) {
 
         // Find the user object and set createdBy
-        Users user = userRepo.findByUsername(username);
+        Users user = userRepo.findOwner(userId, username);
 
         if(user == null) {
             throw new IllegalArgumentException("user not found: " + username);
@@ -44,6 +97,11 @@ public class EventService {
 
         event.setCreatedBy(user);
 
+        List<EventOccurrence> conflicts = findConflicts(username, event, null, mode);
+        if(mode == ConflictMode.REJECT && !conflicts.isEmpty()) {
+            return conflicts;
+        }
+
         // If client provides calendar, set the calendar in the events. If not, set calendar to null
         if(event.getCalendar() != null) {
             Integer calId = event.getCalendar().getId();
@@ -56,7 +114,10 @@ public class EventService {
             }
         }
 
-        eventRepo.save(event);
+        Events saved = eventRepo.save(event);
+        occurrenceStore.materialize(saved);
+        eventPublisher.publishEvent(new EventChange(username, saved.getId(), saved));
+        return conflicts;
     }
 
     // Fetch all the events for the logged in user
@@ -64,75 +125,154 @@ public class EventService {
         List<Events> allEvents = username == null
                 ? eventRepo.findAll()
                 : eventRepo.findByCreatedBy_Username(username);
-        // This new list will hold both normal and expanded recurring events
-        List<Events> expandedEvents = new ArrayList<>();
-
-        for(Events event: allEvents) {
+        // Each group holds an event followed by its repetitions as full entity copies
+        List<List<Events>> groups = expansionExecutor.expandAll(allEvents, event -> {
+            List<Events> expandedEvents = new ArrayList<>();
             expandedEvents.add(event);
 
             // Check if this event has a recurrence rule (RRULE string like "FREQ=DAILY;INTERVAL=2")
-            if(event.getRecurrenceRule() != null && !event.getRecurrenceRule().isEmpty()) {
-                if(event.getStartTime() == null || event.getEndTime() == null) {
-                    continue;
-                }
-                try{
-                    Recur<ZonedDateTime> recur = new Recur<>(event.getRecurrenceRule());
-
-                    // Convert our startTime (LocalDateTime) to ZonedDateTime because ical4j 4.x uses Temporal types.
-                    ZonedDateTime startDateTime = event.getStartTime().atZone(ZoneId.systemDefault());
-
-                    // Use the recurrenceEndDate if provided, otherwise default to 6 months from start
-                    ZonedDateTime periodEnd = event.getRecurrenceEndDate() != null ? 
-                        event.getRecurrenceEndDate().atZone(ZoneId.systemDefault()) : 
-                        startDateTime.plusMonths(6);
-
-                    // Create a Period between start and end time
-                    Period<ZonedDateTime> recurrencePeriod = new Period<>(
-                            startDateTime,
-                            java.time.Duration.between(startDateTime, periodEnd)
-                    );
-
-                    // Generate the recurrence set of dates
-                    List<ZonedDateTime> recurrenceDates = recur.getDates(startDateTime, recurrencePeriod);
-
-                    final int[] occurrenceIndex = {0};
-                    recurrenceDates.forEach(recurrenceDate -> {
-                        if(recurrenceDate.isEqual(startDateTime)) {
-                            return;
-                        }
-
-                        // Generate repeated events for each date in the recurrence set
-                        Events repeatedEvent = new Events();
-
-                        repeatedEvent.setId(buildSyntheticId(event.getId(), occurrenceIndex[0]++));
-                        repeatedEvent.setTitle(event.getTitle());
-                        repeatedEvent.setStartTime(recurrenceDate.toLocalDateTime());
-
-                          long durationMinutes = java.time.Duration.between(
-                                event.getStartTime(), event.getEndTime()
-                        ).toMinutes();
-
-                        repeatedEvent.setEndTime(recurrenceDate.toLocalDateTime().plusMinutes(durationMinutes));
-                        repeatedEvent.setRecurrenceRule(event.getRecurrenceRule());
-                        repeatedEvent.setCalendar(event.getCalendar());
-                        repeatedEvent.setCreatedBy(event.getCreatedBy());
-                        repeatedEvent.setCompleted(event.getCompleted());
-                        repeatedEvent.setIsRecurring(true);
-                        repeatedEvent.setRecurrenceEndDate(event.getRecurrenceEndDate());
-
-                        expandedEvents.add(repeatedEvent);
-                    });
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+            if(expander.isRecurring(event)) {
+                repeatedEvents(event, EventSeries.of(event), null, null)
+                        .forEach(occurrence -> expandedEvents.add(buildRepeatedEvent(event, occurrence)));
             }
+            return List.of(expandedEvents);
+        });
+        numberRepetitions(groups);
+        return groups.stream().flatMap(List::stream).toList();
+    }
+
+    // Lazy form of getEvents(username) for streaming responses, repetitions are generated while the stream is consumed
+    public Stream<EventOccurrence> streamEvents(String username) {
+        List<Events> allEvents = username == null
+                ? eventRepo.findAll()
+                : eventRepo.findByCreatedBy_Username(username);
+
+        return allEvents.stream().flatMap(event -> {
+            EventSeries series = EventSeries.of(event);
+            Stream<EventOccurrence> original = Stream.of(new EventOccurrence(event.getId(), series, event.getStartTime(), event.getEndTime()));
+
+            return expander.isRecurring(event)
+                    ? Stream.concat(original, repeatedEvents(event, series, null, null))
+                    : original;
+        });
+    }
+
+    // Fetch the events of the logged in user that overlap the [from, to) window.
+    // Single events are filtered in the database, recurring series are only expanded inside the window.
+    public List<EventOccurrence> getEvents(String username, LocalDateTime from, LocalDateTime to, Integer calendarId) {
+        Window window = loadWindow(username, from, to, calendarId);
+        List<EventOccurrence> windowEvents = new ArrayList<>(window.events());
+
+        windowEvents.addAll(expansionExecutor.expandAll(window.expandedSeries(),
+                series -> repeatedEvents(series, window.summaries().get(series.getId()), from, to).toList()));
+        windowEvents.addAll(window.storedOccurrences().toList());
+
+        windowEvents.sort(BY_START);
+        return windowEvents;
+    }
+
+    // Lazy form of getEvents(username, from, to, calendarId) for streaming responses.
+    // The window is validated and the series are loaded immediately, the occurrences of every series are
+    // generated while the stream is consumed and merged in start order, so only one occurrence per series is in memory.
+    public Stream<EventOccurrence> streamEvents(String username, LocalDateTime from, LocalDateTime to, Integer calendarId) {
+        Window window = loadWindow(username, from, to, calendarId);
+        List<Iterator<EventOccurrence>> sources = new ArrayList<>();
+
+        List<EventOccurrence> events = new ArrayList<>(window.events());
+        events.sort(BY_START);
+        sources.add(events.iterator());
+        sources.add(window.storedOccurrences().iterator());
+
+        for(Events series: window.expandedSeries()) {
+            sources.add(repeatedEvents(series, window.summaries().get(series.getId()), from, to).iterator());
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator<>(sources, BY_START),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // One page of the events of the user (of all users when username is null) starting in [from, to),
+    // either bound may be null. Events are ordered by (startTime, id), repeated events by (startTime, series id),
+    // the cursor is the key of the last event of the previous page. Every source is read from the cursor on
+    // (a keyset query for stored rows, a seek for the series expanded on the fly), so a deep page costs the same as the first one.
+    public CursorPage<EventOccurrence> getEventPage(String username, LocalDateTime from, LocalDateTime to, Integer calendarId,
+                                                    String cursor, int limit) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if(from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("invalid time window: from must be before to");
+        }
+
+        LocalDateTime afterStart = from != null ? from : EARLIEST;
+        int afterId = Integer.MIN_VALUE;
+        if(cursor != null) {
+            String[] key = Cursors.decode(cursor, 2);
+            try {
+                afterStart = LocalDateTime.parse(key[0]);
+                afterId = Integer.parseInt(key[1]);
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid cursor", ex);
+            }
+        }
+        LocalDateTime upper = to != null ? to : LATEST;
+
+        List<Iterator<EventOccurrence>> sources = new ArrayList<>();
+        sources.add(eventRepo.findSingleEventsAfter(username, afterStart, afterId, upper, calendarId, PageRequest.of(0, limit)).stream()
+                .map(event -> new EventOccurrence(event.getId(), EventSeries.of(event), event.getStartTime(), event.getEndTime()))
+                .iterator());
+
+        List<EventOccurrence> masters = new ArrayList<>();
+        Set<Integer> storedSeries = new HashSet<>();
+        Map<Integer, EventSeries> summaries = new HashMap<>();
+
+        for(Events series: eventRepo.findRecurringSeriesFrom(username, afterStart, upper, calendarId)) {
+            EventSeries summary = EventSeries.of(series);
+            summaries.put(series.getId(), summary);
+
+            EventOccurrence master = new EventOccurrence(series.getId(), summary, series.getStartTime(), series.getEndTime());
+            if(isAfter(master, afterStart, afterId) && master.startTime().isBefore(upper)) {
+                masters.add(master);
+            }
+
+            if(occurrenceStore.covers(series, afterStart, upper)) {
+                storedSeries.add(series.getId());
+            } else {
+                LocalDateTime pageStart = afterStart;
+                int pageId = afterId;
+                sources.add(repeatedEventsStarting(series, summary, afterStart, upper)
+                        .filter(occurrence -> occurrence.startTime().isBefore(upper) && isAfter(occurrence, pageStart, pageId))
+                        .iterator());
+            }
+        }
+
+        masters.sort(BY_KEY);
+        sources.add(masters.iterator());
+        sources.add(occurrenceStore.findAfter(storedSeries, afterStart, afterId, upper, limit).stream()
+                .map(occurrence -> EventOccurrence.repetition(summaries.get(occurrence.getEvent().getId()),
+                        occurrence.getOccurrenceIndex(), occurrence.getStartTime(), occurrence.getEndTime()))
+                .iterator());
+
+        MergingIterator<EventOccurrence> merged = new MergingIterator<>(sources, BY_KEY);
+        List<EventOccurrence> items = new ArrayList<>(limit);
+        while(items.size() < limit && merged.hasNext()) {
+            items.add(merged.next());
         }
 
-        return expandedEvents;
+        EventOccurrence last = items.isEmpty() ? null : items.get(items.size() - 1);
+        String next = merged.hasNext() ? Cursors.encode(last.startTime(), last.seriesId()) : null;
+        return new CursorPage<>(items, next);
     }
 
     // Update an existing event
+    @Transactional
     public void updateEvent(Integer id, Events updated, String username) throws AccessDeniedException {
+        updateEvent(id, updated, username, ConflictMode.IGNORE);
+    }
+
+    // Update an existing event, checking the new times against the other events of the user like createEvent
+    @Transactional
+    public List<EventOccurrence> updateEvent(Integer id, Events updated, String username, ConflictMode mode) throws AccessDeniedException {
         Events existing = eventRepo.findById(id).orElseThrow(() -> new IllegalArgumentException("event not found: "  +id));
     
         Users owner = existing.getCreatedBy();
@@ -141,14 +281,15 @@ public class EventService {
             throw new AccessDeniedException("Not allowed to update this event");
         }
 
-        // Copy fileds that are allowed to change
-        existing.setTitle(updated.getTitle());
-        existing.setStartTime(updated.getStartTime());
-        existing.setEndTime(updated.getEndTime());
-        existing.setCompleted(updated.getCompleted());
-        existing.setIsRecurring(updated.getIsRecurring());
-        existing.setRecurrenceRule(updated.getRecurrenceRule());
-        existing.setRecurrenceEndDate(updated.getRecurrenceEndDate());
+        // Checked before the managed event is changed, so a rejected update is not flushed
+        List<EventOccurrence> conflicts = findConflicts(username, updated, id, mode);
+        if(mode == ConflictMode.REJECT && !conflicts.isEmpty()) {
+            return conflicts;
+        }
+
+        Integer previousCalendarId = existing.getCalendar() != null ? existing.getCalendar().getId() : null;
+
+        copyEditableFields(existing, updated);
 
         // If the calendar is not null in the updated event, update the calendar. If not, set null
         if(updated.getCalendar() != null) {
@@ -162,10 +303,14 @@ public class EventService {
             }
         }
 
-        eventRepo.save(existing);
+        Events saved = eventRepo.save(existing);
+        occurrenceStore.materialize(saved);
+        eventPublisher.publishEvent(EventChange.updated(username, existing, previousCalendarId));
+        return conflicts;
     }
 
     // Delete the event by the id
+    @Transactional
     public void deleteEvent(Integer id, String username) throws AccessDeniedException {
         Events existing = eventRepo.findById(id).orElseThrow(() -> new IllegalArgumentException("event not found: "  +id));
         
@@ -175,12 +320,146 @@ public class EventService {
             throw new AccessDeniedException("Not allowed to delete this event");
         }
 
+        Integer calendarId = existing.getCalendar() != null ? existing.getCalendar().getId() : null;
+        occurrenceStore.remove(id);
         eventRepo.deleteById(id);
+        eventPublisher.publishEvent(EventChange.deleted(username, id, calendarId));
+    }
+
+    // Copy fileds that are allowed to change
+    static void copyEditableFields(Events existing, Events updated) {
+        existing.setTitle(updated.getTitle());
+        existing.setStartTime(updated.getStartTime());
+        existing.setEndTime(updated.getEndTime());
+        existing.setCompleted(updated.getCompleted());
+        existing.setIsRecurring(updated.getIsRecurring());
+        existing.setRecurrenceRule(updated.getRecurrenceRule());
+        existing.setRecurrenceEndDate(updated.getRecurrenceEndDate());
+        // Stamped with the new change version when the write commits
+        existing.setModSeq(null);
+    }
+
+    private List<EventOccurrence> findConflicts(String username, Events event, Integer eventId, ConflictMode mode) {
+        if(mode == null || mode == ConflictMode.IGNORE) {
+            return List.of();
+        }
+        return indexService.findConflicts(username, event, eventId);
+    }
+
+    // Single events and series masters overlapping [from, to), the series expanded on the fly,
+    // the repeated events read from the occurrence table (ordered by start) and the shared data of every series
+    private record Window(List<EventOccurrence> events, List<Events> expandedSeries,
+                          Stream<EventOccurrence> storedOccurrences, Map<Integer, EventSeries> summaries) {
+    }
+
+    private Window loadWindow(String username, LocalDateTime from, LocalDateTime to, Integer calendarId) {
+        if(from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("invalid time window: from must be before to");
+        }
+
+        List<EventOccurrence> events = new ArrayList<>();
+        List<Events> expandedSeries = new ArrayList<>();
+        Set<Integer> storedSeries = new HashSet<>();
+        Map<Integer, EventSeries> summaries = new HashMap<>();
+
+        for(Events event: eventRepo.findSingleEventsInWindow(username, from, to, calendarId)) {
+            events.add(new EventOccurrence(event.getId(), EventSeries.of(event), event.getStartTime(), event.getEndTime()));
+        }
+
+        for(Events series: eventRepo.findRecurringSeriesInWindow(username, from, to, calendarId)) {
+            EventSeries summary = EventSeries.of(series);
+            summaries.put(series.getId(), summary);
+
+            // The original event is returned like any other event when it falls into the window
+            if(overlaps(series.getStartTime(), series.getEndTime(), from, to)) {
+                events.add(new EventOccurrence(series.getId(), summary, series.getStartTime(), series.getEndTime()));
+            }
+
+            // Series materialized past the window are read from the occurrence table, the rest is expanded
+            if(occurrenceStore.covers(series, from, to)) {
+                storedSeries.add(series.getId());
+            } else {
+                expandedSeries.add(series);
+            }
+        }
+
+        Stream<EventOccurrence> storedOccurrences = occurrenceStore.findInWindow(storedSeries, from, to).stream()
+                .map(occurrence -> EventOccurrence.repetition(summaries.get(occurrence.getEvent().getId()),
+                        occurrence.getOccurrenceIndex(), occurrence.getStartTime(), occurrence.getEndTime()));
+
+        return new Window(events, expandedSeries, storedOccurrences, summaries);
+    }
+
+    // True if the event comes after the (afterStart, afterId) key in page order
+    private boolean isAfter(EventOccurrence occurrence, LocalDateTime afterStart, int afterId) {
+        int order = occurrence.startTime().compareTo(afterStart);
+        return order > 0 || (order == 0 && occurrence.seriesId() > afterId);
+    }
+
+    private boolean overlaps(LocalDateTime start, LocalDateTime end, LocalDateTime from, LocalDateTime to) {
+        if(start == null) {
+            return false;
+        }
+        LocalDateTime effectiveEnd = end != null ? end : start;
+        return start.isBefore(to) && (effectiveEnd.isAfter(from) || (end == null && !start.isBefore(from)));
     }
 
-    // Generate Id for each repeated events 
-    private Integer buildSyntheticId(Integer baseId, int occurrenceIndex) {
-        int base = baseId != null ? Math.abs(baseId) : 0;
-        return -((base + 1) * 1000 + occurrenceIndex + 1);
+    // Lazily expand the repeated events of a recurring series, natively iterated rules are only expanded
+    // as far as the stream is consumed. When a window is given only the occurrences overlapping
+    // [windowFrom, windowTo) are generated.
+    private Stream<EventOccurrence> repeatedEvents(Events event, EventSeries series, LocalDateTime windowFrom, LocalDateTime windowTo) {
+        if(windowFrom == null || event.getStartTime() == null || event.getEndTime() == null) {
+            return repeatedEventsStarting(event, series, null, windowTo);
+        }
+
+        // An occurrence overlaps the window if it starts before windowTo and ends after windowFrom,
+        // so look back by the event duration.
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        return repeatedEventsStarting(event, series, windowFrom.minus(duration), windowTo)
+                .filter(occurrence -> overlaps(occurrence.startTime(), occurrence.endTime(), windowFrom, windowTo));
     }
+
+    // Repeated events of a series starting in [rangeStart, rangeEnd] (unbounded when null)
+    private Stream<EventOccurrence> repeatedEventsStarting(Events event, EventSeries series, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        try{
+            return expander.repetitions(event, series, rangeStart, rangeEnd);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    // Full entity copy of a repeated event for the legacy listing, the id is set by numberRepetitions
+    private Events buildRepeatedEvent(Events event, EventOccurrence occurrence) {
+        Events repeatedEvent = new Events();
+
+        repeatedEvent.setTitle(event.getTitle());
+        repeatedEvent.setStartTime(occurrence.startTime());
+        repeatedEvent.setEndTime(occurrence.endTime());
+        repeatedEvent.setRecurrenceRule(event.getRecurrenceRule());
+        repeatedEvent.setCalendar(event.getCalendar());
+        repeatedEvent.setCreatedBy(event.getCreatedBy());
+        repeatedEvent.setCompleted(event.getCompleted());
+        repeatedEvent.setIsRecurring(true);
+        repeatedEvent.setRecurrenceEndDate(event.getRecurrenceEndDate());
+
+        return repeatedEvent;
+    }
+
+    // Repetitions have no row of their own, they are numbered -1, -2, ... by series id and then position over
+    // the whole listing. The ids never collide however many repetitions a series has, and a repetition keeps
+    // its id while the series before it keep their repetitions
+    private void numberRepetitions(List<List<Events>> groups) {
+        List<List<Events>> bySeries = new ArrayList<>(groups);
+        bySeries.sort(Comparator.comparing(group -> group.get(0).getId(),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        int next = -1;
+        for(List<Events> group: bySeries) {
+            for(int i = 1; i < group.size(); i++) {
+                group.get(i).setId(next--);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.eventure.calendar_app.event.service;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.model.Occurrences;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Events and occurrences used to get their ids from identity columns. On a database created before the switch to
+// sequences the new sequences start at 1, below the existing ids, so they are moved past the largest id once at
+// startup, before the web server accepts writes. A sequence that is already ahead is left alone.
+@Component
+public class IdSequenceAlignment implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAlignment.class);
+
+    private JdbcTemplate jdbcTemplate;
+    private Dialect dialect;
+
+    public IdSequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align("events", "events_seq", Events.ID_ALLOCATION_SIZE);
+        align("occurrences", "occurrences_seq", Occurrences.ID_ALLOCATION_SIZE);
+    }
+
+    private void align(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if(maxId == null) {
+            return;
+        }
+
+        // A pooled generator hands out the block of ids ending at the value it reads from the sequence
+        Long next = jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+        if(next != null && next - allocationSize >= maxId) {
+            return;
+        }
+
+        long restart = maxId + allocationSize + 1;
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restart);
+        log.info("Moved sequence {} to {} past the existing ids of {}", sequence, restart, table);
+    }
+}
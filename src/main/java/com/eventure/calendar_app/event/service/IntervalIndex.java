@@ -0,0 +1,128 @@
+package com.eventure.calendar_app.event.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Immutable index of half-open [start, end) intervals.
+// Intervals are kept sorted by start in flat arrays, read as an implicit balanced tree (the middle of every range
+// is its root) where every node holds the largest end of its subtree. Overlap and point queries take
+// O(log n) for an empty result and at most O(k log n) for k results, which are returned in start order.
+final class IntervalIndex<T> {
+
+    record Interval<T>(long start, long end, T value) {
+    }
+
+    private static final Comparator<Interval<?>> BY_START = Comparator.comparingLong(Interval::start);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final Object[] values;
+
+    private IntervalIndex(List<Interval<T>> sortedIntervals) {
+        int size = sortedIntervals.size();
+        this.starts = new long[size];
+        this.ends = new long[size];
+        this.maxEnds = new long[size];
+        this.values = new Object[size];
+
+        for(int i = 0; i < size; i++) {
+            Interval<T> interval = sortedIntervals.get(i);
+            starts[i] = interval.start();
+            ends[i] = interval.end();
+            values[i] = interval.value();
+        }
+        buildMaxEnds(0, size);
+    }
+
+    static <T> IntervalIndex<T> of(List<Interval<T>> intervals) {
+        return new IntervalIndex<>(sorted(intervals));
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    // Values of the intervals with start < to and end > from, in start order
+    List<T> overlapping(long from, long to) {
+        List<T> results = new ArrayList<>();
+        if(from < to) {
+            collect(0, values.length, from, to, results);
+        }
+        return results;
+    }
+
+    // Values of the intervals containing the instant
+    List<T> containing(long instant) {
+        return overlapping(instant, instant + 1);
+    }
+
+    // A new index without the values matching removed and with the added intervals, built in O(n + m log m)
+    IntervalIndex<T> replace(Predicate<? super T> removed, List<Interval<T>> added) {
+        List<Interval<T>> additions = sorted(added);
+        List<Interval<T>> merged = new ArrayList<>(values.length + additions.size());
+
+        int next = 0;
+        for(int i = 0; i < values.length; i++) {
+            T value = value(i);
+            if(removed.test(value)) {
+                continue;
+            }
+            while(next < additions.size() && additions.get(next).start() < starts[i]) {
+                merged.add(additions.get(next++));
+            }
+            merged.add(new Interval<>(starts[i], ends[i], value));
+        }
+        while(next < additions.size()) {
+            merged.add(additions.get(next++));
+        }
+
+        return new IntervalIndex<>(merged);
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if(lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long maxEnd = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    private void collect(int lo, int hi, long from, long to, List<T> results) {
+        if(lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+
+        // Nothing in this subtree ends after from
+        if(maxEnds[mid] <= from) {
+            return;
+        }
+
+        collect(lo, mid, from, to, results);
+
+        // The node and everything to its right start at or after to
+        if(starts[mid] >= to) {
+            return;
+        }
+        if(ends[mid] > from) {
+            results.add(value(mid));
+        }
+        collect(mid + 1, hi, from, to, results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int i) {
+        return (T) values[i];
+    }
+
+    private static <T> List<Interval<T>> sorted(List<Interval<T>> intervals) {
+        List<Interval<T>> sorted = new ArrayList<>(intervals);
+        sorted.sort(BY_START);
+        return sorted;
+    }
+}
@@ -0,0 +1,53 @@
+package com.eventure.calendar_app.event.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Merges iterators that are each sorted by the comparator into one sorted iterator.
+// Only the head of every source is held in memory, ties keep the order of the sources.
+final class MergingIterator<T> implements Iterator<T> {
+
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<Head<T>> heads;
+
+    MergingIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), this::compare);
+
+        for(int i = 0; i < sources.size(); i++) {
+            Iterator<? extends T> source = sources.get(i);
+            if(source.hasNext()) {
+                heads.add(new Head<>(source.next(), i, source));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if(head == null) {
+            throw new NoSuchElementException();
+        }
+
+        if(head.source.hasNext()) {
+            heads.add(new Head<>(head.source.next(), head.order, head.source));
+        }
+        return head.value;
+    }
+
+    private int compare(Head<T> a, Head<T> b) {
+        int result = comparator.compare(a.value, b.value);
+        return result != 0 ? result : Integer.compare(a.order, b.order);
+    }
+
+    private record Head<T>(T value, int order, Iterator<? extends T> source) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+
+// Background maintenance of the occurrence table.
+// - A daily job extends every series up to the rolling horizon and prunes the occurrences past the retention cut-off.
+//   It runs on every node, each series is extended under a row lock so the nodes take turns.
+// - Start the application with --rebuild-occurrences to rebuild the table from the events,
+//   or with --check-occurrences to compare it against on-the-fly expansion.
+@Component
+public class OccurrenceMaintenance implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OccurrenceMaintenance.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    private EventRepo eventRepo;
+    private OccurrenceStoreService occurrenceStore;
+
+    public OccurrenceMaintenance(EventRepo eventRepo, OccurrenceStoreService occurrenceStore) {
+        this.eventRepo = eventRepo;
+        this.occurrenceStore = occurrenceStore;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if(args.containsOption("rebuild-occurrences")) {
+            rebuildAll();
+        }
+        if(args.containsOption("check-occurrences")) {
+            checkAll();
+        }
+    }
+
+    @Scheduled(cron = "${app.occurrences.extend-cron:0 30 3 * * *}")
+    public void extendHorizon() {
+        LocalDateTime horizon = occurrenceStore.horizon();
+        int[] extended = {0};
+
+        forEachSeries(series -> {
+            try {
+                occurrenceStore.extend(series.getId(), horizon);
+                extended[0]++;
+            } catch (Exception ex) {
+                log.warn("Could not extend occurrences of event {}: {}", series.getId(), ex.getMessage());
+            }
+        });
+
+        int pruned = occurrenceStore.prune();
+        log.info("Extended occurrences of {} recurring events up to {}, pruned {} past occurrences", extended[0], horizon, pruned);
+    }
+
+    public int rebuildAll() {
+        int[] rebuilt = {0};
+
+        forEachSeries(series -> {
+            occurrenceStore.rebuild(series.getId());
+            rebuilt[0]++;
+        });
+
+        log.info("Rebuilt occurrences of {} recurring events", rebuilt[0]);
+        return rebuilt[0];
+    }
+
+    // Returns the number of series whose stored occurrences differ from the expansion
+    public int checkAll() {
+        int[] inconsistent = {0};
+
+        forEachSeries(series -> {
+            String difference = occurrenceStore.checkConsistency(series);
+            if(difference != null) {
+                inconsistent[0]++;
+                log.warn("Occurrences of event {} are inconsistent: {}", series.getId(), difference);
+            }
+        });
+
+        log.info("Occurrence check finished, {} inconsistent recurring events", inconsistent[0]);
+        return inconsistent[0];
+    }
+
+    private void forEachSeries(Consumer<Events> action) {
+        Integer afterId = Integer.MIN_VALUE;
+
+        while(true) {
+            List<Events> page = eventRepo.findRecurringSeriesAfter(afterId, PageRequest.of(0, PAGE_SIZE));
+
+            for(Events series: page) {
+                action.accept(series);
+            }
+
+            if(page.size() < PAGE_SIZE) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+}
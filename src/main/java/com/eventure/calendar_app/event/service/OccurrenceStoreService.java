@@ -0,0 +1,271 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.model.Occurrences;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+
+// Keeps the occurrence table in sync with the recurring events.
+// Every recurring series is materialized from the retention cut-off (or its start) up to min(series end, horizon),
+// the stored range of a series is tracked by Events.materializedUntil. Occurrences that ended before the cut-off are
+// pruned, windows reaching back past it are expanded on the fly.
+// Writes from requests materialize the entities of their own transaction, the dirty row is flushed (and locked) by the
+// occurrence delete before anything is stored. Background maintenance may hold a series read long before: it reloads
+// the row with a lock, so jobs on several nodes take turns, and writes nothing but materializedUntil.
+@Service
+public class OccurrenceStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(OccurrenceStoreService.class);
+
+    private OccurrenceRepo occurrenceRepo;
+    private EventRepo eventRepo;
+    private RecurrenceExpander expander;
+    private int horizonDays;
+    private int retentionDays;
+
+    public OccurrenceStoreService(OccurrenceRepo occurrenceRepo, EventRepo eventRepo, RecurrenceExpander expander,
+                                  @Value("${app.occurrences.horizon-days:365}") int horizonDays,
+                                  @Value("${app.occurrences.retention-days:90}") int retentionDays) {
+        this.occurrenceRepo = occurrenceRepo;
+        this.eventRepo = eventRepo;
+        this.expander = expander;
+        this.horizonDays = horizonDays;
+        this.retentionDays = retentionDays;
+    }
+
+    // Occurrences are materialized up to this instant (inclusive)
+    public LocalDateTime horizon() {
+        return LocalDate.now().plusDays(horizonDays).atStartOfDay();
+    }
+
+    // Occurrences that ended before this instant are not kept
+    public LocalDateTime retentionStart() {
+        return LocalDate.now().minusDays(retentionDays).atStartOfDay();
+    }
+
+    // True if every occurrence of the series overlapping [windowFrom, windowTo) is stored
+    public boolean covers(Events series, LocalDateTime windowFrom, LocalDateTime windowTo) {
+        LocalDateTime materializedUntil = series.getMaterializedUntil();
+
+        if(materializedUntil == null || series.getStartTime() == null) {
+            return false;
+        }
+        if(windowFrom.isBefore(retentionStart()) && series.getStartTime().isBefore(retentionStart())) {
+            return false;
+        }
+
+        return !materializedUntil.isBefore(windowTo) || !materializedUntil.isBefore(expander.seriesEnd(series));
+    }
+
+    // Stored occurrences of the given series that overlap [from, to)
+    public List<Occurrences> findInWindow(Collection<Integer> seriesIds, LocalDateTime from, LocalDateTime to) {
+        if(seriesIds.isEmpty()) {
+            return List.of();
+        }
+        return occurrenceRepo.findInWindow(seriesIds, from, to);
+    }
+
+    // Up to limit stored occurrences of the given series starting in (after the (afterStart, afterId) key, to),
+    // in (startTime, series id) order
+    public List<Occurrences> findAfter(Collection<Integer> seriesIds, LocalDateTime afterStart, int afterId,
+                                       LocalDateTime to, int limit) {
+        if(seriesIds.isEmpty()) {
+            return List.of();
+        }
+        return occurrenceRepo.findAfter(seriesIds, afterStart, afterId, to, PageRequest.of(0, limit));
+    }
+
+    // Replace the stored occurrences of an event after it was created or updated in the current transaction
+    @Transactional
+    public void materialize(Events series) {
+        if(series == null || series.getId() == null) {
+            return;
+        }
+
+        occurrenceRepo.deleteByEventId(series.getId());
+        series.setMaterializedUntil(store(series));
+    }
+
+    // Replace the stored occurrences of many updated events, with one delete statement for all of them.
+    // The delete runs before any of the new occurrences is stored, so it flushes the pending writes at most once.
+    @Transactional
+    public void materializeAll(Collection<Events> series) {
+        List<Integer> ids = series.stream().map(Events::getId).filter(Objects::nonNull).toList();
+        if(ids.isEmpty()) {
+            return;
+        }
+
+        occurrenceRepo.deleteByEventIds(ids);
+        for(Events event: series) {
+            if(event.getId() != null) {
+                event.setMaterializedUntil(store(event));
+            }
+        }
+    }
+
+    // Store the occurrences of an event created in the current transaction, which has none to replace.
+    // Skipping the delete also keeps it from flushing the pending inserts of a batch.
+    @Transactional
+    public void materializeNew(Events series) {
+        if(series == null || series.getId() == null) {
+            return;
+        }
+
+        series.setMaterializedUntil(store(series));
+    }
+
+    // Materialize the occurrences of a series between the stored range and the given horizon, in the background
+    @Transactional
+    public void extend(Integer seriesId, LocalDateTime horizon) {
+        Events series = eventRepo.findByIdForUpdate(seriesId).orElse(null);
+        if(series == null) {
+            return;
+        }
+
+        LocalDateTime materializedUntil = series.getMaterializedUntil();
+        if(materializedUntil == null) {
+            occurrenceRepo.deleteByEventId(seriesId);
+            writeMaterializedUntil(series, store(series));
+            return;
+        }
+
+        LocalDateTime until = min(horizon, expander.seriesEnd(series));
+        if(!materializedUntil.isBefore(until)) {
+            return;
+        }
+
+        // Indexes are positions in the series, so they continue after the stored ones even when those were pruned
+        LocalDateTime from = materializedUntil.isAfter(retainedFrom(series)) ? materializedUntil : retainedFrom(series);
+        store(series, expander.repetitions(series, EventSeries.of(series), from, until)
+                .filter(occurrence -> occurrence.startTime().isAfter(materializedUntil))
+                .toList());
+        writeMaterializedUntil(series, until);
+    }
+
+    // Replace the stored occurrences of a series, in the background
+    @Transactional
+    public void rebuild(Integer seriesId) {
+        Events series = eventRepo.findByIdForUpdate(seriesId).orElse(null);
+        if(series == null) {
+            return;
+        }
+
+        occurrenceRepo.deleteByEventId(seriesId);
+        writeMaterializedUntil(series, store(series));
+    }
+
+    // Remove the occurrences that ended before the retention cut-off, returns how many were removed
+    @Transactional
+    public int prune() {
+        return occurrenceRepo.deleteEndedBefore(retentionStart());
+    }
+
+    // Remove the stored occurrences of a deleted event
+    @Transactional
+    public void remove(Integer eventId) {
+        occurrenceRepo.deleteByEventId(eventId);
+    }
+
+    // Remove the stored occurrences of deleted events in one statement
+    @Transactional
+    public void removeAll(Collection<Integer> eventIds) {
+        if(!eventIds.isEmpty()) {
+            occurrenceRepo.deleteByEventIds(eventIds);
+        }
+    }
+
+    // Compare the stored occurrences of a series since the retention cut-off against on-the-fly expansion.
+    // Returns a description of the first difference, or null if the store is consistent.
+    @Transactional(readOnly = true)
+    public String checkConsistency(Events series) {
+        LocalDateTime retainedFrom = retainedFrom(series);
+        List<Occurrences> stored = occurrenceRepo.findByEvent_IdOrderByOccurrenceIndex(series.getId()).stream()
+                .filter(occurrence -> !occurrence.getStartTime().isBefore(retainedFrom))
+                .toList();
+        List<EventOccurrence> expected = series.getMaterializedUntil() == null
+                ? List.of()
+                : expander.repetitions(series, EventSeries.of(series), retainedFrom, series.getMaterializedUntil()).toList();
+
+        if(stored.size() != expected.size()) {
+            return "expected " + expected.size() + " occurrences but found " + stored.size();
+        }
+
+        for(int i = 0; i < expected.size(); i++) {
+            Occurrences occurrence = stored.get(i);
+            EventOccurrence repetition = expected.get(i);
+
+            if(!occurrence.getOccurrenceIndex().equals(repetition.occurrenceIndex())
+                    || !repetition.startTime().equals(occurrence.getStartTime())
+                    || !repetition.endTime().equals(occurrence.getEndTime())) {
+                return "occurrence " + repetition.occurrenceIndex() + " differs: expected " + repetition.startTime()
+                        + " but found " + occurrence.getStartTime();
+            }
+        }
+
+        return null;
+    }
+
+    // Store the occurrences of the series from the retention cut-off up to the horizon,
+    // returns the new materializedUntil (null when nothing is stored)
+    private LocalDateTime store(Events series) {
+        if(!expander.isRecurring(series) || series.getStartTime() == null || series.getEndTime() == null) {
+            return null;
+        }
+
+        LocalDateTime until = min(horizon(), expander.seriesEnd(series));
+        try {
+            store(series, expander.repetitions(series, EventSeries.of(series), retainedFrom(series), until).toList());
+            return until;
+        } catch (IllegalArgumentException ex) {
+            // Unparseable rules are left to the on-the-fly expansion
+            log.warn("Could not materialize occurrences of event {}: {}", series.getId(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private void store(Events series, List<EventOccurrence> repetitions) {
+        List<Occurrences> occurrences = new ArrayList<>(repetitions.size());
+        for(EventOccurrence repetition: repetitions) {
+            occurrences.add(new Occurrences(null, series, repetition.occurrenceIndex(), repetition.startTime(), repetition.endTime()));
+        }
+
+        occurrenceRepo.saveAll(occurrences);
+    }
+
+    // Earliest start of an occurrence that still ends after the retention cut-off
+    private LocalDateTime retainedFrom(Events series) {
+        return retentionStart().minus(Duration.between(series.getStartTime(), series.getEndTime()));
+    }
+
+    // Write only the materialized range of a series loaded with findByIdForUpdate, the rest of the row
+    // (and its modSeq) stays as the last write left it
+    private void writeMaterializedUntil(Events series, LocalDateTime until) {
+        int updated = series.getMaterializedUntil() == null
+                ? eventRepo.initMaterializedUntil(series.getId(), until)
+                : eventRepo.updateMaterializedUntil(series.getId(), series.getMaterializedUntil(), until);
+        if(updated == 0) {
+            throw new IllegalStateException("event " + series.getId() + " was materialized concurrently");
+        }
+    }
+
+    private LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
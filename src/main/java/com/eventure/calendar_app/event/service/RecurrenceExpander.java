@@ -0,0 +1,144 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.stereotype.Component;
+
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.model.Events;
+
+// Expands the RRULE of a recurring event into the start times of its repeated occurrences.
+// The original event (the seed) is never part of the result, it is returned as the event itself.
+@Component
+public class RecurrenceExpander {
+
+    // Series without a recurrenceEndDate are expanded up to 6 months after their start
+    private static final int DEFAULT_SERIES_MONTHS = 6;
+
+    private RecurrenceRuleCache ruleCache;
+
+    public RecurrenceExpander(RecurrenceRuleCache ruleCache) {
+        this.ruleCache = ruleCache;
+    }
+
+    public boolean isRecurring(Events event) {
+        return event.getRecurrenceRule() != null && !event.getRecurrenceRule().isEmpty();
+    }
+
+    // Last instant (inclusive) at which an occurrence of the series may start
+    public LocalDateTime seriesEnd(Events event) {
+        return event.getRecurrenceEndDate() != null
+                ? event.getRecurrenceEndDate()
+                : event.getStartTime().plusMonths(DEFAULT_SERIES_MONTHS);
+    }
+
+    // Lazily generate the repeated events of a series starting in [rangeStart, rangeEnd] (unbounded when null),
+    // numbered by their position in the series so a repeated event keeps its id in every window and page.
+    // Natively iterated rules are only expanded as far as the stream is consumed.
+    // Throws IllegalArgumentException when the recurrence rule cannot be parsed.
+    public Stream<EventOccurrence> repetitions(Events event, EventSeries series, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        if(event.getStartTime() == null || event.getEndTime() == null) {
+            return Stream.empty();
+        }
+
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        int[] occurrenceIndex = {rangeStart != null ? occurrencesBefore(event, rangeStart) : 0};
+
+        return occurrences(event, rangeStart, rangeEnd)
+                // Generate repeated events for each date in the recurrence set
+                .map(start -> EventOccurrence.repetition(series, occurrenceIndex[0]++, start, start.plus(duration)));
+    }
+
+    // Number of repeated occurrences starting before the given instant, which is the index
+    // (counted like occurrenceStarts from the series start) of the first occurrence at or after it.
+    // Throws IllegalArgumentException when the recurrence rule cannot be parsed.
+    public int occurrencesBefore(Events event, LocalDateTime instant) {
+        if(!isRecurring(event) || event.getStartTime() == null || event.getEndTime() == null
+                || !instant.isAfter(event.getStartTime())) {
+            return 0;
+        }
+
+        LocalDateTime seriesEnd = seriesEnd(event);
+        RecurrenceRule rule = ruleCache.get(event.getRecurrenceRule());
+
+        if(rule.isCompiled()) {
+            RecurrenceIterator occurrences = rule.iterator(event.getStartTime(), seriesEnd);
+            occurrences.seek(instant);
+
+            // The seed is counted by the iterator when it matches the rule, but it is not a repeated occurrence
+            RecurrenceIterator seed = rule.iterator(event.getStartTime(), event.getStartTime());
+            return occurrences.position() - (seed.hasNext() ? 1 : 0);
+        }
+
+        LocalDateTime periodEnd = instant.isAfter(seriesEnd) ? seriesEnd : instant;
+        return (int) occurrences(event, null, periodEnd).filter(start -> start.isBefore(instant)).count();
+    }
+
+    // Start times of the repeated occurrences in [rangeStart, rangeEnd], clipped to the series bounds.
+    // Throws IllegalArgumentException when the recurrence rule cannot be parsed.
+    public List<LocalDateTime> occurrenceStarts(Events event, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        return occurrences(event, rangeStart, rangeEnd).toList();
+    }
+
+    // Same as occurrenceStarts, but natively iterated rules are only expanded as far as the stream is consumed.
+    // Throws IllegalArgumentException when the recurrence rule cannot be parsed.
+    public Stream<LocalDateTime> occurrences(Events event, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        if(!isRecurring(event) || event.getStartTime() == null || event.getEndTime() == null) {
+            return Stream.empty();
+        }
+
+        LocalDateTime seriesEnd = seriesEnd(event);
+        LocalDateTime periodStart = rangeStart != null && rangeStart.isAfter(event.getStartTime()) ? rangeStart : event.getStartTime();
+        LocalDateTime periodEnd = rangeEnd != null && rangeEnd.isBefore(seriesEnd) ? rangeEnd : seriesEnd;
+
+        if(periodStart.isAfter(periodEnd)) {
+            return Stream.empty();
+        }
+
+        RecurrenceRule rule = ruleCache.get(event.getRecurrenceRule());
+
+        // Common rules are iterated natively from the first occurrence of the range, the rest is expanded by ical4j
+        if(rule.isCompiled()) {
+            RecurrenceIterator occurrences = rule.iterator(event.getStartTime(), periodEnd);
+            occurrences.seek(periodStart);
+
+            return StreamSupport.stream(new Spliterators.AbstractSpliterator<LocalDateTime>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super LocalDateTime> action) {
+                    while(occurrences.hasNext()) {
+                        LocalDateTime start = occurrences.nextDateTime();
+
+                        if(!start.isBefore(periodStart) && !start.equals(event.getStartTime())) {
+                            action.accept(start);
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }, false);
+        }
+
+        // Convert our startTime (LocalDateTime) to ZonedDateTime because ical4j 4.x uses Temporal types.
+        ZonedDateTime seed = event.getStartTime().atZone(ZoneId.systemDefault());
+
+        List<ZonedDateTime> recurrenceDates = rule.recur().getDates(seed,
+                periodStart.atZone(ZoneId.systemDefault()),
+                periodEnd.atZone(ZoneId.systemDefault()));
+
+        return recurrenceDates.stream()
+                .filter(recurrenceDate -> !recurrenceDate.isEqual(seed))
+                .map(ZonedDateTime::toLocalDateTime)
+                .filter(start -> !start.isBefore(periodStart) && !start.isAfter(periodEnd));
+    }
+}
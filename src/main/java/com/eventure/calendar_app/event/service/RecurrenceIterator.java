@@ -0,0 +1,360 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Lazily produces the occurrences of a compiled RecurrenceRule as local epoch seconds
+// (the local date-time interpreted as UTC). The state is a handful of primitives, so iterating
+// allocates nothing per occurrence. Results match ical4j Recur.getDates for the same seed and period.
+public final class RecurrenceIterator {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final RecurrenceRule rule;
+    private final long seedDay;
+    private final int secondOfDay;
+    private final long endEpochSecond;
+
+    // Seed calendar fields used by the period arithmetic
+    private final int seedWeekday;
+    private final long seedWeekStartDay;
+    private final long seedMonthIndex;
+    private final int seedMonth;
+    private final int seedDayOfMonth;
+    private final long seedYear;
+
+    private long period;
+    private long periodStartDay;
+    private long periodEndDay;
+    private long scanDay;
+
+    private int emitted;
+    private boolean done;
+    private boolean ready;
+    private long nextEpochSecond;
+
+    RecurrenceIterator(RecurrenceRule rule, long seedEpochSecond, long endEpochSecond) {
+        this.rule = rule;
+        this.seedDay = Math.floorDiv(seedEpochSecond, SECONDS_PER_DAY);
+        this.secondOfDay = (int) Math.floorMod(seedEpochSecond, SECONDS_PER_DAY);
+        this.endEpochSecond = Math.min(endEpochSecond, rule.untilEpochSecond);
+
+        long civil = civilFromDays(seedDay);
+        this.seedYear = civil >> 9;
+        this.seedMonth = (int) ((civil >> 5) & 15);
+        this.seedDayOfMonth = (int) (civil & 31);
+        this.seedMonthIndex = seedYear * 12 + seedMonth - 1;
+        this.seedWeekday = weekday(seedDay);
+        this.seedWeekStartDay = seedDay - Math.floorMod(seedWeekday - rule.weekStart, 7);
+
+        enterPeriod(0);
+    }
+
+    public boolean hasNext() {
+        if(!ready && !done) {
+            advance();
+        }
+        return !done;
+    }
+
+    // Next occurrence as local epoch seconds
+    public long next() {
+        if(!hasNext()) {
+            throw new IllegalStateException("no more occurrences");
+        }
+        ready = false;
+        return nextEpochSecond;
+    }
+
+    public LocalDateTime nextDateTime() {
+        return LocalDateTime.ofEpochSecond(next(), 0, ZoneOffset.UTC);
+    }
+
+    // Position the iterator on the first occurrence at or after the given local epoch second.
+    // The skipped occurrences are only counted (they still count towards COUNT): plain and BYDAY-only
+    // daily and weekly rules and plain monthly and yearly rules jump there arithmetically, the other
+    // BYxxx rules count the matches of every skipped period without producing them.
+    public void seek(long epochSecond) {
+        if(emitted > 0 || ready) {
+            throw new IllegalStateException("seek must be called before the first occurrence is read");
+        }
+
+        // Seeking past the end is the same as seeking just after it, nothing beyond the end is counted
+        long target = Math.min(epochSecond, endEpochSecond == Long.MAX_VALUE ? Long.MAX_VALUE : endEpochSecond + 1);
+        long targetDay = Math.ceilDiv(target - secondOfDay, SECONDS_PER_DAY);
+        if(done || targetDay <= seedDay) {
+            return;
+        }
+
+        // The period holding targetDay, or the first period after it when targetDay falls between two periods
+        long targetPeriod = periodOf(targetDay);
+        enterPeriod(targetPeriod);
+        if(periodEndDay <= targetDay) {
+            targetPeriod++;
+        }
+
+        long skipped = countBefore(targetPeriod);
+        enterPeriod(targetPeriod);
+
+        while(scanDay < periodEndDay && scanDay < targetDay) {
+            long day = scanDay++;
+            if(day >= seedDay && matches(day)) {
+                skipped++;
+            }
+        }
+
+        emitted = (int) Math.min(skipped, Integer.MAX_VALUE);
+    }
+
+    public void seek(LocalDateTime dateTime) {
+        seek(dateTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    // Number of occurrences returned or skipped so far, the index of the next occurrence when none is pending
+    public int position() {
+        return rule.count > 0 ? Math.min(emitted, rule.count) : emitted;
+    }
+
+    private void advance() {
+        if(rule.count > 0 && emitted >= rule.count) {
+            done = true;
+            return;
+        }
+
+        while(true) {
+            // Every candidate of this and the following periods is past the end
+            if(periodStartDay * SECONDS_PER_DAY + secondOfDay > endEpochSecond) {
+                done = true;
+                return;
+            }
+
+            while(scanDay < periodEndDay) {
+                long day = scanDay++;
+
+                if(day >= seedDay && matches(day)) {
+                    long candidate = day * SECONDS_PER_DAY + secondOfDay;
+
+                    if(candidate > endEpochSecond) {
+                        done = true;
+                        return;
+                    }
+
+                    emitted++;
+                    nextEpochSecond = candidate;
+                    ready = true;
+                    return;
+                }
+            }
+
+            enterPeriod(period + 1);
+        }
+    }
+
+    // Index of the last period starting at or before the given day
+    private long periodOf(long day) {
+        return switch (rule.frequency) {
+            case RecurrenceRule.DAILY -> Math.floorDiv(day - seedDay, rule.interval);
+            case RecurrenceRule.WEEKLY -> Math.floorDiv(day - seedWeekStartDay, 7L * rule.interval);
+            case RecurrenceRule.MONTHLY -> {
+                long civil = civilFromDays(day);
+                long monthIndex = (civil >> 9) * 12 + ((civil >> 5) & 15) - 1;
+                yield Math.floorDiv(monthIndex - seedMonthIndex, rule.interval);
+            }
+            default -> Math.floorDiv((civilFromDays(day) >> 9) - seedYear, rule.interval);
+        };
+    }
+
+    // Number of occurrences in the periods before the given one
+    private long countBefore(long targetPeriod) {
+        if(targetPeriod <= 0) {
+            return 0;
+        }
+
+        boolean byMonthDay = rule.byMonthDayMask != 0 || rule.byNegMonthDayMask != 0;
+
+        switch (rule.frequency) {
+            case RecurrenceRule.DAILY -> {
+                if(rule.byDayMask == 0 && !byMonthDay) {
+                    return targetPeriod;
+                }
+                if(!byMonthDay) {
+                    // The weekday of period k repeats every 7 periods
+                    long total = 0;
+                    long cycleTotal = 0;
+                    for(int k = 0; k < 7; k++) {
+                        int weekday = (int) Math.floorMod(seedWeekday + (long) k * rule.interval, 7);
+                        if((rule.byDayMask & (1 << weekday)) != 0) {
+                            cycleTotal++;
+                            if(k < targetPeriod % 7) {
+                                total++;
+                            }
+                        }
+                    }
+                    return targetPeriod / 7 * cycleTotal + total;
+                }
+            }
+            case RecurrenceRule.WEEKLY -> {
+                if(rule.byDayMask == 0 && !byMonthDay) {
+                    return targetPeriod;
+                }
+                if(!byMonthDay) {
+                    // Only the first week is cut short by the seed
+                    return countPeriod(0) + (targetPeriod - 1) * Integer.bitCount(rule.byDayMask);
+                }
+            }
+            case RecurrenceRule.MONTHLY -> {
+                if(rule.byDayMask == 0 && !byMonthDay && seedDayOfMonth <= 28) {
+                    return targetPeriod;
+                }
+            }
+            default -> {
+                if(seedMonth != 2 || seedDayOfMonth != 29) {
+                    return targetPeriod;
+                }
+            }
+        }
+
+        // Bounded search, stops early once COUNT is used up
+        long total = 0;
+        for(long k = 0; k < targetPeriod && (rule.count == 0 || total < rule.count); k++) {
+            total += countPeriod(k);
+        }
+        return total;
+    }
+
+    private long countPeriod(long k) {
+        enterPeriod(k);
+
+        long total = 0;
+        while(scanDay < periodEndDay) {
+            long day = scanDay++;
+            if(day >= seedDay && matches(day)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Set the day range [periodStartDay, periodEndDay) that holds the candidates of the given period
+    private void enterPeriod(long newPeriod) {
+        period = newPeriod;
+        long step = newPeriod * rule.interval;
+
+        switch (rule.frequency) {
+            case RecurrenceRule.DAILY -> {
+                periodStartDay = seedDay + step;
+                periodEndDay = periodStartDay + 1;
+            }
+            case RecurrenceRule.WEEKLY -> {
+                periodStartDay = seedWeekStartDay + 7 * step;
+                periodEndDay = periodStartDay + 7;
+            }
+            case RecurrenceRule.MONTHLY -> {
+                long monthIndex = seedMonthIndex + step;
+                long year = Math.floorDiv(monthIndex, 12);
+                int month = (int) Math.floorMod(monthIndex, 12) + 1;
+
+                periodStartDay = daysFromCivil(year, month, 1);
+                periodEndDay = periodStartDay + monthLength(year, month);
+            }
+            default -> {
+                long year = seedYear + step;
+
+                // Occurrences that fall on a date missing from that year (29 February) are skipped
+                periodStartDay = daysFromCivil(year, 1, 1);
+                if(seedDayOfMonth <= monthLength(year, seedMonth)) {
+                    long day = daysFromCivil(year, seedMonth, seedDayOfMonth);
+                    scanDay = day;
+                    periodEndDay = day + 1;
+                    return;
+                }
+                periodEndDay = periodStartDay;
+            }
+        }
+
+        scanDay = periodStartDay;
+    }
+
+    private boolean matches(long day) {
+        switch (rule.frequency) {
+            case RecurrenceRule.DAILY -> {
+                return matchesByDay(day) && matchesByMonthDay(day);
+            }
+            case RecurrenceRule.WEEKLY -> {
+                boolean dayMatches = rule.byDayMask != 0 ? matchesByDay(day) : weekday(day) == seedWeekday;
+                return dayMatches && matchesByMonthDay(day);
+            }
+            case RecurrenceRule.MONTHLY -> {
+                int dayOfMonth = (int) (day - periodStartDay) + 1;
+
+                if(rule.byDayMask == 0 && rule.byMonthDayMask == 0 && rule.byNegMonthDayMask == 0) {
+                    return dayOfMonth == seedDayOfMonth;
+                }
+                return matchesByDay(day) && monthDayMatches(dayOfMonth, (int) (periodEndDay - periodStartDay));
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    private boolean matchesByDay(long day) {
+        return rule.byDayMask == 0 || (rule.byDayMask & (1 << weekday(day))) != 0;
+    }
+
+    private boolean matchesByMonthDay(long day) {
+        if(rule.byMonthDayMask == 0 && rule.byNegMonthDayMask == 0) {
+            return true;
+        }
+
+        long civil = civilFromDays(day);
+        long year = civil >> 9;
+        int month = (int) ((civil >> 5) & 15);
+        return monthDayMatches((int) (civil & 31), monthLength(year, month));
+    }
+
+    private boolean monthDayMatches(int dayOfMonth, int monthLength) {
+        if(rule.byMonthDayMask == 0 && rule.byNegMonthDayMask == 0) {
+            return true;
+        }
+        return (rule.byMonthDayMask & (1L << dayOfMonth)) != 0
+                || (rule.byNegMonthDayMask & (1L << (monthLength - dayOfMonth + 1))) != 0;
+    }
+
+    // 0 = Monday ... 6 = Sunday, epoch day 0 was a Thursday
+    static int weekday(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7);
+    }
+
+    static int monthLength(long year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's days_from_civil)
+    static long daysFromCivil(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Inverse of daysFromCivil, packed as (year << 9) | (month << 5) | day to avoid allocating
+    static long civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | day;
+    }
+}
@@ -0,0 +1,206 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.WeekFields;
+import java.util.Locale;
+
+import net.fortuna.ical4j.model.Recur;
+
+// A parsed recurrence rule.
+// The common RRULE shapes (FREQ=DAILY/WEEKLY/MONTHLY/YEARLY with INTERVAL, COUNT, UNTIL, plain BYDAY,
+// BYMONTHDAY and WKST) are compiled for RecurrenceIterator, everything else is left to ical4j.
+public final class RecurrenceRule {
+
+    static final int DAILY = 0;
+    static final int WEEKLY = 1;
+    static final int MONTHLY = 2;
+    static final int YEARLY = 3;
+
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final Recur<ZonedDateTime> recur;
+    private final boolean compiled;
+
+    final int frequency;
+    final int interval;
+    final int count;                // 0 when unlimited
+    final long untilEpochSecond;    // local time as UTC epoch seconds, Long.MAX_VALUE when unlimited
+    final int byDayMask;            // bit (0 = Monday ... 6 = Sunday) for every BYDAY entry, 0 when absent
+    final long byMonthDayMask;      // bit n for BYMONTHDAY=n, 0 when absent
+    final long byNegMonthDayMask;   // bit n for BYMONTHDAY=-n
+    final int weekStart;            // 0 = Monday ... 6 = Sunday
+
+    private RecurrenceRule(Recur<ZonedDateTime> recur, boolean compiled, int frequency, int interval, int count,
+                           long untilEpochSecond, int byDayMask, long byMonthDayMask, long byNegMonthDayMask, int weekStart) {
+        this.recur = recur;
+        this.compiled = compiled;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.untilEpochSecond = untilEpochSecond;
+        this.byDayMask = byDayMask;
+        this.byMonthDayMask = byMonthDayMask;
+        this.byNegMonthDayMask = byNegMonthDayMask;
+        this.weekStart = weekStart;
+    }
+
+    // Parse an RRULE string. A zoned UNTIL (suffix Z) is converted to local time in the given zone.
+    // Throws IllegalArgumentException when ical4j cannot parse the rule.
+    public static RecurrenceRule parse(String rule, ZoneId zone) {
+        Recur<ZonedDateTime> recur;
+        try {
+            recur = new Recur<>(rule);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("invalid recurrence rule: " + rule, ex);
+        }
+
+        RecurrenceRule compiledRule = compile(recur, rule, zone);
+        return compiledRule != null ? compiledRule : new RecurrenceRule(recur, false, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    // The ical4j form of the rule, shared between threads and must not be modified
+    public Recur<ZonedDateTime> recur() {
+        return recur;
+    }
+
+    // True if occurrences can be produced by RecurrenceIterator instead of ical4j
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    // Lazily iterate the occurrences from seed up to end (inclusive)
+    public RecurrenceIterator iterator(LocalDateTime seed, LocalDateTime end) {
+        if(!compiled) {
+            throw new IllegalStateException("recurrence rule is not supported by the native engine");
+        }
+        return new RecurrenceIterator(this, seed.toEpochSecond(ZoneOffset.UTC), end.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private static RecurrenceRule compile(Recur<ZonedDateTime> recur, String rule, ZoneId zone) {
+        int frequency = -1;
+        int interval = 1;
+        int count = 0;
+        long until = Long.MAX_VALUE;
+        int byDayMask = 0;
+        long byMonthDayMask = 0;
+        long byNegMonthDayMask = 0;
+        int weekStart = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek().getValue() - 1;
+
+        String value = rule.trim().toUpperCase(Locale.ROOT);
+        if(value.startsWith("RRULE:")) {
+            value = value.substring("RRULE:".length());
+        }
+
+        try {
+            for(String part: value.split(";")) {
+                if(part.isBlank()) {
+                    continue;
+                }
+
+                int separator = part.indexOf('=');
+                if(separator < 0) {
+                    return null;
+                }
+                String key = part.substring(0, separator).trim();
+                String val = part.substring(separator + 1).trim();
+
+                switch (key) {
+                    case "FREQ" -> {
+                        switch (val) {
+                            case "DAILY" -> frequency = DAILY;
+                            case "WEEKLY" -> frequency = WEEKLY;
+                            case "MONTHLY" -> frequency = MONTHLY;
+                            case "YEARLY" -> frequency = YEARLY;
+                            default -> {
+                                return null;
+                            }
+                        }
+                    }
+                    case "INTERVAL" -> {
+                        interval = Integer.parseInt(val);
+                        if(interval < 1) {
+                            return null;
+                        }
+                    }
+                    // ical4j treats COUNT=0 as no limit
+                    case "COUNT" -> count = Math.max(0, Integer.parseInt(val));
+                    case "UNTIL" -> {
+                        // Date-only UNTIL values are left to ical4j
+                        if(val.endsWith("Z")) {
+                            LocalDateTime utc = LocalDateTime.parse(val.substring(0, val.length() - 1), UNTIL_FORMAT);
+                            until = utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(zone).toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+                        } else {
+                            until = LocalDateTime.parse(val, UNTIL_FORMAT).toEpochSecond(ZoneOffset.UTC);
+                        }
+                    }
+                    case "BYDAY" -> {
+                        for(String day: val.split(",")) {
+                            int dayOfWeek = dayOfWeek(day.trim());
+                            if(dayOfWeek < 0 || (byDayMask & (1 << dayOfWeek)) != 0) {
+                                return null;
+                            }
+                            byDayMask |= 1 << dayOfWeek;
+                        }
+                    }
+                    case "BYMONTHDAY" -> {
+                        for(String day: val.split(",")) {
+                            int monthDay = Integer.parseInt(day.trim());
+                            if(monthDay >= 1 && monthDay <= 31 && (byMonthDayMask & (1L << monthDay)) == 0) {
+                                byMonthDayMask |= 1L << monthDay;
+                            } else if(monthDay <= -1 && monthDay >= -31 && (byNegMonthDayMask & (1L << -monthDay)) == 0) {
+                                byNegMonthDayMask |= 1L << -monthDay;
+                            } else {
+                                return null;
+                            }
+                        }
+                    }
+                    case "WKST" -> {
+                        weekStart = dayOfWeek(val);
+                        if(weekStart < 0) {
+                            return null;
+                        }
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            return null;
+        }
+
+        // Yearly rules are only compiled without BYxxx parts. ical4j filters weekly rules by BYMONTHDAY
+        // before expanding BYDAY, only applies negative month days to monthly rules and repeats a date
+        // matched by more than one BYMONTHDAY value (repeated values or a positive and a negative day),
+        // those combinations are left to ical4j as well.
+        boolean hasMonthDays = byMonthDayMask != 0 || byNegMonthDayMask != 0;
+        if(frequency < 0
+                || (frequency == YEARLY && (byDayMask != 0 || hasMonthDays))
+                || (frequency == WEEKLY && byDayMask != 0 && hasMonthDays)
+                || (byNegMonthDayMask != 0 && (frequency != MONTHLY || byMonthDayMask != 0))) {
+            return null;
+        }
+
+        return new RecurrenceRule(recur, true, frequency, interval, count, until, byDayMask, byMonthDayMask, byNegMonthDayMask, weekStart);
+    }
+
+    // 0 = Monday ... 6 = Sunday, -1 for anything else (including ordinal days like 2MO)
+    private static int dayOfWeek(String day) {
+        return switch (day) {
+            case "MO" -> DayOfWeek.MONDAY.ordinal();
+            case "TU" -> DayOfWeek.TUESDAY.ordinal();
+            case "WE" -> DayOfWeek.WEDNESDAY.ordinal();
+            case "TH" -> DayOfWeek.THURSDAY.ordinal();
+            case "FR" -> DayOfWeek.FRIDAY.ordinal();
+            case "SA" -> DayOfWeek.SATURDAY.ordinal();
+            case "SU" -> DayOfWeek.SUNDAY.ordinal();
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.eventure.calendar_app.event.service;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Bounded cache of parsed recurrence rules shared by all requests.
+// Rules are keyed by their normalized form so "FREQ=WEEKLY;BYDAY=MO" and "byday=MO;freq=weekly" share an entry.
+// Hit, miss and eviction counts are published as the "recurrence.rules" cache metrics.
+@Component
+public class RecurrenceRuleCache {
+
+    private Cache<String, RecurrenceRule> cache;
+
+    public RecurrenceRuleCache(@Value("${app.recurrence.rule-cache.max-size:10000}") long maxSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "recurrence.rules");
+    }
+
+    // Parsed rule for the given RRULE string, shared between requests.
+    // Throws IllegalArgumentException when the rule cannot be parsed.
+    public RecurrenceRule get(String rule) {
+        return cache.get(normalize(rule), key -> RecurrenceRule.parse(key, ZoneId.systemDefault()));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // Upper-case the rule, drop an "RRULE:" prefix and sort its parts
+    static String normalize(String rule) {
+        String value = rule.trim().toUpperCase(Locale.ROOT);
+
+        if(value.startsWith("RRULE:")) {
+            value = value.substring("RRULE:".length());
+        }
+
+        return Arrays.stream(value.split(";"))
+                .map(String::trim)
+                .filter(part -> !part.isEmpty())
+                .sorted()
+                .collect(Collectors.joining(";"));
+    }
+}
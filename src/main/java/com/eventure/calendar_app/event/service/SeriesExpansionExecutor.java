@@ -0,0 +1,102 @@
+package com.eventure.calendar_app.event.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.eventure.calendar_app.event.model.Events;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+// Runs the expansion of many recurring series on a bounded fork-join pool.
+// Requests with fewer series than the threshold (or all requests when disabled) stay on the calling thread.
+// Expansion time is published as "recurrence.expansion" tagged with the mode, the number of series per request
+// as "recurrence.expansion.series".
+@Component
+public class SeriesExpansionExecutor {
+
+    // Every worker gets a few chunks so a slow series does not hold up the others
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private boolean enabled;
+    private int threshold;
+    private ForkJoinPool pool;
+
+    private Timer sequentialTimer;
+    private Timer parallelTimer;
+    private DistributionSummary seriesPerRequest;
+
+    public SeriesExpansionExecutor(@Value("${app.recurrence.parallel.enabled:true}") boolean enabled,
+                                   @Value("${app.recurrence.parallel.threshold:64}") int threshold,
+                                   @Value("${app.recurrence.parallel.max-threads:0}") int maxThreads,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.threshold = Math.max(1, threshold);
+        this.pool = new ForkJoinPool(maxThreads > 0 ? maxThreads : Runtime.getRuntime().availableProcessors());
+
+        this.sequentialTimer = Timer.builder("recurrence.expansion").tag("mode", "sequential").register(meterRegistry);
+        this.parallelTimer = Timer.builder("recurrence.expansion").tag("mode", "parallel").register(meterRegistry);
+        this.seriesPerRequest = DistributionSummary.builder("recurrence.expansion.series").register(meterRegistry);
+        meterRegistry.gauge("recurrence.expansion.active-threads", pool, ForkJoinPool::getActiveThreadCount);
+    }
+
+    // Expand every series with the given function, the results are concatenated in the order of the series.
+    // The function must not touch lazy associations, it may run outside the caller's persistence context.
+    public <T> List<T> expandAll(List<Events> series, Function<Events, List<T>> expansion) {
+        seriesPerRequest.record(series.size());
+
+        if(!enabled || series.size() < threshold) {
+            return sequentialTimer.record(() -> expandChunk(series, expansion));
+        }
+        return parallelTimer.record(() -> expandParallel(series, expansion));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private <T> List<T> expandParallel(List<Events> series, Function<Events, List<T>> expansion) {
+        int chunkSize = Math.max(1, Math.ceilDiv(series.size(), pool.getParallelism() * CHUNKS_PER_THREAD));
+        List<Callable<List<T>>> chunks = new ArrayList<>();
+
+        for(int from = 0; from < series.size(); from += chunkSize) {
+            List<Events> chunk = series.subList(from, Math.min(from + chunkSize, series.size()));
+            chunks.add(() -> expandChunk(chunk, expansion));
+        }
+
+        List<T> results = new ArrayList<>();
+        for(Future<List<T>> future: pool.invokeAll(chunks)) {
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("recurrence expansion interrupted", ex);
+            } catch (ExecutionException ex) {
+                if(ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException("recurrence expansion failed", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    private <T> List<T> expandChunk(List<Events> series, Function<Events, List<T>> expansion) {
+        List<T> results = new ArrayList<>();
+        for(Events event: series) {
+            results.addAll(expansion.apply(event));
+        }
+        return results;
+    }
+}
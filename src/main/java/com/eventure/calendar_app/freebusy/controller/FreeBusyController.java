@@ -0,0 +1,80 @@
+package com.eventure.calendar_app.freebusy.controller;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.eventure.calendar_app.freebusy.model.BusyBlock;
+import com.eventure.calendar_app.freebusy.model.FreeSlot;
+import com.eventure.calendar_app.freebusy.service.FreeBusyService;
+import com.eventure.calendar_app.freebusy.service.SlotFinderService;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/api")
+public class FreeBusyController {
+
+    private static final int DEFAULT_SLOT_COUNT = 5;
+
+    private FreeBusyService service;
+    private SlotFinderService slotFinder;
+
+    public FreeBusyController(FreeBusyService service, SlotFinderService slotFinder) {
+        this.service = service;
+        this.slotFinder = slotFinder;
+    }
+
+    // Busy blocks of the logged in user across all calendars in [from, to), granularity in minutes (default 15)
+    @GetMapping("/freebusy")
+    public ResponseEntity<?> getFreeBusy(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "15") int granularity,
+            Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            List<BusyBlock> busy = service.getBusy(username, from, to, granularity);
+            return ResponseEntity.ok(busy);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    // Earliest ranges of at least duration minutes in [from, to) in which the logged in user and all attendees are free.
+    // Answers 400 naming the attendees that are not users, instead of treating them as always free.
+    @GetMapping("/freebusy/slots")
+    public ResponseEntity<?> findSlots(
+            @RequestParam(defaultValue = "") List<String> attendees,
+            @RequestParam int duration,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            Principal principal) {
+        try {
+            List<String> usernames = new ArrayList<>(attendees);
+            if(principal != null) {
+                usernames.add(principal.getName());
+            }
+            List<FreeSlot> slots = slotFinder.findSlots(usernames, Duration.ofMinutes(duration), from, to,
+                    limit != null ? limit : DEFAULT_SLOT_COUNT);
+            return ResponseEntity.ok(slots);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+}
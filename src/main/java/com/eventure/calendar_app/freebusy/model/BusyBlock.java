@@ -0,0 +1,7 @@
+package com.eventure.calendar_app.freebusy.model;
+
+import java.time.LocalDateTime;
+
+// A maximal run of busy time slots, [start, end)
+public record BusyBlock(LocalDateTime start, LocalDateTime end) {
+}
@@ -0,0 +1,7 @@
+package com.eventure.calendar_app.freebusy.model;
+
+import java.time.LocalDateTime;
+
+// A time range [start, end) in which every attendee is free, at least as long as the requested duration
+public record FreeSlot(LocalDateTime start, LocalDateTime end) {
+}
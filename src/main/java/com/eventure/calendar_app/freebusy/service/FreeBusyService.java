@@ -0,0 +1,198 @@
+package com.eventure.calendar_app.freebusy.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.service.EventIndexService;
+import com.eventure.calendar_app.freebusy.model.BusyBlock;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Free/busy time of a user across all of their calendars.
+// Every day is reduced to a bitmap of 5 minute slots (288 bits, five longs) built from the interval index,
+// the bitmaps are cached per user, change version and day. The days of a request missing from the cache are built
+// from one index query over their range. Every request reads the version of the user from the database once, so
+// after a write committed on any node the bitmaps cached before it are never read again and age out.
+// Hits, misses and evictions are published as the "freebusy.days" cache metrics.
+@Service
+public class FreeBusyService {
+
+    public static final int SLOT_MINUTES = 5;
+    // Longest time window of a free/busy or slot finder request
+    public static final int MAX_DAYS = 366;
+
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private EventIndexService indexService;
+    private CalendarVersionService versions;
+    private Cache<DayKey, long[]> days;
+
+    public FreeBusyService(EventIndexService indexService, CalendarVersionService versions,
+                           @Value("${app.freebusy.max-days:100000}") long maxDays,
+                           MeterRegistry meterRegistry) {
+        this.indexService = indexService;
+        this.versions = versions;
+        this.days = Caffeine.newBuilder()
+                .maximumSize(maxDays)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, days, "freebusy.days");
+    }
+
+    // Busy blocks of the user in [from, to) on a grid of granularity minutes.
+    // A grid slot is busy when any event overlaps it, blocks are clipped to [from, to). Unknown users are never busy.
+    public List<BusyBlock> getBusy(String username, LocalDateTime from, LocalDateTime to, int granularity) {
+        if(username == null) {
+            throw new IllegalArgumentException("user required");
+        }
+        checkWindow(from, to);
+        if(granularity < SLOT_MINUTES || granularity % SLOT_MINUTES != 0 || (24 * 60) % granularity != 0) {
+            throw new IllegalArgumentException("granularity must be a multiple of " + SLOT_MINUTES + " minutes dividing a day");
+        }
+
+        LocalDate firstDay = from.toLocalDate();
+        LocalDate lastDay = to.minusNanos(1).toLocalDate();
+
+        int slotsPerCell = granularity / SLOT_MINUTES;
+        Duration cell = Duration.ofMinutes(granularity);
+        ChangeVersion version = versions.userVersion(username);
+        if(version == null) {
+            return List.of();
+        }
+
+        List<DayKey> keys = firstDay.datesUntil(lastDay.plusDays(1))
+                .map(day -> new DayKey(username, version.version(), day))
+                .toList();
+        Map<DayKey, long[]> bitmaps = days.getAll(keys, missing -> bitmaps(username, version, missing));
+
+        List<BusyBlock> blocks = new ArrayList<>();
+        LocalDateTime blockStart = null;
+        LocalDateTime blockEnd = null;
+
+        for(DayKey key: keys) {
+            LocalDate day = key.day();
+            BitSet slots = BitSet.valueOf(bitmaps.get(key));
+            LocalDateTime dayStart = day.atStartOfDay();
+
+            for(int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot)) {
+                int cellStart = slot - slot % slotsPerCell;
+                LocalDateTime start = dayStart.plusMinutes((long) cellStart * SLOT_MINUTES);
+                LocalDateTime end = start.plus(cell);
+                slot = cellStart + slotsPerCell;
+
+                if(!end.isAfter(from) || !start.isBefore(to)) {
+                    continue;
+                }
+                if(start.isBefore(from)) {
+                    start = from;
+                }
+                if(end.isAfter(to)) {
+                    end = to;
+                }
+
+                // Extend the open block when the cell follows it, across midnight as well
+                if(blockEnd != null && !start.isAfter(blockEnd)) {
+                    blockEnd = end;
+                } else {
+                    if(blockStart != null) {
+                        blocks.add(new BusyBlock(blockStart, blockEnd));
+                    }
+                    blockStart = start;
+                    blockEnd = end;
+                }
+            }
+        }
+
+        if(blockStart != null) {
+            blocks.add(new BusyBlock(blockStart, blockEnd));
+        }
+        return blocks;
+    }
+
+    // The time window [from, to) of a request, not empty and at most MAX_DAYS days long
+    public static void checkWindow(LocalDateTime from, LocalDateTime to) {
+        if(from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("invalid time window: from must be before to");
+        }
+        if(to.isAfter(from.plusDays(MAX_DAYS))) {
+            throw new IllegalArgumentException("time window must not exceed " + MAX_DAYS + " days");
+        }
+    }
+
+    // Bitmaps of the given days, built from one index query from the first to the end of the last of them
+    private Map<DayKey, long[]> bitmaps(String username, ChangeVersion version, Set<? extends DayKey> missing) {
+        Map<LocalDate, BitSet> slotsByDay = new HashMap<>();
+        for(DayKey key: missing) {
+            slotsByDay.put(key.day(), new BitSet(SLOTS_PER_DAY));
+        }
+        LocalDate firstDay = Collections.min(slotsByDay.keySet());
+        LocalDate lastDay = Collections.max(slotsByDay.keySet());
+
+        for(EventOccurrence occurrence: indexService.findOverlapping(username, version,
+                firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay())) {
+            LocalDate day = occurrence.startTime().toLocalDate().isBefore(firstDay) ? firstDay : occurrence.startTime().toLocalDate();
+            for(; !day.isAfter(lastDay) && day.atStartOfDay().isBefore(effectiveEnd(occurrence)); day = day.plusDays(1)) {
+                BitSet slots = slotsByDay.get(day);
+                if(slots != null && overlapsDay(occurrence, day)) {
+                    mark(slots, occurrence, day);
+                }
+            }
+        }
+
+        Map<DayKey, long[]> bitmaps = new HashMap<>();
+        for(DayKey key: missing) {
+            bitmaps.put(key, slotsByDay.get(key.day()).toLongArray());
+        }
+        return bitmaps;
+    }
+
+    private void mark(BitSet slots, EventOccurrence occurrence, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        LocalDateTime start = occurrence.startTime().isBefore(dayStart) ? dayStart : occurrence.startTime();
+        LocalDateTime end = occurrence.endTime() == null ? start
+                : occurrence.endTime().isAfter(dayEnd) ? dayEnd : occurrence.endTime();
+
+        int first = (int) (Duration.between(dayStart, start).toMinutes() / SLOT_MINUTES);
+        int last = (int) Math.ceilDiv(Duration.between(dayStart, end).toSeconds(), SLOT_MINUTES * 60L);
+        // An event without an end occupies the slot it starts in
+        slots.set(first, Math.min(SLOTS_PER_DAY, Math.max(last, first + 1)));
+    }
+
+    // Same rule as the index: an event without an end only overlaps the day it starts in
+    private boolean overlapsDay(EventOccurrence occurrence, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime start = occurrence.startTime();
+        LocalDateTime end = occurrence.endTime();
+        return start.isBefore(dayStart.plusDays(1))
+                && ((end != null ? end : start).isAfter(dayStart) || (end == null && !start.isBefore(dayStart)));
+    }
+
+    // The occurrence does not reach into days starting at or after this instant
+    private LocalDateTime effectiveEnd(EventOccurrence occurrence) {
+        return occurrence.endTime() != null && occurrence.endTime().isAfter(occurrence.startTime())
+                ? occurrence.endTime()
+                : occurrence.startTime().plusNanos(1);
+    }
+
+    private record DayKey(String username, long version, LocalDate day) {
+    }
+}
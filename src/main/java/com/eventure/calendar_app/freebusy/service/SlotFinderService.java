@@ -0,0 +1,132 @@
+package com.eventure.calendar_app.freebusy.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.service.EventIndexService;
+import com.eventure.calendar_app.freebusy.model.FreeSlot;
+import com.eventure.calendar_app.user.repo.UserRepo;
+
+// Finds the earliest time ranges in which all attendees are free.
+// The busy events of every attendee come from the interval index (stored events plus recurrence expansion),
+// already sorted by start. They are swept in one k-way merge tracking the end of the current busy run,
+// O(n log k) for n events of k attendees. The window is searched one chunk at a time, so finding
+// early slots does not expand months of recurring meetings. Unknown attendees are rejected up front (with one
+// query for all of them), they have no events and would otherwise look free all the time. The error does not say
+// which of them are unknown, so that it cannot be used to find out which usernames exist.
+@Service
+public class SlotFinderService {
+
+    public static final int MAX_ATTENDEES = 100;
+    public static final int MAX_SLOTS = 100;
+
+    private static final Duration CHUNK = Duration.ofDays(7);
+
+    private static final Comparator<Attendee> BY_NEXT_START = Comparator.comparing(attendee -> attendee.current().startTime());
+
+    private EventIndexService indexService;
+    private UserRepo userRepo;
+
+    public SlotFinderService(EventIndexService indexService, UserRepo userRepo) {
+        this.indexService = indexService;
+        this.userRepo = userRepo;
+    }
+
+    // Up to limit free ranges of at least duration in [from, to), earliest first
+    public List<FreeSlot> findSlots(Collection<String> usernames, Duration duration, LocalDateTime from, LocalDateTime to, int limit) {
+        Set<String> attendees = usernames == null ? Set.of() : new LinkedHashSet<>(usernames);
+        if(attendees.isEmpty() || attendees.size() > MAX_ATTENDEES || attendees.contains(null)) {
+            throw new IllegalArgumentException("between 1 and " + MAX_ATTENDEES + " attendees are required");
+        }
+        if(duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration must be positive");
+        }
+        FreeBusyService.checkWindow(from, to);
+        if(limit < 1 || limit > MAX_SLOTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SLOTS);
+        }
+        if(!userRepo.findExistingUsernames(attendees).containsAll(attendees)) {
+            throw new IllegalArgumentException("unknown attendees");
+        }
+
+        List<FreeSlot> slots = new ArrayList<>();
+        // Start of the free range being scanned, it stays open across chunk boundaries
+        LocalDateTime freeFrom = from;
+
+        for(LocalDateTime chunkStart = from; chunkStart.isBefore(to) && slots.size() < limit; chunkStart = chunkStart.plus(CHUNK)) {
+            LocalDateTime chunkEnd = chunkStart.plus(CHUNK).isBefore(to) ? chunkStart.plus(CHUNK) : to;
+
+            PriorityQueue<Attendee> heads = new PriorityQueue<>(attendees.size(), BY_NEXT_START);
+            for(String username: attendees) {
+                Attendee attendee = new Attendee(indexService.findOverlapping(username, chunkStart, chunkEnd));
+                if(attendee.advance()) {
+                    heads.add(attendee);
+                }
+            }
+
+            while(!heads.isEmpty() && slots.size() < limit) {
+                Attendee head = heads.poll();
+                EventOccurrence busy = head.current();
+
+                if(busy.startTime().isAfter(freeFrom)) {
+                    addIfLongEnough(slots, freeFrom, busy.startTime(), duration);
+                }
+                if(busy.endTime().isAfter(freeFrom)) {
+                    freeFrom = busy.endTime();
+                }
+
+                if(head.advance()) {
+                    heads.add(head);
+                }
+            }
+        }
+
+        if(slots.size() < limit && freeFrom.isBefore(to)) {
+            addIfLongEnough(slots, freeFrom, to, duration);
+        }
+        return slots;
+    }
+
+    private void addIfLongEnough(List<FreeSlot> slots, LocalDateTime start, LocalDateTime end, Duration duration) {
+        if(!start.plus(duration).isAfter(end)) {
+            slots.add(new FreeSlot(start, end));
+        }
+    }
+
+    // The busy events of one attendee in start order, events without an end do not block any time
+    private static final class Attendee {
+
+        private final List<EventOccurrence> events;
+        private int next;
+        private EventOccurrence current;
+
+        Attendee(List<EventOccurrence> events) {
+            this.events = events;
+        }
+
+        EventOccurrence current() {
+            return current;
+        }
+
+        boolean advance() {
+            while(next < events.size()) {
+                EventOccurrence event = events.get(next++);
+                if(event.endTime() != null && event.endTime().isAfter(event.startTime())) {
+                    current = event;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.eventure.calendar_app.ical.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.security.Principal;
+import java.util.NoSuchElementException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.eventure.calendar_app.ical.model.IcsFeed;
+import com.eventure.calendar_app.ical.model.ImportSummary;
+import com.eventure.calendar_app.ical.service.IcsExportService;
+import com.eventure.calendar_app.ical.service.IcsImportService;
+
+import net.fortuna.ical4j.data.ParserException;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/api")
+public class IcsController {
+
+    private static final String TEXT_CALENDAR = "text/calendar";
+
+    private IcsImportService importService;
+    private IcsExportService exportService;
+
+    public IcsController(IcsImportService importService, IcsExportService exportService) {
+        this.importService = importService;
+        this.exportService = exportService;
+    }
+
+    // Subscription feed of a calendar of the logged in user.
+    // Answers 304 Not Modified when the ETag (If-None-Match) or Last-Modified (If-Modified-Since) sent by a
+    // polling client still matches, without reading any event.
+    @GetMapping("/calendars/{id}.ics")
+    public ResponseEntity<StreamingResponseBody> exportCalendar(@PathVariable Integer id, WebRequest request, Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            return feed(exportService.calendarFeed(id, username), request);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        } catch (AccessDeniedException ex) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        }
+    }
+
+    // Same as above for the events of all calendars of the logged in user
+    @GetMapping("/calendars.ics")
+    public ResponseEntity<StreamingResponseBody> exportAllCalendars(WebRequest request, Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            return feed(exportService.userFeed(username), request);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.TEXT_PLAIN).body(message(ex.getMessage()));
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> feed(IcsFeed feed, WebRequest request) {
+        // Sets the 304 status and the validators on the response when they match
+        if(request.checkNotModified(feed.etag(), feed.lastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CALENDAR + ";charset=UTF-8"))
+                .eTag(feed.etag())
+                .lastModified(feed.lastModified())
+                .body(out -> exportService.write(feed, out));
+    }
+
+    private StreamingResponseBody message(String text) {
+        return out -> out.write(String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Import an .ics file sent as the request body (Content-Type: text/calendar) into a calendar of the logged in user.
+    // The body is read as it arrives, answers the import counts.
+    @PostMapping(value = "/calendars/{id}/import", consumes = TEXT_CALENDAR)
+    public ResponseEntity<?> importCalendar(@PathVariable Integer id, InputStream body, Principal principal) {
+        return importEvents(id, body, principal);
+    }
+
+    // Same as above for an .ics file uploaded as the "file" part of a form
+    @PostMapping(value = "/calendars/{id}/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importCalendarFile(@PathVariable Integer id, @RequestParam("file") MultipartFile file, Principal principal) {
+        // importEvents answers every error of the import itself, only opening and closing the upload is left
+        try (InputStream in = file.getInputStream()) {
+            return importEvents(id, in, principal);
+        } catch (IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> importEvents(Integer id, InputStream in, Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            ImportSummary summary = importService.importEvents(id, in, username);
+            return ResponseEntity.ok(summary);
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (ParserException | IllegalArgumentException ex) {
+            // Content that is not valid iCalendar
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (AccessDeniedException ex) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+}
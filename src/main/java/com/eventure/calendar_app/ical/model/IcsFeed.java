@@ -0,0 +1,17 @@
+package com.eventure.calendar_app.ical.model;
+
+import java.time.Instant;
+
+// An .ics feed to export: the events of one calendar (calendarId set) or all events of the user (userId set).
+// version and changedAt describe the last committed change of the feed content, changedAt is null when unknown.
+public record IcsFeed(String name, Integer calendarId, Long userId, String username, long version, Instant changedAt) {
+
+    // Weak, the feed is regenerated on every request and only equivalent between two of them
+    public String etag() {
+        return "W/\"" + (calendarId != null ? "c" + calendarId : "u" + userId) + "-v" + version + "\"";
+    }
+
+    public long lastModified() {
+        return changedAt != null ? changedAt.toEpochMilli() : -1;
+    }
+}
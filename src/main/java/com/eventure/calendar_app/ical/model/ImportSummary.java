@@ -0,0 +1,9 @@
+package com.eventure.calendar_app.ical.model;
+
+import java.util.List;
+
+// Counts of an iCalendar import: VEVENTs read, events created, events updated because their UID was imported
+// before, VEVENTs skipped (recurrence overrides), series imported without their EXDATE/RDATE and VEVENTs that
+// could not be mapped, with the first errors (which also name the skipped and partially imported VEVENTs)
+public record ImportSummary(int read, int created, int updated, int skipped, int partial, int failed, List<String> errors) {
+}
@@ -0,0 +1,93 @@
+package com.eventure.calendar_app.ical.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import net.fortuna.ical4j.data.ContentHandler;
+
+// Receives the parse events of ical4j's CalendarParser and hands every VEVENT to the consumer as soon as it ends,
+// as a map of its top-level properties. Nothing but the event being read is kept, so a file of any size is read
+// in constant memory (CalendarBuilder would build the whole calendar first).
+// Components nested in a VEVENT (VALARM) and everything outside VEVENTs (VTIMEZONE, VTODO, ...) are ignored.
+class IcsEventReader implements ContentHandler {
+
+    // A property value with its parameters (TZID, VALUE, ...), parameter names are upper case
+    record IcsProperty(String value, Map<String, String> parameters) {
+
+        String parameter(String name) {
+            return parameters.get(name);
+        }
+    }
+
+    private final Consumer<Map<String, IcsProperty>> consumer;
+
+    // Depth of components inside the current VEVENT, -1 when not in a VEVENT
+    private int depth = -1;
+    private Map<String, IcsProperty> properties;
+    private String propertyName;
+    private String propertyValue;
+    private Map<String, String> parameters;
+
+    IcsEventReader(Consumer<Map<String, IcsProperty>> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void startCalendar() {
+    }
+
+    @Override
+    public void endCalendar() {
+    }
+
+    @Override
+    public void startComponent(String name) {
+        if(depth >= 0) {
+            depth++;
+        } else if("VEVENT".equalsIgnoreCase(name)) {
+            depth = 0;
+            properties = new HashMap<>();
+        }
+    }
+
+    @Override
+    public void endComponent(String name) {
+        if(depth > 0) {
+            depth--;
+        } else if(depth == 0) {
+            Map<String, IcsProperty> event = properties;
+            depth = -1;
+            properties = null;
+            consumer.accept(event);
+        }
+    }
+
+    @Override
+    public void startProperty(String name) {
+        propertyName = name.toUpperCase();
+        propertyValue = null;
+        parameters = new HashMap<>();
+    }
+
+    @Override
+    public void propertyValue(String value) {
+        propertyValue = value;
+    }
+
+    @Override
+    public void parameter(String name, String value) {
+        parameters.put(name.toUpperCase(), value);
+    }
+
+    @Override
+    public void endProperty(String name) {
+        // Repeated properties keep their first value
+        if(depth == 0 && propertyValue != null) {
+            properties.putIfAbsent(propertyName, new IcsProperty(propertyValue, parameters));
+        }
+        propertyName = null;
+        propertyValue = null;
+        parameters = null;
+    }
+}
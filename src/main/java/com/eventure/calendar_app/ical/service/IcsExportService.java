@@ -0,0 +1,214 @@
+package com.eventure.calendar_app.ical.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.service.RecurrenceExpander;
+import com.eventure.calendar_app.ical.model.IcsFeed;
+import com.eventure.calendar_app.user.model.Users;
+
+import net.fortuna.ical4j.data.FoldingWriter;
+import net.fortuna.ical4j.model.TimeZone;
+import net.fortuna.ical4j.model.TimeZoneRegistry;
+import net.fortuna.ical4j.model.TimeZoneRegistryFactory;
+
+// Exports events as an iCalendar feed, one VEVENT per stored event.
+// Recurring events are written with their stored RRULE instead of their repetitions, so the size of the feed only
+// depends on the number of events; an end date stored apart from the rule is added to it as UNTIL. The events are
+// read in keyset pages of PAGE_SIZE and written as they are read, nothing but the current page is held in memory.
+// Times are written in the time zone of the server (the zone event times are stored in) with its VTIMEZONE from the
+// ical4j registry, as UTC when the zone is a fixed offset or has no definition there.
+@Service
+public class IcsExportService {
+
+    public static final int PAGE_SIZE = 500;
+
+    private static final String PRODID = "-//Eventure//Eventure Calendar//EN";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final Pattern BOUNDED = Pattern.compile("(?:^|;)(?:UNTIL|COUNT)=", Pattern.CASE_INSENSITIVE);
+
+    private static final Logger log = LoggerFactory.getLogger(IcsExportService.class);
+
+    private EventRepo eventRepo;
+    private CalendarRepo calRepo;
+    private CalendarVersionService versions;
+    private RecurrenceExpander expander;
+    private TimeZoneRegistry timeZones = TimeZoneRegistryFactory.getInstance().createRegistry();
+    // The VTIMEZONE text per zone id, empty when the registry has no definition
+    private Map<String, Optional<String>> vtimezones = new ConcurrentHashMap<>();
+
+    public IcsExportService(EventRepo eventRepo, CalendarRepo calRepo, CalendarVersionService versions, RecurrenceExpander expander) {
+        this.eventRepo = eventRepo;
+        this.calRepo = calRepo;
+        this.versions = versions;
+        this.expander = expander;
+    }
+
+    // The feed of a calendar of the user, with its current change version
+    @Transactional(readOnly = true)
+    public IcsFeed calendarFeed(Integer calendarId, String username) throws AccessDeniedException {
+        Calendars calendar = calRepo.findById(calendarId)
+                .orElseThrow(() -> new IllegalArgumentException("calendar not found: " + calendarId));
+
+        // Check ownership
+        Users owner = calendar.getOwner();
+        if(owner == null || username == null || !username.equals(owner.getUsername())) {
+            throw new AccessDeniedException("Not allowed to export this calendar");
+        }
+
+        long version = calendar.getChangeVersion() != null ? calendar.getChangeVersion() : 0;
+        return new IcsFeed(calendar.getName(), calendarId, null, username, version, calendar.getChangedAt());
+    }
+
+    // The feed of all events of the user, with its current change version (one single-row query)
+    public IcsFeed userFeed(String username) {
+        ChangeVersion version = versions.userVersion(username);
+        if(version == null) {
+            throw new IllegalArgumentException("user not found: " + username);
+        }
+        return new IcsFeed(username, null, version.userId(), username, version.version(), version.changedAt());
+    }
+
+    // Write the feed to the stream, which is left open
+    public void write(IcsFeed feed, OutputStream out) throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        String vtimezone = zone.getRules().isFixedOffset() ? null : vtimezone(zone).orElse(null);
+        if(vtimezone == null) {
+            zone = ZoneOffset.UTC;
+        }
+        String dtstamp = DATE_TIME.format(LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC)) + "Z";
+
+        Writer writer = new FoldingWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        line(writer, "BEGIN:VCALENDAR");
+        line(writer, "VERSION:2.0");
+        line(writer, "PRODID:" + PRODID);
+        line(writer, "CALSCALE:GREGORIAN");
+        if(feed.name() != null) {
+            line(writer, "X-WR-CALNAME:" + escape(feed.name()));
+        }
+        if(vtimezone != null) {
+            line(writer, "X-WR-TIMEZONE:" + zone.getId());
+            writer.write(vtimezone);
+        }
+
+        int afterId = Integer.MIN_VALUE;
+        List<Events> page;
+        do {
+            page = feed.calendarId() != null
+                    ? eventRepo.findByCalendar_IdAndIdGreaterThanOrderByIdAsc(feed.calendarId(), afterId, PageRequest.of(0, PAGE_SIZE))
+                    : eventRepo.findByCreatedBy_UsernameAndIdGreaterThanOrderByIdAsc(feed.username(), afterId, PageRequest.of(0, PAGE_SIZE));
+
+            for(Events event: page) {
+                writeEvent(writer, event, zone, dtstamp);
+            }
+            if(!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+            writer.flush();
+        } while(page.size() == PAGE_SIZE);
+
+        line(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    private void writeEvent(Writer writer, Events event, ZoneId zone, String dtstamp) throws IOException {
+        // DTSTART is required in a feed
+        if(event.getStartTime() == null) {
+            return;
+        }
+
+        line(writer, "BEGIN:VEVENT");
+        line(writer, "UID:" + (event.getUid() != null ? event.getUid() : "event-" + event.getId() + "@eventure"));
+        line(writer, "DTSTAMP:" + dtstamp);
+        line(writer, "DTSTART" + time(event.getStartTime(), zone));
+        if(event.getEndTime() != null && event.getEndTime().isAfter(event.getStartTime())) {
+            line(writer, "DTEND" + time(event.getEndTime(), zone));
+        }
+        if(event.getTitle() != null) {
+            line(writer, "SUMMARY:" + escape(event.getTitle()));
+        }
+        if(expander.isRecurring(event)) {
+            line(writer, "RRULE:" + rule(event));
+        }
+        line(writer, "END:VEVENT");
+    }
+
+    // The stored rule as it is. The display limit the app puts on open-ended series is not written, subscribers
+    // and re-imports get the whole series; only an end date stored with the event bounds an unbounded rule.
+    private String rule(Events event) {
+        String rule = event.getRecurrenceRule().trim();
+        if(rule.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            rule = rule.substring(6);
+        }
+        if(event.getRecurrenceEndDate() == null || BOUNDED.matcher(rule).find()) {
+            return rule;
+        }
+
+        LocalDateTime until = event.getRecurrenceEndDate().atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        return rule + ";UNTIL=" + DATE_TIME.format(until) + "Z";
+    }
+
+    // ";TZID=zone:local time", or ":UTC time" when the feed is written in UTC
+    private String time(LocalDateTime time, ZoneId zone) {
+        if(zone.equals(ZoneOffset.UTC)) {
+            return ":" + DATE_TIME.format(time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime()) + "Z";
+        }
+        return ";TZID=" + zone.getId() + ":" + DATE_TIME.format(time);
+    }
+
+    // The VTIMEZONE component of the zone (RFC 5545 requires one for every TZID), loaded once per zone
+    private Optional<String> vtimezone(ZoneId zone) {
+        return vtimezones.computeIfAbsent(zone.getId(), id -> {
+            try {
+                TimeZone timeZone = timeZones.getTimeZone(id);
+                return timeZone != null ? Optional.of(timeZone.getVTimeZone().toString()) : Optional.empty();
+            } catch (RuntimeException ex) {
+                log.warn("No VTIMEZONE for {}, the feed is written in UTC: {}", id, ex.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    // TEXT values escape backslashes, separators and line breaks (RFC 5545 3.3.11)
+    private String escape(String text) {
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n")
+                .replace("\r", "\\n");
+    }
+
+    private void line(Writer writer, String content) throws IOException {
+        writer.write(content);
+        writer.write("\r\n");
+    }
+}
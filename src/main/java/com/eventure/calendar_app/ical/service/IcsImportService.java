@@ -0,0 +1,339 @@
+package com.eventure.calendar_app.ical.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.service.EventChange;
+import com.eventure.calendar_app.event.service.OccurrenceStoreService;
+import com.eventure.calendar_app.event.service.RecurrenceRule;
+import com.eventure.calendar_app.ical.model.ImportSummary;
+import com.eventure.calendar_app.ical.service.IcsEventReader.IcsProperty;
+import com.eventure.calendar_app.user.model.Users;
+
+import jakarta.persistence.EntityManager;
+import net.fortuna.ical4j.data.CalendarParserImpl;
+import net.fortuna.ical4j.data.ParserException;
+
+// Imports the VEVENTs of an iCalendar stream into a calendar.
+// The stream is parsed event by event and written in batches of BATCH_SIZE, each in its own transaction that
+// ends with a cleared persistence context, so memory stays flat whatever the size of the file. An event whose UID
+// was imported into the calendar before is updated in place, so importing the same file again creates no copies
+// (and resuming a failed import redoes only what was not committed yet).
+// Times with a TZID or in UTC are converted to the local time of the server like every other event time,
+// floating times are kept and all-day events run from midnight to midnight.
+// Recurrence overrides (RECURRENCE-ID), EXDATE and RDATE have no equivalent in the event model: overrides are
+// skipped and series with exception or extra dates are imported with their RRULE only, both are reported in the errors.
+@Service
+public class IcsImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(IcsImportService.class);
+
+    public static final int BATCH_SIZE = 500;
+
+    private static final int MAX_ERRORS = 20;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final Pattern UNTIL = Pattern.compile("(?:^|;)UNTIL=([0-9T]+Z?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WEEKS = Pattern.compile("^([+-]?)P(\\d+)W$");
+
+    private EventRepo eventRepo;
+    private CalendarRepo calRepo;
+    private OccurrenceStoreService occurrenceStore;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+
+    public IcsImportService(EventRepo eventRepo, CalendarRepo calRepo, OccurrenceStoreService occurrenceStore,
+                            ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+                            EntityManager entityManager) {
+        this.eventRepo = eventRepo;
+        this.calRepo = calRepo;
+        this.occurrenceStore = occurrenceStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+    }
+
+    // Import the iCalendar data into the calendar of the user.
+    // Throws NoSuchElementException for an unknown calendar and ParserException (or IllegalArgumentException from the
+    // parser) when the data is not valid iCalendar, the batches before the error stay imported.
+    public ImportSummary importEvents(Integer calendarId, InputStream data, String username)
+            throws AccessDeniedException, IOException, ParserException {
+        Long ownerId = transactionTemplate.execute(status -> {
+            Calendars calendar = calRepo.findById(calendarId)
+                    .orElseThrow(() -> new NoSuchElementException("calendar not found: " + calendarId));
+            Users owner = calendar.getOwner();
+            return owner != null && username != null && username.equals(owner.getUsername()) ? owner.getId() : null;
+        });
+        if(ownerId == null) {
+            throw new AccessDeniedException("Not allowed to import into this calendar");
+        }
+
+        Run run = new Run(calendarId, ownerId, username);
+        new CalendarParserImpl().parse(new InputStreamReader(data, StandardCharsets.UTF_8), new IcsEventReader(run::accept));
+        run.flush();
+
+        log.info("Imported {} events into calendar {}: {} created, {} updated, {} skipped, {} partial, {} failed",
+                run.read, calendarId, run.created, run.updated, run.skipped, run.partial, run.failed);
+        return new ImportSummary(run.read, run.created, run.updated, run.skipped, run.partial, run.failed, run.errors);
+    }
+
+    // State of one import: counters and the events waiting for the next batch
+    private class Run {
+
+        private final Integer calendarId;
+        private final Long ownerId;
+        private final String username;
+        private final List<Events> batch = new ArrayList<>(BATCH_SIZE);
+        private final List<String> errors = new ArrayList<>();
+
+        private int read;
+        private int created;
+        private int updated;
+        private int skipped;
+        private int partial;
+        private int failed;
+
+        Run(Integer calendarId, Long ownerId, String username) {
+            this.calendarId = calendarId;
+            this.ownerId = ownerId;
+            this.username = username;
+        }
+
+        void accept(Map<String, IcsProperty> properties) {
+            read++;
+            if(properties.containsKey("RECURRENCE-ID")) {
+                skipped++;
+                report(properties, "RECURRENCE-ID override not imported, the series keeps the original repetition");
+                return;
+            }
+
+            try {
+                batch.add(toEvent(properties));
+            } catch (IllegalArgumentException | DateTimeException ex) {
+                failed++;
+                report(properties, ex.getMessage());
+                return;
+            }
+            if(properties.containsKey("EXDATE") || properties.containsKey("RDATE")) {
+                partial++;
+                report(properties, "EXDATE and RDATE not imported, the series repeats by its RRULE only");
+            }
+
+            if(batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void report(Map<String, IcsProperty> properties, String message) {
+            if(errors.size() < MAX_ERRORS) {
+                IcsProperty uid = properties.get("UID");
+                errors.add("VEVENT " + read + (uid != null ? " (" + uid.value() + ")" : "") + ": " + message);
+            }
+        }
+
+        void flush() {
+            if(batch.isEmpty()) {
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Users owner = entityManager.getReference(Users.class, ownerId);
+                Calendars calendar = entityManager.getReference(Calendars.class, calendarId);
+
+                List<String> uids = batch.stream().map(Events::getUid).filter(uid -> uid != null).distinct().toList();
+                Map<String, Events> existing = new HashMap<>();
+                if(!uids.isEmpty()) {
+                    eventRepo.findByCalendar_IdAndUidIn(calendarId, uids).forEach(event -> existing.putIfAbsent(event.getUid(), event));
+                }
+
+                List<Events> changed = new ArrayList<>();
+                for(Events event: batch) {
+                    Events previous = event.getUid() != null ? existing.get(event.getUid()) : null;
+                    if(previous != null) {
+                        previous.setTitle(event.getTitle());
+                        previous.setStartTime(event.getStartTime());
+                        previous.setEndTime(event.getEndTime());
+                        previous.setIsRecurring(event.getIsRecurring());
+                        previous.setRecurrenceRule(event.getRecurrenceRule());
+                        previous.setRecurrenceEndDate(event.getRecurrenceEndDate());
+                        previous.setModSeq(null);
+                        changed.add(previous);
+                        updated++;
+                    } else {
+                        event.setCreatedBy(owner);
+                        event.setCalendar(calendar);
+                        Events saved = eventRepo.save(event);
+                        occurrenceStore.materializeNew(saved);
+                        if(saved.getUid() != null) {
+                            existing.put(saved.getUid(), saved);
+                        }
+                        created++;
+                    }
+                }
+                // One delete for the occurrences of all updated events instead of one per event
+                occurrenceStore.materializeAll(changed);
+
+                entityManager.flush();
+                entityManager.clear();
+                eventPublisher.publishEvent(EventChange.bulk(username, calendarId));
+            });
+
+            batch.clear();
+            log.info("Importing into calendar {}: {} events read, {} created, {} updated", calendarId, read, created, updated);
+        }
+    }
+
+    private Events toEvent(Map<String, IcsProperty> properties) {
+        IcsProperty start = properties.get("DTSTART");
+        if(start == null) {
+            throw new IllegalArgumentException("DTSTART is missing");
+        }
+
+        Events event = new Events();
+        IcsProperty uid = properties.get("UID");
+        if(uid != null && !uid.value().isBlank()) {
+            if(uid.value().trim().length() > MAX_TEXT_LENGTH) {
+                throw new IllegalArgumentException("UID is longer than " + MAX_TEXT_LENGTH + " characters");
+            }
+            event.setUid(uid.value().trim());
+        }
+
+        IcsProperty summary = properties.get("SUMMARY");
+        if(summary != null) {
+            String title = unescape(summary.value());
+            event.setTitle(title.length() > MAX_TEXT_LENGTH ? title.substring(0, MAX_TEXT_LENGTH) : title);
+        }
+
+        event.setStartTime(toLocalTime(start));
+        IcsProperty end = properties.get("DTEND");
+        IcsProperty duration = properties.get("DURATION");
+        if(end != null) {
+            event.setEndTime(toLocalTime(end));
+        } else if(duration != null) {
+            event.setEndTime(event.getStartTime().plus(parseDuration(duration.value())));
+        } else if(isDate(start)) {
+            event.setEndTime(event.getStartTime().plusDays(1));
+        }
+        if(event.getEndTime() != null && event.getEndTime().isBefore(event.getStartTime())) {
+            throw new IllegalArgumentException("DTEND is before DTSTART");
+        }
+
+        IcsProperty rule = properties.get("RRULE");
+        if(rule != null && !rule.value().isBlank()) {
+            String recurrenceRule = normalizeUntil(rule.value().trim());
+            // Rejects rules the expansion could not handle
+            RecurrenceRule.parse(recurrenceRule, ZoneId.systemDefault());
+            event.setIsRecurring(true);
+            event.setRecurrenceRule(recurrenceRule);
+            event.setRecurrenceEndDate(until(recurrenceRule));
+        } else {
+            event.setIsRecurring(false);
+        }
+        return event;
+    }
+
+    // DATE values are midnight, UTC and TZID values are converted to server time, floating values are kept
+    private LocalDateTime toLocalTime(IcsProperty property) {
+        String value = property.value().trim();
+        if(isDate(property)) {
+            return LocalDate.parse(value, DATE).atStartOfDay();
+        }
+        if(value.endsWith("Z") || value.endsWith("z")) {
+            return LocalDateTime.parse(value.substring(0, value.length() - 1), DATE_TIME)
+                    .atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+
+        LocalDateTime local = LocalDateTime.parse(value, DATE_TIME);
+        ZoneId zone = zone(property.parameter("TZID"));
+        return zone == null ? local : local.atZone(zone).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    private boolean isDate(IcsProperty property) {
+        return "DATE".equalsIgnoreCase(property.parameter("VALUE")) || property.value().trim().length() == 8;
+    }
+
+    // Time zone of a TZID, null (floating time) for names Java does not know, like the Windows ones
+    private ZoneId zone(String tzid) {
+        if(tzid == null) {
+            return null;
+        }
+        try {
+            return ZoneId.of(tzid.replace("\"", "").trim());
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    // Events always start at a date-time, so a DATE UNTIL (common in exported all-day series) becomes the end of that day
+    private String normalizeUntil(String rule) {
+        Matcher matcher = UNTIL.matcher(rule);
+        if(!matcher.find() || matcher.group(1).length() != 8) {
+            return rule;
+        }
+        return rule.substring(0, matcher.end(1)) + "T235959" + rule.substring(matcher.end(1));
+    }
+
+    // The last start allowed by UNTIL in server time
+    private LocalDateTime until(String rule) {
+        Matcher matcher = UNTIL.matcher(rule);
+        return matcher.find() ? toLocalTime(new IcsProperty(matcher.group(1), Map.of())) : null;
+    }
+
+    // java.time does not parse week durations (P2W)
+    private Duration parseDuration(String value) {
+        Matcher weeks = WEEKS.matcher(value.trim());
+        if(weeks.matches()) {
+            return Duration.ofDays(Long.parseLong(weeks.group(2)) * 7 * ("-".equals(weeks.group(1)) ? -1 : 1));
+        }
+        try {
+            return Duration.parse(value.trim());
+        } catch (DateTimeException ex) {
+            throw new IllegalArgumentException("invalid DURATION: " + value);
+        }
+    }
+
+    // TEXT values escape backslash, comma, semicolon and new lines
+    private String unescape(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                result.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
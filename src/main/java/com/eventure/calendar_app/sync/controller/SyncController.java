@@ -0,0 +1,59 @@
+package com.eventure.calendar_app.sync.controller;
+
+import java.security.Principal;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.eventure.calendar_app.sync.model.SyncChanges;
+import com.eventure.calendar_app.sync.service.ChangeStreamService;
+import com.eventure.calendar_app.sync.service.SyncService;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/api")
+public class SyncController {
+
+    private SyncService service;
+    private ChangeStreamService changeStream;
+
+    public SyncController(SyncService service, ChangeStreamService changeStream) {
+        this.service = service;
+        this.changeStream = changeStream;
+    }
+
+    // Events and calendars of the logged in user created, updated or deleted since the sync token.
+    // Without since (or with an expired token) everything is returned with full=true.
+    // Pass syncToken of the answer as since on the next call.
+    @GetMapping("/events/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) String since, Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            SyncChanges changes = service.changes(username, since);
+            return ResponseEntity.ok(changes);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+    }
+
+    // Server-Sent Events stream of the committed writes of the logged in user: a "change" event per written event
+    // or calendar (see ChangeNotification), "resync" when the client fell behind and should call /events/changes
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(Principal principal) {
+        try {
+            String username = principal != null ? principal.getName() : null;
+            return ResponseEntity.ok(changeStream.subscribe(username));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+}
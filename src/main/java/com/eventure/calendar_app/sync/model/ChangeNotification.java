@@ -0,0 +1,18 @@
+package com.eventure.calendar_app.sync.model;
+
+import com.eventure.calendar_app.sync.model.Tombstones.Kind;
+
+// A committed write pushed to the change stream of the user: which event or calendar, what happened to it and the
+// change version of the user after the commit (the same version a sync token of that moment holds).
+// Bulk writes (imports) name no id, the client then pulls the changes with a delta sync.
+public record ChangeNotification(Kind kind, Integer id, Operation operation, long version) {
+
+    public enum Operation {
+        CHANGED,
+        DELETED
+    }
+
+    public ChangeNotification withVersion(long newVersion) {
+        return new ChangeNotification(kind, id, operation, newVersion);
+    }
+}
@@ -0,0 +1,13 @@
+package com.eventure.calendar_app.sync.model;
+
+import java.util.List;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.event.model.Events;
+
+// Answer of a delta sync: the events and calendars created or updated since the token and the ids of those deleted.
+// full is set when the answer holds everything of the user (first sync or an expired token), the client then
+// replaces what it has. syncToken is passed back as since on the next sync.
+public record SyncChanges(boolean full, List<Events> events, List<Calendars> calendars,
+                          List<Integer> deletedEventIds, List<Integer> deletedCalendarIds, String syncToken) {
+}
@@ -0,0 +1,49 @@
+package com.eventure.calendar_app.sync.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Record of a deleted event or calendar, so delta sync can tell clients to drop it.
+// Removed in the background once it is older than the sync token lifetime.
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_tombstones_user_mod_seq", columnList = "userId, modSeq"),
+        @Index(name = "idx_tombstones_deleted_at", columnList = "deletedAt")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Tombstones {
+
+    public enum Kind {
+        EVENT,
+        CALENDAR
+    }
+
+    // Sequence ids like Events, so the tombstones of a batch delete are inserted in one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tombstones_seq")
+    @SequenceGenerator(name = "tombstones_seq", sequenceName = "tombstones_seq", allocationSize = 50)
+    private Long id;
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+    private Integer entityId;
+
+    // Change version of the user at the commit that deleted the entity
+    private Long modSeq;
+    private Instant deletedAt;
+}
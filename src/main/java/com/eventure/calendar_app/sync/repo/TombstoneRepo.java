@@ -0,0 +1,26 @@
+package com.eventure.calendar_app.sync.repo;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.sync.model.Tombstones;
+
+@Repository
+public interface TombstoneRepo extends JpaRepository<Tombstones, Long> {
+
+    // Deletions of the user since the given change version
+    List<Tombstones> findByUserIdAndModSeqGreaterThan(Long userId, Long modSeq);
+
+    // Drop the tombstones older than the cutoff in one statement
+    @Modifying
+    @Transactional
+    @Query("delete from Tombstones t where t.deletedAt < :cutoff")
+    int deleteDeletedBefore(@Param("cutoff") Instant cutoff);
+}
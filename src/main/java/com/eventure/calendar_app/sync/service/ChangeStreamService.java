@@ -0,0 +1,211 @@
+package com.eventure.calendar_app.sync.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.common.UserVersion;
+import com.eventure.calendar_app.sync.model.ChangeNotification;
+import com.eventure.calendar_app.user.repo.UserRepo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Pushes the committed writes of a user to the Server-Sent Events streams the user has open.
+// The streams are async servlet responses, an idle stream holds no thread. Every stream has a bounded queue:
+// publishing only enqueues, and a virtual thread sends the queued events while there are any, so a slow client
+// never holds up the commit that published. When the queue of a stream is full, what is queued is dropped and
+// replaced by a single "resync" event, the client then catches up with a delta sync.
+// A comment is sent as heartbeat on quiet streams so proxies keep them open and dead clients are noticed.
+// Only the node that committed a write publishes it, so every stream also remembers the last change version of its
+// user it was told about. The versions of the users with open streams are polled from the database in one query per
+// batch of users; a stream whose user moved past it (a write committed on another node) gets a "resync" event.
+@Service
+public class ChangeStreamService {
+
+    // Usernames per version query of the poll
+    private static final int POLL_BATCH = 500;
+
+    private UserRepo userRepo;
+    private Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private long timeoutMillis;
+    private int queueCapacity;
+    private int maxPerUser;
+
+    public ChangeStreamService(UserRepo userRepo,
+                               @Value("${app.stream.timeout-minutes:30}") long timeoutMinutes,
+                               @Value("${app.stream.queue-capacity:64}") int queueCapacity,
+                               @Value("${app.stream.max-per-user:8}") int maxPerUser,
+                               MeterRegistry meterRegistry) {
+        this.userRepo = userRepo;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.queueCapacity = queueCapacity;
+        this.maxPerUser = maxPerUser;
+
+        meterRegistry.gauge("stream.subscribers", this, ChangeStreamService::subscriberCount);
+    }
+
+    // Open a stream for the user. Past the limit per user the oldest stream of the user is closed.
+    public SseEmitter subscribe(String username) {
+        if(username == null) {
+            throw new IllegalArgumentException("user required");
+        }
+
+        // Read before the stream is registered, a write committed in between is caught by the next poll
+        ChangeVersion version = userRepo.findChangeVersion(username);
+        Subscriber subscriber = new Subscriber(username, new SseEmitter(timeoutMillis), version != null ? version.version() : 0L);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(ex -> remove(subscriber));
+
+        List<Subscriber> streams = subscribers.computeIfAbsent(username, key -> new CopyOnWriteArrayList<>());
+        streams.add(subscriber);
+        while(streams.size() > maxPerUser) {
+            Subscriber oldest = streams.remove(0);
+            oldest.emitter.complete();
+        }
+
+        // The first event tells the client the stream is open
+        subscriber.offer(SseEmitter.event().comment("connected"));
+        return subscriber.emitter;
+    }
+
+    // Send the notifications to the open streams of the user, without waiting for the clients
+    public void publish(String username, Collection<ChangeNotification> notifications) {
+        List<Subscriber> streams = username != null ? subscribers.get(username) : null;
+        if(streams == null || notifications.isEmpty()) {
+            return;
+        }
+
+        for(Subscriber subscriber: streams) {
+            for(ChangeNotification notification: notifications) {
+                subscriber.seen(notification.version());
+                subscriber.offer(SseEmitter.event().name("change").data(notification));
+            }
+        }
+    }
+
+    // Tell the streams whose user has writes they were not told about to resync. A write of this node polled
+    // between its commit and its publish causes one extra resync, never a missed one.
+    @Scheduled(fixedDelayString = "${app.stream.poll-ms:5000}", initialDelayString = "${app.stream.poll-ms:5000}")
+    public void poll() {
+        List<String> usernames = new ArrayList<>(subscribers.keySet());
+        for(int i = 0; i < usernames.size(); i += POLL_BATCH) {
+            List<String> batch = usernames.subList(i, Math.min(i + POLL_BATCH, usernames.size()));
+            for(UserVersion version: userRepo.findChangeVersions(batch)) {
+                for(Subscriber subscriber: subscribers.getOrDefault(version.username(), List.of())) {
+                    if(subscriber.seen(version.version())) {
+                        subscriber.offer(SseEmitter.event().name("resync").data(""));
+                    }
+                }
+            }
+        }
+    }
+
+    // Streams with events still queued are not idle and need no heartbeat
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for(List<Subscriber> streams: subscribers.values()) {
+            for(Subscriber subscriber: streams) {
+                if(subscriber.queue.isEmpty()) {
+                    subscriber.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.username, (username, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    // An open stream with the events waiting to be sent to it
+    private class Subscriber {
+
+        private final String username;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Set while a sender drains the queue, so at most one thread writes to the stream
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Latest change version of the user the stream was told about
+        private final AtomicLong version;
+
+        Subscriber(String username, SseEmitter emitter, long version) {
+            this.username = username;
+            this.emitter = emitter;
+            this.version = new AtomicLong(version);
+        }
+
+        // Record the version, true when it is newer than any the stream was told about
+        boolean seen(long newVersion) {
+            return version.getAndAccumulate(newVersion, Math::max) < newVersion;
+        }
+
+        void offer(SseEventBuilder event) {
+            if(!queue.offer(event)) {
+                queue.clear();
+                queue.offer(SseEmitter.event().name("resync").data(""));
+            }
+            if(sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while(true) {
+                SseEventBuilder event = queue.poll();
+                if(event == null) {
+                    sending.set(false);
+                    // An event offered after the poll but before the flag was cleared is sent by this thread
+                    if(queue.isEmpty() || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException ex) {
+                    // The client is gone (or the stream completed), stop sending to it
+                    queue.clear();
+                    remove(this);
+                    emitter.completeWithError(ex);
+                    sending.set(false);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.eventure.calendar_app.sync.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.common.Cursors;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.sync.model.SyncChanges;
+import com.eventure.calendar_app.sync.model.Tombstones;
+import com.eventure.calendar_app.sync.model.Tombstones.Kind;
+import com.eventure.calendar_app.sync.repo.TombstoneRepo;
+
+// Delta sync of the events and calendars of a user.
+// A sync token holds the change version of the user when it was issued. Every write stamps the rows it wrote with
+// the version of its commit and deletes leave tombstones (see CalendarVersionService), so the changes since a token
+// are the rows and tombstones with a newer version, read with one indexed query each.
+// Tombstones are compacted after the retention period; tokens expire a day earlier, an expired token gets everything.
+@Service
+public class SyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncService.class);
+
+    // Margin between the expiry of a token and the compaction of the tombstones it may still need
+    private static final Duration TOKEN_MARGIN = Duration.ofDays(1);
+
+    private EventRepo eventRepo;
+    private CalendarRepo calRepo;
+    private TombstoneRepo tombstoneRepo;
+    private CalendarVersionService versions;
+    private Duration retention;
+
+    public SyncService(EventRepo eventRepo, CalendarRepo calRepo, TombstoneRepo tombstoneRepo, CalendarVersionService versions,
+                       @Value("${app.sync.tombstone-retention-days:30}") long retentionDays) {
+        this.eventRepo = eventRepo;
+        this.calRepo = calRepo;
+        this.tombstoneRepo = tombstoneRepo;
+        this.versions = versions;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    // Changes of the user since the token, everything when the token is null or expired.
+    // Throws IllegalArgumentException for unknown users and tokens that were not issued here.
+    @Transactional(readOnly = true)
+    public SyncChanges changes(String username, String since) {
+        // The version is read first: a write committing in between is sent again next time, but never missed
+        ChangeVersion version = versions.userVersion(username);
+        if(version == null) {
+            throw new IllegalArgumentException("user not found: " + username);
+        }
+        Instant now = Instant.now();
+        String token = Cursors.encode(version.version(), now.getEpochSecond());
+
+        Long sinceVersion = since != null ? sinceVersion(since, now) : null;
+        if(sinceVersion == null) {
+            return new SyncChanges(true, eventRepo.findByCreatedBy_Username(username), calRepo.findByOwner_Username(username),
+                    List.of(), List.of(), token);
+        }
+
+        List<Events> events = eventRepo.findByCreatedBy_UsernameAndModSeqGreaterThan(username, sinceVersion);
+        List<Calendars> calendars = calRepo.findByOwner_UsernameAndModSeqGreaterThan(username, sinceVersion);
+        List<Integer> deletedEventIds = new ArrayList<>();
+        List<Integer> deletedCalendarIds = new ArrayList<>();
+        for(Tombstones tombstone: tombstoneRepo.findByUserIdAndModSeqGreaterThan(version.userId(), sinceVersion)) {
+            (tombstone.getKind() == Kind.EVENT ? deletedEventIds : deletedCalendarIds).add(tombstone.getEntityId());
+        }
+
+        return new SyncChanges(false, events, calendars, deletedEventIds, deletedCalendarIds, token);
+    }
+
+    // The version in the token, null when the token is too old for the remaining tombstones
+    private Long sinceVersion(String since, Instant now) {
+        String[] token = Cursors.decode(since, 2);
+        long sinceVersion;
+        Instant issuedAt;
+        try {
+            sinceVersion = Long.parseLong(token[0]);
+            issuedAt = Instant.ofEpochSecond(Long.parseLong(token[1]));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid sync token", ex);
+        }
+
+        return issuedAt.isBefore(now.minus(retention).plus(TOKEN_MARGIN)) ? null : sinceVersion;
+    }
+
+    // Drop the tombstones older than the retention period
+    @Scheduled(cron = "${app.sync.compact-cron:0 45 3 * * *}")
+    public int compactTombstones() {
+        int removed = tombstoneRepo.deleteDeletedBefore(Instant.now().minus(retention));
+        log.info("Compacted {} tombstones older than {} days", removed, retention.toDays());
+        return removed;
+    }
+}
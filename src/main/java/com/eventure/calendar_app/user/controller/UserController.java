@@ -1,9 +1,11 @@
 package com.eventure.calendar_app.user.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -29,4 +31,13 @@ public class UserController {
 		System.out.println(user);
 		return service.verify(user);
 	}
+
+	// Revoke the token of the request, it is rejected on every node from then on
+	@PostMapping("/users/logout")
+	public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+		if(!service.logout(authHeader)) {
+			return ResponseEntity.badRequest().body("token cannot be revoked");
+		}
+		return ResponseEntity.noContent().build();
+	}
 }
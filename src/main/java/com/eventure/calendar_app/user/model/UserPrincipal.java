@@ -1,22 +1,52 @@
 package com.eventure.calendar_app.user.model;
 
+import java.security.Principal;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 public class UserPrincipal implements UserDetails {
 	private Users user;
+	private Collection<? extends GrantedAuthority> authorities;
 
 	public UserPrincipal(Users user) {
+		this(user, Collections.singleton(new SimpleGrantedAuthority("USER")));
+	}
+
+	private UserPrincipal(Users user, Collection<? extends GrantedAuthority> authorities) {
 		this.user = user;
+		this.authorities = authorities;
+	}
+
+	// The principal described by the verified claims of a token, without loading the user
+	public static UserPrincipal fromClaims(Long userId, String username, Collection<String> roles) {
+		Users user = new Users();
+		user.setId(userId);
+		user.setUsername(username);
+		List<SimpleGrantedAuthority> authorities = roles.stream().map(SimpleGrantedAuthority::new).toList();
+		return new UserPrincipal(user, authorities);
+	}
+
+	// Id of the user a request principal was authenticated as, null when it carries none (then look the user up by name)
+	public static Long userId(Principal principal) {
+		if(principal instanceof Authentication authentication && authentication.getPrincipal() instanceof UserPrincipal user) {
+			return user.getUserId();
+		}
+		return null;
+	}
+
+	public Long getUserId() {
+		return user.getId();
 	}
 
 	@Override
 	public Collection<? extends GrantedAuthority> getAuthorities() {
-		return Collections.singleton(new SimpleGrantedAuthority("USER"));
+		return authorities;
 	}
 
 	@Override
@@ -29,4 +59,4 @@ public class UserPrincipal implements UserDetails {
 		return user.getUsername();
 	}
 	
-}
\ No newline at end of file
+}
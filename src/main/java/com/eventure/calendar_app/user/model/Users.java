@@ -1,5 +1,9 @@
 package com.eventure.calendar_app.user.model;
 
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -30,4 +34,12 @@ public class Users {
 	private String provider;	// e.g. "google", "github"
 	private String providerId;	// provider's user id
 	private String roles; // comma separated roles "ROLE_USER,ROLE_ADMIN"
+
+	// Incremented on every committed change of the events or calendars of the user, the ETag of the listings and
+	// of the all-calendars .ics feed
+	@JsonIgnore
+	private Long changeVersion;
+
+	@JsonIgnore
+	private Instant changedAt;
 }
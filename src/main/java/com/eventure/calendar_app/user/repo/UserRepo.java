@@ -1,10 +1,47 @@
 package com.eventure.calendar_app.user.repo;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.common.UserVersion;
 import com.eventure.calendar_app.user.model.Users;
 
 public interface UserRepo extends JpaRepository<Users, Long> {
     Users findByUsername(String username);
     Users findByEmail(String email);
+
+    // The change version of the user alone, without loading the entity
+    @Query("select new com.eventure.calendar_app.common.ChangeVersion(u.id, coalesce(u.changeVersion, 0L), u.changedAt) from Users u where u.username = :username")
+    ChangeVersion findChangeVersion(@Param("username") String username);
+
+    // The change versions of several users in one query, unknown usernames are left out
+    @Query("select new com.eventure.calendar_app.common.UserVersion(u.username, coalesce(u.changeVersion, 0L)) from Users u where u.username in :usernames")
+    List<UserVersion> findChangeVersions(@Param("usernames") Collection<String> usernames);
+
+    // Which of the usernames exist, in one query
+    @Query("select u.username from Users u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    // The owner of a write. By the id from the token it is a reference after a primary-key lookup, so that the still
+    // valid token of a deleted user is "user not found" instead of a foreign key violation at commit; by username without an id
+    default Users findOwner(Long userId, String username) {
+        if(userId == null) {
+            return findByUsername(username);
+        }
+        return existsById(userId) ? getReferenceById(userId) : null;
+    }
+
+    // Move the change version of the users one step on, in one statement
+    @Modifying
+    @Transactional
+    @Query("update Users u set u.changeVersion = coalesce(u.changeVersion, 0) + 1, u.changedAt = :now where u.username in :usernames")
+    int bumpChangeVersion(@Param("usernames") Collection<String> usernames, @Param("now") Instant now);
 }
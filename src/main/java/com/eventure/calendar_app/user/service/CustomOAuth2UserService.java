@@ -30,9 +30,12 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     private final JWTService jwtService;
 
-    public CustomOAuth2UserService(UserRepo userRepo, JWTService jwtService) {
+    private final MyUserDetailsService userDetailsService;
+
+    public CustomOAuth2UserService(UserRepo userRepo, JWTService jwtService, MyUserDetailsService userDetailsService) {
         this.userRepo = userRepo;
         this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
     }
 
     /**
@@ -80,6 +83,7 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             user.setPassword("OAUTH2_USER"); // not used for oauth logins
             user.setRoles("ROLE_USER");
             userRepo.save(user);
+            userDetailsService.evict(user.getUsername());
         } else {
             // Update existing user info (e.g., name changed at provider)
             boolean changed = false;
@@ -97,6 +101,8 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
             if(changed) {
                 userRepo.save(user);
+                // Drop the cached principal with the old values
+                userDetailsService.evict(user.getUsername());
             }
         }
 
@@ -1,6 +1,8 @@
 package com.eventure.calendar_app.user.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -9,15 +11,43 @@ import org.springframework.stereotype.Service;
 import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
+// Loads the principal of a user for the JWT filter and for logins.
+// Principals are cached for a short time so an authenticated request does not look up its user again; the writes
+// to Users (registration, OAuth2 logins) evict the user, the TTL covers anything else. Unknown users are not cached.
+// Published as the "users.principals" cache metrics, every hit is a database lookup saved.
 @Service
 public class MyUserDetailsService implements UserDetailsService {
 
-	@Autowired
-	private UserRepo repo; 
+	private UserRepo repo;
+	private Cache<String, UserPrincipal> principals;
+
+	public MyUserDetailsService(UserRepo repo,
+								@Value("${app.principals.max-users:10000}") long maxUsers,
+								@Value("${app.principals.ttl-seconds:60}") long ttlSeconds,
+								MeterRegistry meterRegistry) {
+		this.repo = repo;
+		this.principals = Caffeine.newBuilder()
+				.maximumSize(maxUsers)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, principals, "users.principals");
+	}
 
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+		UserPrincipal cached = username != null ? principals.getIfPresent(username) : null;
+		if(cached != null) {
+			return cached;
+		}
+
 		Users user = repo.findByUsername(username);
 
 		if(user == null) {
@@ -25,7 +55,15 @@ public class MyUserDetailsService implements UserDetailsService {
 			throw new UsernameNotFoundException("User not found");
 		}
 
-		return new UserPrincipal(user);
+		UserPrincipal principal = new UserPrincipal(user);
+		principals.put(username, principal);
+		return principal;
+	}
+
+	// The user was written, the next load reads it again
+	public void evict(String username) {
+		if(username != null) {
+			principals.invalidate(username);
+		}
 	}
-	
-}
\ No newline at end of file
+}
@@ -8,6 +8,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.eventure.calendar_app.auth.service.JWTService;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
@@ -23,12 +24,17 @@ public class UserService {
 	@Autowired
 	AuthenticationManager authManager;
 
+	@Autowired
+	private MyUserDetailsService userDetailsService;
+
 	private BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(12);
 
 	public Users register( Users user)  {
 		// Encode the password using BCryptPasswordEncoder
 		user.setPassword(encoder.encode(user.getPassword()));
-		return repo.save(user);
+		Users saved = repo.save(user);
+		userDetailsService.evict(saved.getUsername());
+		return saved;
 	}
 
 	// Verify the user on login. If the user is authenticated, generate JWT token. If not, fail.
@@ -36,9 +42,21 @@ public class UserService {
 		Authentication authentication = authManager.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()));
 
 		if(authentication.isAuthenticated()) {
+			// The authenticated principal has the id and roles for the token claims
+			if(authentication.getPrincipal() instanceof UserPrincipal principal) {
+				return jwtService.generateToken(principal);
+			}
 			return jwtService.generateToken(user.getUsername());
 		}
 
 		return "fail";
     }
+
+	// Log out by revoking the token of the request, false when there is no valid token to revoke
+	public boolean logout(String authHeader) {
+		if(authHeader == null || !authHeader.startsWith("Bearer ")) {
+			return false;
+		}
+		return jwtService.revoke(authHeader.substring(7));
+	}
 }
@@ -0,0 +1,153 @@
+package com.eventure.calendar_app;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.sync.model.Tombstones;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A batch of writes must reach the database in a fixed number of statements, not one per operation
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "testuser")
+public class EventBatchStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    private Statistics statistics;
+
+    private List<Events> existing;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = userRepo.save(user);
+
+        for(int i = 0; i < 10; i++) {
+            Events event = new Events();
+            event.setTitle("Existing " + i);
+            event.setStartTime(LocalDateTime.of(2024, 3, 1 + i, 9, 0));
+            event.setEndTime(LocalDateTime.of(2024, 3, 1 + i, 10, 0));
+            event.setCreatedBy(user);
+            eventRepo.save(event);
+        }
+        existing = eventRepo.findAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void applyBatch_ShouldSendTheWritesInJdbcBatches() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for(int i = 0; i < 30; i++) {
+            body.append("""
+                    {"action": "CREATE", "event": {"title": "New %d", "startTime": "2024-04-%02dT09:00:00", "endTime": "2024-04-%02dT10:00:00"}},
+                    """.formatted(i, 1 + i, 1 + i));
+        }
+        for(int i = 0; i < 5; i++) {
+            body.append("""
+                    {"action": "UPDATE", "id": %d, "event": {"title": "Renamed", "startTime": "2024-03-20T09:00:00", "endTime": "2024-03-20T10:00:00"}},
+                    """.formatted(existing.get(i).getId()));
+        }
+        for(int i = 5; i < 10; i++) {
+            body.append("""
+                    {"action": "DELETE", "id": %d},
+                    """.formatted(existing.get(i).getId()));
+        }
+        body.append("""
+                {"action": "DELETE", "id": %d}
+                ]""".formatted(existing.get(5).getId()));
+
+        mockMvc.perform(post("/api/events/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(41))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[30].status").value(200))
+                .andExpect(jsonPath("$[35].status").value(204))
+                .andExpect(jsonPath("$[40].status").value(404));
+
+        // 30 created, 5 renamed and 5 deleted
+        assertThat(eventRepo.count()).isEqualTo(35);
+        assertThat(eventRepo.findAll()).filteredOn(event -> "Renamed".equals(event.getTitle())).hasSize(5);
+
+        // 40 writes in a handful of statements: the user, the targeted events, id blocks from the sequence,
+        // one occurrence cleanup for the updated events, one batched insert, one batched update and the two deletes,
+        // plus the sync bookkeeping at commit: the new user version, one stamp update and the batched tombstones
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(15);
+        assertThat(statistics.getEntityStatistics(Events.class.getName()).getInsertCount()).isEqualTo(30);
+        assertThat(statistics.getEntityStatistics(Tombstones.class.getName()).getInsertCount()).isEqualTo(5);
+    }
+
+    @Test
+    void applyBatch_WhenCreatesAndUpdatesInterleave_ShouldStillBatchTheWrites() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for(int i = 0; i < 10; i++) {
+            body.append(i > 0 ? "," : "").append("""
+                    {"action": "CREATE", "event": {"title": "New %d", "startTime": "2024-04-%02dT09:00:00", "endTime": "2024-04-%02dT10:00:00"}},
+                    {"action": "UPDATE", "id": %d, "event": {"title": "Renamed", "startTime": "2024-03-20T09:00:00", "endTime": "2024-03-20T10:00:00"}}
+                    """.formatted(i, 1 + i, 1 + i, existing.get(i).getId()));
+        }
+        body.append("]");
+
+        mockMvc.perform(post("/api/events/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(20));
+
+        assertThat(eventRepo.count()).isEqualTo(20);
+        assertThat(eventRepo.findAll()).filteredOn(event -> "Renamed".equals(event.getTitle())).hasSize(10);
+
+        // An occurrence cleanup per update would add a statement each and flush the pending inserts between them
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(13);
+        assertThat(statistics.getEntityStatistics(Events.class.getName()).getInsertCount()).isEqualTo(10);
+    }
+}
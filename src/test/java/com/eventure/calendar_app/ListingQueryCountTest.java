@@ -0,0 +1,155 @@
+package com.eventure.calendar_app;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Listings must load in a fixed number of statements, whatever the number of users and calendars involved.
+// Open-in-view is off, so a lazy load during serialization fails the request instead of issuing a query.
+// Every listing also reads the change version of the user for its ETag, one more statement.
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.open-in-view=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "testuser")
+public class ListingQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    // The change version behind the ETag
+    private static final long VERSION_QUERY = 1;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = userRepo.save(user);
+
+        for(int c = 0; c < 3; c++) {
+            Calendars calendar = new Calendars();
+            calendar.setName("Calendar " + c);
+            calendar.setOwner(user);
+            calendar = calendarRepo.save(calendar);
+
+            for(int e = 0; e < 4; e++) {
+                Events event = new Events();
+                event.setTitle("Event " + c + "-" + e);
+                event.setStartTime(LocalDateTime.of(2024, 3, 1 + e, 9 + c, 0));
+                event.setEndTime(LocalDateTime.of(2024, 3, 1 + e, 10 + c, 0));
+                event.setCreatedBy(user);
+                event.setCalendar(calendar);
+                if(e == 0) {
+                    event.setRecurrenceRule("FREQ=WEEKLY;COUNT=4");
+                }
+                eventRepo.save(event);
+            }
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void getEvents_ShouldLoadEventsWithUsersAndCalendarsInOneStatement() throws Exception {
+        mockMvc.perform(get("/api/events"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12 + 3 * 3))
+                .andExpect(jsonPath("$[0].calendar.name").exists())
+                .andExpect(jsonPath("$[0].createdBy.username").value("testuser"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + VERSION_QUERY);
+    }
+
+    @Test
+    void getEventsInWindow_ShouldLoadInTwoStatements() throws Exception {
+        mockMvc.perform(get("/api/events")
+                        .param("from", "2024-03-01T00:00:00")
+                        .param("to", "2024-04-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12 + 3 * 3));
+
+        // Single events and recurring series, none of the series is materialized
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2 + VERSION_QUERY);
+    }
+
+    @Test
+    void getEventPages_ShouldLoadEveryPageInTwoStatements() throws Exception {
+        String first = mockMvc.perform(get("/api/events").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(5))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(first, "$.next");
+
+        statistics.clear();
+        mockMvc.perform(get("/api/events").param("limit", "5").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(5))
+                .andExpect(jsonPath("$.next").isString());
+
+        // Single events after the cursor and recurring series, none of the series is materialized
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2 + VERSION_QUERY);
+    }
+
+    @Test
+    void getCalendars_ShouldLoadCalendarsWithOwnersInOneStatement() throws Exception {
+        mockMvc.perform(get("/api/calendars"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].owner.username").value("testuser"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + VERSION_QUERY);
+    }
+}
@@ -0,0 +1,51 @@
+package com.eventure.calendar_app.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_ShouldFindEveryPutString() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        List<String> ids = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        ids.forEach(filter::put);
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void mightContain_ShouldKeepFalsePositivesNearTheProbability() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for(int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for(int i = 0; i < 100_000; i++) {
+            if(filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // 1% expected, with a wide margin for chance
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void mightContain_WhenEmpty_ShouldFindNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertThat(filter.mightContain("")).isFalse();
+        assertThat(filter.mightContain("jti")).isFalse();
+    }
+}
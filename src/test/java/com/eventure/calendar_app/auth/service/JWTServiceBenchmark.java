@@ -0,0 +1,99 @@
+package com.eventure.calendar_app.auth.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Verification of the bearer token of one request.
+// "previous" is the path before the prebuilt parser: the filter called extractUserName and validateToken, which
+// parsed the token three times, each time decoding the Base64 key and building a new parser.
+// "parsed" verifies once with the prebuilt parser (no cache), "cached" is a repeated token served from the cache.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.eventure.calendar_app.auth.service.JWTServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTServiceBenchmark {
+
+    private static final String USERNAME = "alice@example.com";
+
+    private String secretkey;
+    private String previousToken;
+
+    private JWTService uncachedService;
+    private JWTService cachedService;
+    private String uncachedToken;
+    private String cachedToken;
+
+    @Setup
+    public void setUp() {
+        secretkey = Base64.getEncoder().encodeToString(Jwts.SIG.HS256.key().build().getEncoded());
+        previousToken = Jwts.builder()
+                .subject(USERNAME)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 1000L * 60 * 60 * 10))
+                .signWith(previousKey())
+                .compact();
+
+        uncachedService = new JWTService(new KeyRing(KeyRingTest.repo(new ConcurrentHashMap<>()), "HS256", 30, 5), RevocationListTest.revocations(), 0, 5, new SimpleMeterRegistry());
+        uncachedToken = uncachedService.generateToken(USERNAME);
+        cachedService = new JWTService(new KeyRing(KeyRingTest.repo(new ConcurrentHashMap<>()), "HS256", 30, 5), RevocationListTest.revocations(), 10_000, 5, new SimpleMeterRegistry());
+        cachedToken = cachedService.generateToken(USERNAME);
+        cachedService.verify(cachedToken);
+    }
+
+    @Benchmark
+    public boolean previous() {
+        String username = previousClaims().getSubject();
+        return username.equals(previousClaims().getSubject()) && !previousClaims().getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public JWTService.VerifiedToken parsed() {
+        return uncachedService.verify(uncachedToken);
+    }
+
+    @Benchmark
+    public JWTService.VerifiedToken cached() {
+        return cachedService.verify(cachedToken);
+    }
+
+    private Claims previousClaims() {
+        return Jwts.parser()
+                .verifyWith(previousKey())
+                .build()
+                .parseSignedClaims(previousToken)
+                .getPayload();
+    }
+
+    private SecretKey previousKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretkey));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JWTServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -2,15 +2,22 @@ package com.eventure.calendar_app.auth.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Instant;
 import java.util.Collections;
+import java.util.Date;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.eventure.calendar_app.user.model.UserPrincipal;
+import com.eventure.calendar_app.user.model.Users;
+
+import io.jsonwebtoken.Jwts;
+
 class JWTServiceTest {
 
-    private final JWTService jwtService = new JWTService();
+    private final JWTService jwtService = KeyRingTest.jwtService();
 
     @Test
     void testGenerateToken() {
@@ -46,4 +53,69 @@ class JWTServiceTest {
         assertThat(jwtService.validateToken(token, matchingUser)).isTrue();
         assertThat(jwtService.validateToken(token, otherUser)).isFalse();
     }
+
+    @Test
+    void testVerifyCachesVerifiedTokens() {
+        String token = jwtService.generateToken("alice@example.com");
+
+        JWTService.VerifiedToken first = jwtService.verify(token);
+        JWTService.VerifiedToken second = jwtService.verify(token);
+
+        assertThat(first.username()).isEqualTo("alice@example.com");
+        assertThat(first.expiresAt()).isAfter(Instant.now());
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void testGenerateTokenForPrincipalCarriesUserIdAndRoles() {
+        Users user = new Users();
+        user.setId(7L);
+        user.setUsername("alice@example.com");
+
+        JWTService.VerifiedToken withClaims = jwtService.verify(jwtService.generateToken(new UserPrincipal(user)));
+        JWTService.VerifiedToken usernameOnly = jwtService.verify(jwtService.generateToken("bob@example.com"));
+
+        assertThat(withClaims.username()).isEqualTo("alice@example.com");
+        assertThat(withClaims.userId()).isEqualTo(7L);
+        assertThat(withClaims.roles()).containsExactly("USER");
+        assertThat(usernameOnly.userId()).isNull();
+        assertThat(usernameOnly.roles()).isEmpty();
+    }
+
+    @Test
+    void testVerifyRejectsInvalidTokens() {
+        String token = jwtService.generateToken("alice@example.com");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String otherKey = Jwts.builder()
+                .subject("alice@example.com")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Jwts.SIG.HS256.key().build())
+                .compact();
+
+        assertThat(jwtService.verify(tampered)).isNull();
+        assertThat(jwtService.verify(otherKey)).isNull();
+        assertThat(jwtService.verify("not-a-token")).isNull();
+        assertThat(jwtService.extractUserName("not-a-token")).isNull();
+    }
+
+    @Test
+    void testRevokeRejectsTheTokenEvenWhenCached() {
+        String token = jwtService.generateToken("alice@example.com");
+        String other = jwtService.generateToken("alice@example.com");
+        assertThat(jwtService.verify(token)).isNotNull();
+
+        assertThat(jwtService.revoke(token)).isTrue();
+
+        assertThat(jwtService.verify(token)).isNull();
+        assertThat(jwtService.revoke(token)).isFalse();
+        // Every token has its own id, the other token of the user stays valid
+        assertThat(jwtService.verify(other).id()).isNotNull();
+        assertThat(jwtService.verify(other).username()).isEqualTo("alice@example.com");
+    }
+
+    @Test
+    void testRevokeRejectsTokensWithoutId() {
+        assertThat(jwtService.revoke("not-a-token")).isFalse();
+        assertThat(jwtService.revoke(null)).isFalse();
+    }
 }
@@ -0,0 +1,147 @@
+package com.eventure.calendar_app.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import com.eventure.calendar_app.auth.model.SigningKeys;
+import com.eventure.calendar_app.auth.repo.SigningKeyRepo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class KeyRingTest {
+
+    // The SigningKeys table shared by the nodes of a test
+    private final Map<String, SigningKeys> table = new ConcurrentHashMap<>();
+
+    @Test
+    void newRing_ShouldCreateFirstKeyOnlyOnce() {
+        KeyRing first = new KeyRing(repo(table), "HS256", 30, 5);
+        KeyRing second = new KeyRing(repo(table), "HS256", 30, 5);
+
+        assertThat(table).hasSize(1);
+        assertThat(second.signingKey().kid()).isEqualTo(first.signingKey().kid());
+    }
+
+    @Test
+    void tokens_ShouldVerifyOnEveryNodeSharingTheKeys() {
+        JWTService nodeA = jwtService(new KeyRing(repo(table), "HS256", 30, 5));
+        JWTService nodeB = jwtService(new KeyRing(repo(table), "HS256", 30, 5));
+
+        String token = nodeA.generateToken("alice@example.com");
+
+        assertThat(nodeB.verify(token).username()).isEqualTo("alice@example.com");
+    }
+
+    @Test
+    void rotate_ShouldPublishNewKeyBeforeSigningAndKeepOldKeyForATokenLifetime() {
+        KeyRing ring = new KeyRing(repo(table), "HS256", 30, 5);
+        JWTService service = jwtService(ring);
+        String oldKid = ring.signingKey().kid();
+        String oldToken = service.generateToken("alice@example.com");
+
+        ring.rotate();
+
+        SigningKeys next = table.values().stream().filter(key -> !key.getKid().equals(oldKid)).findFirst().orElseThrow();
+        // Known to every node, but not used before its activation
+        assertThat(ring.signingKey().kid()).isEqualTo(oldKid);
+        assertThat(ring.verificationKey(next.getKid())).isNotNull();
+        assertThat(next.getActivatesAt()).isAfter(Instant.now());
+        assertThat(table.get(oldKid).getRetiresAt()).isEqualTo(next.getActivatesAt().plus(JWTService.TOKEN_LIFETIME));
+        assertThat(service.verify(oldToken)).isNotNull();
+    }
+
+    @Test
+    void rotate_WithoutActivationDelay_ShouldSignWithNewKeyAndStillVerifyOldTokens() {
+        KeyRing ring = new KeyRing(repo(table), "HS256", 30, 0);
+        JWTService service = jwtService(ring);
+        String oldKid = ring.signingKey().kid();
+        String oldToken = service.generateToken("alice@example.com");
+
+        ring.rotate();
+        String newToken = service.generateToken("bob@example.com");
+
+        assertThat(ring.signingKey().kid()).isNotEqualTo(oldKid);
+        assertThat(service.verify(oldToken).username()).isEqualTo("alice@example.com");
+        assertThat(service.verify(newToken).username()).isEqualTo("bob@example.com");
+    }
+
+    @Test
+    void verificationKey_WhenKeyRetired_ShouldNotVerify() {
+        KeyRing ring = new KeyRing(repo(table), "HS256", 30, 0);
+        String kid = ring.signingKey().kid();
+        String token = jwtService(ring).generateToken("alice@example.com");
+
+        // A rotation with no activation delay retires the old key one token lifetime later, here it is already over
+        ring.rotate();
+        table.get(kid).setRetiresAt(Instant.now().minusSeconds(1));
+        ring.refresh();
+
+        assertThat(ring.verificationKey(kid)).isNull();
+        assertThat(table).doesNotContainKey(kid);
+        assertThat(jwtService(ring).verify(token)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS512", "RS256", "PS256", "ES256", "EdDSA"})
+    void tokens_ShouldRoundTripWithStoredKeysOfEveryAlgorithm(String algorithm) {
+        JWTService issuer = jwtService(new KeyRing(repo(table), algorithm, 30, 5));
+        JWTService verifier = jwtService(new KeyRing(repo(table), algorithm, 30, 5));
+
+        String token = issuer.generateToken("alice@example.com");
+
+        assertThat(verifier.verify(token).username()).isEqualTo("alice@example.com");
+        assertThat(table.values().iterator().next().getAlgorithm()).isEqualTo(algorithm);
+    }
+
+    @Test
+    void newRing_WithUnknownAlgorithm_ShouldFail() {
+        assertThatThrownBy(() -> new KeyRing(repo(table), "XS999", 30, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // A JWTService on a single new key, for tests that only need working tokens
+    static JWTService jwtService() {
+        return jwtService(new KeyRing(repo(new ConcurrentHashMap<>()), "HS256", 30, 5));
+    }
+
+    static JWTService jwtService(KeyRing ring) {
+        return new JWTService(ring, RevocationListTest.revocations(), 1000, 5, new SimpleMeterRegistry());
+    }
+
+    // A repository over the map, like the table it stands for the rows are shared and updated in place
+    static SigningKeyRepo repo(Map<String, SigningKeys> table) {
+        SigningKeyRepo repo = mock(SigningKeyRepo.class);
+        when(repo.findAll()).thenAnswer(invocation -> new ArrayList<>(table.values()));
+        when(repo.save(any(SigningKeys.class))).thenAnswer(invocation -> {
+            SigningKeys key = invocation.getArgument(0);
+            table.put(key.getKid(), key);
+            return key;
+        });
+        when(repo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<SigningKeys> keys = invocation.getArgument(0);
+            keys.forEach(key -> table.put(key.getKid(), key));
+            return keys;
+        });
+        when(repo.deleteRetiredBefore(any(Instant.class))).thenAnswer(invocation -> {
+            Instant cutoff = invocation.getArgument(0);
+            int before = table.size();
+            table.values().removeIf(key -> key.getRetiresAt() != null && key.getRetiresAt().isBefore(cutoff));
+            return before - table.size();
+        });
+        return repo;
+    }
+}
@@ -0,0 +1,116 @@
+package com.eventure.calendar_app.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.eventure.calendar_app.auth.model.RevokedTokens;
+import com.eventure.calendar_app.auth.repo.RevokedTokenRepo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RevocationListTest {
+
+    // The RevokedTokens table shared by the nodes of a test
+    private final Map<String, RevokedTokens> table = new ConcurrentHashMap<>();
+    private final RevokedTokenRepo repo = repo(table);
+
+    @Test
+    void isRevoked_WhenNeverRevoked_ShouldNotQueryTheTable() {
+        RevocationList revocations = revocations(repo, 60);
+
+        revocations.revoke("revoked", Instant.now().plusSeconds(3600));
+
+        assertThat(revocations.isRevoked("revoked")).isTrue();
+        for(int i = 0; i < 1000; i++) {
+            assertThat(revocations.isRevoked("token-" + i)).isFalse();
+        }
+        assertThat(revocations.isRevoked(null)).isFalse();
+        // Answered from memory, the revocation made here included
+        verify(repo, never()).existsById("revoked");
+    }
+
+    @Test
+    void isRevoked_ShouldReachOtherNodesOnTheirNextRefresh() {
+        RevocationList nodeA = revocations(repo, 60);
+        RevocationList nodeB = revocations(repo, 60);
+
+        nodeA.revoke("jti-1", Instant.now().plusSeconds(3600));
+
+        assertThat(nodeB.isRevoked("jti-1")).isFalse();
+        nodeB.refresh();
+        assertThat(nodeB.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void isRevoked_WhenFilterMightContain_ShouldAskTheTableOnce() {
+        RevocationList nodeA = revocations(repo, 60);
+        RevocationList nodeB = revocations(repo, 60);
+        nodeA.revoke("jti-1", Instant.now().plusSeconds(3600));
+        nodeB.refresh();
+        // Gone from the table (expired on another node) while still in the filter of this one
+        table.clear();
+
+        assertThat(nodeB.isRevoked("jti-1")).isFalse();
+        assertThat(nodeB.isRevoked("jti-1")).isFalse();
+
+        verify(repo, times(1)).existsById("jti-1");
+    }
+
+    @Test
+    void refresh_ShouldDeleteExpiredRevocationsAndRebuildTheFilter() {
+        RevocationList revocations = revocations(repo, 0);
+        revocations.revoke("expired", Instant.now().minusSeconds(1));
+        revocations.revoke("current", Instant.now().plusSeconds(3600));
+
+        revocations.refresh();
+
+        assertThat(table).containsOnlyKeys("current");
+        assertThat(revocations.isRevoked("current")).isTrue();
+        assertThat(revocations.isRevoked("expired")).isFalse();
+        verify(repo, never()).existsById("expired");
+    }
+
+    static RevocationList revocations() {
+        return revocations(repo(new ConcurrentHashMap<>()), 60);
+    }
+
+    static RevocationList revocations(RevokedTokenRepo repo, long rebuildMinutes) {
+        return new RevocationList(repo, 1000, rebuildMinutes, new SimpleMeterRegistry());
+    }
+
+    // A repository over the map, the rows are shared like those of the table it stands for
+    static RevokedTokenRepo repo(Map<String, RevokedTokens> table) {
+        RevokedTokenRepo repo = mock(RevokedTokenRepo.class);
+        when(repo.findAllIds()).thenAnswer(invocation -> new ArrayList<>(table.keySet()));
+        when(repo.findIdsRevokedAfter(any(Instant.class))).thenAnswer(invocation -> {
+            Instant since = invocation.getArgument(0);
+            return table.values().stream().filter(token -> token.getRevokedAt().isAfter(since)).map(RevokedTokens::getJti).toList();
+        });
+        when(repo.existsById(anyString())).thenAnswer(invocation -> table.containsKey(invocation.<String>getArgument(0)));
+        when(repo.save(any(RevokedTokens.class))).thenAnswer(invocation -> {
+            RevokedTokens token = invocation.getArgument(0);
+            table.put(token.getJti(), token);
+            return token;
+        });
+        when(repo.deleteExpiredBefore(any(Instant.class))).thenAnswer(invocation -> {
+            Instant cutoff = invocation.getArgument(0);
+            int before = table.size();
+            table.values().removeIf(token -> token.getExpiresAt().isBefore(cutoff));
+            return before - table.size();
+        });
+        return repo;
+    }
+}
@@ -4,12 +4,17 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.nio.file.AccessDeniedException;
@@ -26,12 +31,17 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.service.CalendarService;
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.common.CursorPage;
 import com.eventure.calendar_app.config.jwtFilter;
 import com.eventure.calendar_app.testconfig.TestSecurityConfig;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(value = CalendarController.class, 
@@ -45,6 +55,9 @@ public class CalendarControllerTest {
     @MockBean
     private CalendarService calendarService;
 
+    @MockBean
+    private CalendarVersionService versions;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,7 +77,7 @@ public class CalendarControllerTest {
     @Test
     void createCalendar_WhenValidCalendarProvided_ShouldReturnsCreatedStatus() throws Exception {
         // Arrange
-        doNothing().when(calendarService).createCalendar(any(Calendars.class), any());
+        doNothing().when(calendarService).createCalendar(any(Calendars.class), any(), any());
 
         // Act & Assert
         mockMvc.perform(post("/api/calendars")
@@ -74,11 +87,27 @@ public class CalendarControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void createCalendar_WhenAuthenticatedByToken_ShouldPassTheUserIdOfThePrincipal() throws Exception {
+        // Arrange
+        UserPrincipal principal = UserPrincipal.fromClaims(7L, "testuser", List.of("USER"));
+
+        // Act
+        mockMvc.perform(post("/api/calendars")
+                .with(authentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testCalendar)))
+                .andExpect(status().isCreated());
+
+        // Assert
+        verify(calendarService).createCalendar(any(Calendars.class), eq(7L), eq("testuser"));
+    }
+
     @Test
     void createCalendar_WhenUserNotFound_ShouldReturnNotFoundStatus() throws Exception {
         // Arrange
         doThrow(new IllegalArgumentException("user not found: testuser"))
-            .when(calendarService).createCalendar(any(Calendars.class), any());
+            .when(calendarService).createCalendar(any(Calendars.class), any(), any());
 
         // Act & Assert
         mockMvc.perform(post("/api/calendars")
@@ -93,7 +122,7 @@ public class CalendarControllerTest {
     void createCalendar_WhenUnexpectedErrorOccurs_ShouldReturnInternalServerErrorStatus() throws Exception {
         // Arrange
         doThrow(new RuntimeException("Unexpected error"))
-            .when(calendarService).createCalendar(any(Calendars.class), any());
+            .when(calendarService).createCalendar(any(Calendars.class), any(), any());
 
         // Act & Assert
         mockMvc.perform(post("/api/calendars")
@@ -117,6 +146,35 @@ public class CalendarControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
 
+    @Test
+    void getAllCalendars_WhenEtagMatches_ShouldReturnNotModified() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(1L, 4L, null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars")
+                .principal(mockPrincipal)
+                .header("If-None-Match", "W/\"u1-v4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"u1-v4\""));
+        verify(calendarService, never()).getAllCalendars(any());
+    }
+
+    @Test
+    void getAllCalendars_WhenVersionChanged_ShouldReturnCalendarsWithNewEtag() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(1L, 5L, null));
+        when(calendarService.getAllCalendars(any())).thenReturn(List.of(testCalendar));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars")
+                .principal(mockPrincipal)
+                .header("If-None-Match", "W/\"u1-v4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"u1-v5\""))
+                .andExpect(jsonPath("$[0].name").value("Test Calendar"));
+    }
+
     @Test
     void getAllCalendars_WhenUnexpectedErrorOccurs_ShouldReturnInternalServerErrorStatus() throws Exception {
         // Arrange
@@ -130,6 +188,21 @@ public class CalendarControllerTest {
                 .andExpect(content().string("Unexpected error"));
     }
 
+    @Test
+    void getAllCalendars_WhenLimitGiven_ShouldReturnPage() throws Exception {
+        // Arrange
+        when(calendarService.getCalendarPage(any(), eq(null), eq(1)))
+            .thenReturn(new CursorPage<>(List.of(testCalendar), "next"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars")
+                .param("limit", "1")
+                .principal(mockPrincipal))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Test Calendar"))
+                .andExpect(jsonPath("$.next").value("next"));
+    }
+
     @Test
     void updateCalendar_WhenValidCalendarProvided_ShouldReturnNoContentStatus() throws Exception {
         // Arrange
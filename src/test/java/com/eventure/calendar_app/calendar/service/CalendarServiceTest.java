@@ -14,13 +14,17 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.CursorPage;
+import com.eventure.calendar_app.common.Cursors;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
@@ -30,9 +34,13 @@ public class CalendarServiceTest {
     @Mock
     private CalendarRepo calendarRepo;
 
-    @Mock
+    // The owner lookup is a default method of the repository
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private UserRepo userRepo;
 
+    @Mock
+    private CalendarVersionService versions;
+
     @InjectMocks
     private CalendarService calendarService;
 
@@ -54,6 +62,34 @@ public class CalendarServiceTest {
         assertThat(savedCalendar.getOwner()).isEqualTo(existingUser);
     }
 
+    @Test
+    void createCalendar_WhenUserIdGiven_ShouldUseUserReferenceWithoutLookup() {
+        Users reference = new Users();
+        reference.setId(7L);
+
+        when(userRepo.existsById(7L)).thenReturn(true);
+        when(userRepo.getReferenceById(7L)).thenReturn(reference);
+
+        calendarService.createCalendar(new Calendars(), 7L, "jane.doe");
+
+        ArgumentCaptor<Calendars> calendarCaptor = ArgumentCaptor.forClass(Calendars.class);
+        verify(calendarRepo).save(calendarCaptor.capture());
+        assertThat(calendarCaptor.getValue().getOwner()).isSameAs(reference);
+        verify(userRepo, never()).findByUsername(any());
+    }
+
+    @Test
+    void createCalendar_WhenUserOfTheTokenWasDeleted_ShouldThrowIllegalArgumentException() {
+        when(userRepo.existsById(7L)).thenReturn(false);
+
+        assertThatThrownBy(() -> calendarService.createCalendar(new Calendars(), 7L, "jane.doe"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("user not found: jane.doe");
+
+        verify(userRepo, never()).getReferenceById(any());
+        verify(calendarRepo, never()).save(org.mockito.ArgumentMatchers.any());
+    }
+
     @Test
     void createCalendar_WhenUserMissing_ShouldThrowIllegalArgumentException() {
         when(userRepo.findByUsername("missing")).thenReturn(null);
@@ -140,6 +176,7 @@ public class CalendarServiceTest {
         
         // Assert
         verify(calendarRepo).save(existingCalendar);
+        verify(versions).calendarChanged(calendarId, username);
         assertThat(existingCalendar.getName()).isEqualTo("New Name");
         assertThat(existingCalendar.getColor()).isEqualTo("#0000FF");
         assertThat(existingCalendar.getId()).isEqualTo(calendarId);
@@ -225,6 +262,7 @@ public class CalendarServiceTest {
         
         // Assert
         verify(calendarRepo).deleteById(calendarId);
+        verify(versions).calendarDeleted(calendarId, username);
     }
     
     @Test
@@ -305,4 +343,38 @@ public class CalendarServiceTest {
             
         verify(calendarRepo, never()).deleteById(any());
     }
+
+    @Test
+    void getCalendarPage_WhenMoreCalendarsExist_ShouldReturnCursorOfLastCalendar() {
+        // Arrange
+        List<Calendars> calendars = new java.util.ArrayList<>();
+        for(int id = 5; id <= 7; id++) {
+            Calendars calendar = new Calendars();
+            calendar.setId(id);
+            calendars.add(calendar);
+        }
+
+        when(calendarRepo.findByOwner_UsernameAndIdGreaterThanOrderByIdAsc("testuser", Integer.MIN_VALUE, PageRequest.of(0, 3)))
+            .thenReturn(calendars);
+        when(calendarRepo.findByOwner_UsernameAndIdGreaterThanOrderByIdAsc("testuser", 6, PageRequest.of(0, 3)))
+            .thenReturn(calendars.subList(2, 3));
+
+        // Act
+        CursorPage<Calendars> first = calendarService.getCalendarPage("testuser", null, 2);
+        CursorPage<Calendars> second = calendarService.getCalendarPage("testuser", first.next(), 2);
+
+        // Assert
+        assertThat(first.items()).extracting(Calendars::getId).containsExactly(5, 6);
+        assertThat(second.items()).extracting(Calendars::getId).containsExactly(7);
+        assertThat(second.next()).isNull();
+    }
+
+    @Test
+    void getCalendarPage_WhenLimitOrCursorInvalid_ShouldThrowIllegalArgumentException() {
+        assertThatThrownBy(() -> calendarService.getCalendarPage("testuser", null, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calendarService.getCalendarPage("testuser", Cursors.encode("x"), 10))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("invalid cursor");
+    }
 }
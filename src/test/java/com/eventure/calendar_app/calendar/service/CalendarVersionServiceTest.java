@@ -0,0 +1,173 @@
+package com.eventure.calendar_app.calendar.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.event.service.EventService;
+import com.eventure.calendar_app.sync.repo.TombstoneRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class CalendarVersionServiceTest {
+
+    @Autowired
+    private CalendarVersionService versionService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    @SpyBean
+    private TombstoneRepo tombstoneRepo;
+
+    private Calendars calendar;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = userRepo.save(user);
+
+        calendar = new Calendars();
+        calendar.setName("Work");
+        calendar.setOwner(user);
+        calendar = calendarRepo.save(calendar);
+    }
+
+    @AfterEach
+    void tearDown() {
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void userVersion_ShouldMoveOnWithEveryCommittedEventAndCalendarWrite() throws Exception {
+        // Given
+        ChangeVersion initial = versionService.userVersion("testuser");
+
+        // When
+        eventService.createEvent(event(), "testuser");
+        ChangeVersion afterEvent = versionService.userVersion("testuser");
+
+        Calendars renamed = new Calendars();
+        renamed.setId(calendar.getId());
+        renamed.setName("Work (renamed)");
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                calendarService.updateCalendar(calendar.getId(), renamed, "testuser");
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        ChangeVersion afterCalendar = versionService.userVersion("testuser");
+
+        // Then
+        assertThat(initial.version()).isZero();
+        assertThat(afterEvent.version()).isEqualTo(1);
+        assertThat(afterEvent.changedAt()).isNotNull();
+        assertThat(afterCalendar.version()).isEqualTo(2);
+        assertThat(afterCalendar.etag()).isNotEqualTo(afterEvent.etag());
+        assertThat(calendarRepo.findById(calendar.getId()).orElseThrow().getChangeVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void userVersion_WhenWriteRolledBack_ShouldKeepVersion() {
+        // Given
+        ChangeVersion before = versionService.userVersion("testuser");
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            eventService.createEvent(event(), "testuser");
+            status.setRollbackOnly();
+        });
+
+        // Then
+        assertThat(versionService.userVersion("testuser")).isEqualTo(before);
+        assertThat(userRepo.findByUsername("testuser").getChangeVersion()).isNull();
+    }
+
+    @Test
+    void userVersion_ShouldSeeWritesCommittedByAnotherNode() {
+        // Given - read once, as a conditional GET on this node would
+        ChangeVersion before = versionService.userVersion("testuser");
+
+        // When - another node commits a write, nothing on this node is told about it
+        userRepo.bumpChangeVersion(List.of("testuser"), Instant.now());
+
+        // Then
+        assertThat(versionService.userVersion("testuser").version()).isEqualTo(before.version() + 1);
+    }
+
+    @Test
+    void deleteCalendar_WhenVersionStepFails_ShouldKeepTheCalendar() {
+        // Given
+        doThrow(new IllegalStateException("tombstones unavailable")).when(tombstoneRepo).saveAll(anyList());
+
+        // When
+        assertThatThrownBy(() -> calendarService.deleteCalendar(calendar.getId(), "testuser"))
+                .hasMessageContaining("tombstones unavailable");
+
+        // Then - the delete and the version bump commit together or not at all
+        assertThat(calendarRepo.existsById(calendar.getId())).isTrue();
+        assertThat(versionService.userVersion("testuser").version()).isZero();
+    }
+
+    @Test
+    void userVersion_WhenUserUnknown_ShouldReturnNull() {
+        assertThat(versionService.userVersion("nobody")).isNull();
+        assertThat(versionService.userVersion(null)).isNull();
+    }
+
+    private Events event() {
+        Events event = new Events();
+        event.setTitle("Planning");
+        event.setStartTime(LocalDateTime.of(2024, 3, 4, 9, 0));
+        event.setEndTime(LocalDateTime.of(2024, 3, 4, 10, 0));
+        event.setIsRecurring(false);
+        Calendars reference = new Calendars();
+        reference.setId(calendar.getId());
+        event.setCalendar(reference);
+        return event;
+    }
+}
@@ -3,6 +3,7 @@ package com.eventure.calendar_app.config;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import jakarta.servlet.FilterChain;
@@ -11,6 +12,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,6 +32,8 @@ import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.eventure.calendar_app.auth.service.JWTService;
+import com.eventure.calendar_app.auth.service.JWTService.VerifiedToken;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.service.MyUserDetailsService;
 
 @ExtendWith(MockitoExtension.class)
@@ -80,22 +85,15 @@ class jwtFilterTest {
     @Test
     void shouldSkipAuthenticationWhenTokenInvalid() throws ServletException, IOException {
         String token = "token";
-        String username = "alice@example.com";
-        UserDetails userDetails = User.withUsername(username)
-                .password("password")
-                .roles("USER")
-                .build();
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.extractUserName(token)).thenReturn(username);
-        when(applicationContext.getBean(MyUserDetailsService.class)).thenReturn(userDetailsService);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.validateToken(token, userDetails)).thenReturn(false);
+        when(jwtService.verify(token)).thenReturn(null);
 
         filter.doFilterInternal(request, response, filterChain);
 
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
-        verify(jwtService).validateToken(token, userDetails);
+        verify(jwtService).verify(token);
+        verify(applicationContext, never()).getBean(MyUserDetailsService.class);
         verify(filterChain).doFilter(request, response);
     }
 
@@ -109,10 +107,9 @@ class jwtFilterTest {
                 .build();
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.extractUserName(token)).thenReturn(username);
+        when(jwtService.verify(token)).thenReturn(new VerifiedToken("jti", username, null, List.of(), Instant.now().plusSeconds(60)));
         when(applicationContext.getBean(MyUserDetailsService.class)).thenReturn(userDetailsService);
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.validateToken(token, userDetails)).thenReturn(true);
 
         filter.doFilterInternal(request, response, filterChain);
 
@@ -126,6 +123,29 @@ class jwtFilterTest {
                 .containsExactlyElementsOf(userDetails.getAuthorities().stream()
                         .map(GrantedAuthority::getAuthority)
                         .toList());
+        // The token is verified once per request
+        verify(jwtService).verify(token);
+        verifyNoMoreInteractions(jwtService);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void shouldAuthenticateFromTokenClaimsWithoutLoadingUser() throws ServletException, IOException {
+        String token = "token";
+        String username = "alice@example.com";
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtService.verify(token)).thenReturn(new VerifiedToken("jti", username, 7L, List.of("USER"), Instant.now().plusSeconds(60)));
+
+        filter.doFilterInternal(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isInstanceOf(UserPrincipal.class);
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        assertThat(principal.getUserId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo(username);
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("USER");
+        verify(applicationContext, never()).getBean(MyUserDetailsService.class);
         verify(filterChain).doFilter(request, response);
     }
 
@@ -137,7 +157,7 @@ class jwtFilterTest {
         SecurityContextHolder.getContext().setAuthentication(existingAuthentication);
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.extractUserName(token)).thenReturn(username);
+        when(jwtService.verify(token)).thenReturn(new VerifiedToken("jti", username, null, List.of(), Instant.now().plusSeconds(60)));
 
         filter.doFilterInternal(request, response, filterChain);
 
@@ -4,32 +4,56 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.assertj.core.api.Assertions.assertThat;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.eventure.calendar_app.common.CursorPage;
+import com.eventure.calendar_app.event.model.EventBatchResult;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventSeries;
 import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.service.ConflictMode;
+import com.eventure.calendar_app.event.service.EventBatchService;
+import com.eventure.calendar_app.event.service.EventIndexService;
 import com.eventure.calendar_app.event.service.EventService;
 import com.eventure.calendar_app.testconfig.TestSecurityConfig;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+// Streamed responses are written on another thread while MockMvc would print them, so printing is off
 @WebMvcTest(EventController.class)
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
 @Import(TestSecurityConfig.class)
 @ContextConfiguration(classes = {EventController.class, TestSecurityConfig.class})
 public class EventControllerTest {
@@ -40,6 +64,15 @@ public class EventControllerTest {
     @MockBean
     private EventService eventService;
 
+    @MockBean
+    private EventIndexService eventIndexService;
+
+    @MockBean
+    private EventBatchService eventBatchService;
+
+    @MockBean
+    private CalendarVersionService versions;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -53,7 +86,7 @@ public class EventControllerTest {
         
         Principal principal = () -> "testuser";
         
-        doNothing().when(eventService).createEvent(any(Events.class), anyString());
+        when(eventService.createEvent(any(Events.class), any(), any(), eq(ConflictMode.IGNORE))).thenReturn(List.of());
 
         // Act & Assert
         mockMvc.perform(post("/api/events")
@@ -63,21 +96,120 @@ public class EventControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void createEvent_WhenConflictsRejected_ShouldReturnConflicts() throws Exception {
+        // Arrange
+        Events event = new Events();
+        event.setTitle("Test Event");
+        event.setStartTime(LocalDateTime.of(2024, 3, 4, 9, 30));
+        event.setEndTime(LocalDateTime.of(2024, 3, 4, 10, 30));
+
+        EventOccurrence meeting = new EventOccurrence(7, new EventSeries(7, "Meeting", null, false, null, null),
+                LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 0));
+        when(eventService.createEvent(any(Events.class), any(), any(), eq(ConflictMode.REJECT))).thenReturn(List.of(meeting));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/events")
+                .param("conflicts", "REJECT")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(event)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].id").value("7"))
+                .andExpect(jsonPath("$[0].title").value("Meeting"));
+    }
+
+    @Test
+    void updateEvent_WhenConflictsReported_ShouldReturnConflicts() throws Exception {
+        // Arrange
+        EventOccurrence meeting = new EventOccurrence(7, new EventSeries(7, "Meeting", null, false, null, null),
+                LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 0));
+        when(eventService.updateEvent(eq(1), any(Events.class), any(), eq(ConflictMode.REPORT))).thenReturn(List.of(meeting));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/events/{id}", 1)
+                .param("conflicts", "REPORT")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Events())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("7"));
+    }
+
+    @Test
+    void applyBatch_ShouldReturnOneResultPerOperation() throws Exception {
+        // Arrange
+        when(eventBatchService.apply(any(), any(), any())).thenReturn(List.of(
+                EventBatchResult.succeeded(0, 51, 201),
+                EventBatchResult.failed(1, 9, 404, "event not found: 9")));
+
+        String body = """
+                [
+                  {"action": "CREATE", "event": {"title": "New", "startTime": "2024-03-04T09:00:00"}},
+                  {"action": "DELETE", "id": 9}
+                ]
+                """;
+
+        // Act & Assert
+        mockMvc.perform(post("/api/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(51))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].error").value("event not found: 9"));
+    }
+
     @Test
     void getEvents_WhenEventsExist_ShouldReturnEventsList() throws Exception {
         // Arrange
         Events event1 = new Events();
         event1.setId(1);
         event1.setTitle("Event 1");
+        Events repeated = new Events();
+        repeated.setId(-1);
+        repeated.setTitle("Event 1");
+        repeated.setIsRecurring(true);
         
         Principal principal = () -> "testuser";
         
-        when(eventService.getEvents(anyString())).thenReturn(List.of(event1));
+        when(eventService.getEvents(any())).thenReturn(List.of(event1, repeated));
 
-        // Act & Assert
+        // Act & Assert - the listing without parameters keeps the full event form with numeric ids
         mockMvc.perform(get("/api/events")
                 .principal(principal))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(-1))
+                .andExpect(jsonPath("$[1].isRecurring").value(true));
+    }
+
+    @Test
+    void getEvents_ShouldReturnEtagOfUserVersion() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(3L, 12L, null));
+        when(eventService.getEvents(any())).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"u3-v12\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+    }
+
+    @Test
+    void getEvents_WhenEtagMatches_ShouldReturnNotModifiedWithoutLoadingEvents() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(3L, 12L, null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .param("from", "2024-03-01T00:00:00")
+                .param("to", "2024-03-08T00:00:00")
+                .header("If-None-Match", "W/\"u3-v12\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verifyNoInteractions(eventService);
     }
 
     @Test
@@ -91,7 +223,7 @@ public class EventControllerTest {
         
         Principal principal = () -> "testuser";
         
-        doNothing().when(eventService).updateEvent(eq(eventId), any(Events.class), anyString());
+        when(eventService.updateEvent(eq(eventId), any(Events.class), any(), eq(ConflictMode.IGNORE))).thenReturn(List.of());
 
         // Act & Assert
         mockMvc.perform(put("/api/events/{id}", eventId)
@@ -114,4 +246,197 @@ public class EventControllerTest {
                 .principal(principal))
                 .andExpect(status().isNoContent());
     }
+    @Test
+    void getEvents_WhenWindowGiven_ShouldQueryWindow() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 8, 0, 0);
+
+        when(eventService.getEvents(any(), eq(from), eq(to), eq(3))).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .param("from", "2024-03-01T00:00:00")
+                .param("to", "2024-03-08T00:00:00")
+                .param("calendarId", "3")
+                .principal(principal))
+                .andExpect(status().isOk());
+
+        verify(eventService).getEvents(any(), eq(from), eq(to), eq(3));
+    }
+
+    @Test
+    void getEvents_WhenWindowInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+
+        when(eventService.getEvents(any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("invalid time window"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .param("from", "2024-03-08T00:00:00")
+                .principal(principal))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getEvents_WhenLimitGiven_ShouldReturnPageWithCursor() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+        EventSeries series = new EventSeries(1, "Event 1", null, false, null, null);
+        EventOccurrence event = new EventOccurrence(1, series, LocalDateTime.of(2024, 3, 1, 9, 0), LocalDateTime.of(2024, 3, 1, 10, 0));
+
+        when(eventService.getEventPage(any(), eq(null), eq(null), eq(null), eq("abc"), eq(1)))
+                .thenReturn(new CursorPage<>(List.of(event), "def"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .param("limit", "1")
+                .param("cursor", "abc")
+                .principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("def"));
+    }
+
+    @Test
+    void getEvents_WhenCursorInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+
+        when(eventService.getEventPage(any(), any(), any(), any(), any(), eq(100)))
+                .thenThrow(new IllegalArgumentException("invalid cursor"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .param("cursor", "broken")
+                .principal(principal))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("invalid cursor"));
+    }
+
+    @Test
+    void getOverlappingEvents_WhenInstantGiven_ShouldQueryIndex() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+        LocalDateTime at = LocalDateTime.of(2024, 3, 1, 9, 30);
+        EventSeries series = new EventSeries(1, "Event 1", null, false, null, null);
+        EventOccurrence event = new EventOccurrence(1, series, LocalDateTime.of(2024, 3, 1, 9, 0), LocalDateTime.of(2024, 3, 1, 10, 0));
+
+        when(eventIndexService.findAt(any(), eq(at))).thenReturn(List.of(event));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events/overlapping")
+                .param("at", "2024-03-01T09:30:00")
+                .principal(principal))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void getOverlappingEvents_WhenWindowMissing_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Principal principal = () -> "testuser";
+        when(eventIndexService.findOverlapping(any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("invalid time window"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events/overlapping")
+                .principal(principal))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamEvents_WhenNdjsonAccepted_ShouldWriteOneEventPerLine() throws Exception {
+        // Arrange
+        EventSeries series = new EventSeries(1, "Event 1", 3, false, "FREQ=DAILY", null);
+        EventOccurrence original = new EventOccurrence(1, series,
+                LocalDateTime.of(2024, 3, 1, 9, 0), LocalDateTime.of(2024, 3, 1, 10, 0));
+        EventOccurrence repeated = EventOccurrence.repetition(series, 0,
+                LocalDateTime.of(2024, 3, 2, 9, 0), LocalDateTime.of(2024, 3, 2, 10, 0));
+
+        when(eventService.streamEvents(any(), eq(LocalDateTime.of(2024, 3, 1, 0, 0)), eq(LocalDateTime.of(2024, 3, 8, 0, 0)), eq(null)))
+                .thenReturn(Stream.of(original, repeated));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/events")
+                .accept("application/x-ndjson")
+                .param("from", "2024-03-01T00:00:00")
+                .param("to", "2024-03-08T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        // Every row has a string id, the event id for the event itself
+        assertThat(first.get("id").isTextual()).isTrue();
+        assertThat(first.get("id").asText()).isEqualTo("1");
+        assertThat(first.get("occurrenceIndex").isNull()).isTrue();
+        assertThat(second.get("id").asText()).isEqualTo("1:0");
+        assertThat(second.get("occurrenceIndex").asInt()).isEqualTo(0);
+        assertThat(second.get("seriesId").asInt()).isEqualTo(1);
+        assertThat(second.get("title").asText()).isEqualTo("Event 1");
+        assertThat(second.get("calendarId").asInt()).isEqualTo(3);
+        assertThat(second.get("recurring").asBoolean()).isTrue();
+        assertThat(second.has("series")).isFalse();
+    }
+
+    @Test
+    void streamEvents_WhenEtagMatches_ShouldReturnNotModifiedWithoutLoadingEvents() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(3L, 12L, null));
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/api/events")
+                .accept("application/x-ndjson")
+                .param("from", "2024-03-01T00:00:00")
+                .param("to", "2024-03-08T00:00:00")
+                .header("If-None-Match", "W/\"u3-v12\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andReturn();
+        // The JSON listing has the same tag, caches keep the two apart by Accept
+        assertThat(result.getResponse().getHeaders("Vary")).contains("Accept");
+        verifyNoInteractions(eventService);
+    }
+
+    @Test
+    void streamEvents_ShouldReturnEtagOfUserVersion() throws Exception {
+        // Arrange
+        when(versions.userVersion(any())).thenReturn(new ChangeVersion(3L, 13L, null));
+        when(eventService.streamEvents(any())).thenReturn(Stream.of());
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/api/events")
+                .accept("application/x-ndjson")
+                .header("If-None-Match", "W/\"u3-v12\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"u3-v13\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn();
+        assertThat(result.getResponse().getHeaders("Vary")).contains("Accept");
+    }
+
+    @Test
+    void streamEvents_WhenWindowInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(eventService.streamEvents(any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("invalid time window"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events")
+                .accept("application/x-ndjson")
+                .param("from", "2024-03-08T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -141,6 +141,46 @@ public class EventRepoTest {
                 .containsExactlyInAnyOrder("Recurring Event", "Completed Event");
     }
 
+    @Test
+    void findSingleEventsInWindow_ShouldReturnOnlyOverlappingNonRecurringEvents() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 8, 0, 0);
+
+        Events inside = createTestEvent("Inside", testUser, testCalendar, false);
+        inside.setStartTime(LocalDateTime.of(2024, 3, 2, 10, 0));
+        inside.setEndTime(LocalDateTime.of(2024, 3, 2, 11, 0));
+
+        Events crossingStart = createTestEvent("Crossing", testUser, null, false);
+        crossingStart.setStartTime(LocalDateTime.of(2024, 2, 29, 23, 0));
+        crossingStart.setEndTime(LocalDateTime.of(2024, 3, 1, 1, 0));
+
+        Events outside = createTestEvent("Outside", testUser, testCalendar, false);
+        outside.setStartTime(LocalDateTime.of(2024, 3, 9, 10, 0));
+        outside.setEndTime(LocalDateTime.of(2024, 3, 9, 11, 0));
+
+        Events recurring = createTestEvent("Recurring", testUser, testCalendar, true);
+        recurring.setStartTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        recurring.setEndTime(LocalDateTime.of(2024, 1, 1, 11, 0));
+        recurring.setRecurrenceRule("FREQ=DAILY");
+
+        entityManager.persist(inside);
+        entityManager.persist(crossingStart);
+        entityManager.persist(outside);
+        entityManager.persist(recurring);
+        entityManager.flush();
+
+        // When
+        List<Events> all = eventRepo.findSingleEventsInWindow(testUser.getUsername(), from, to, null);
+        List<Events> inCalendar = eventRepo.findSingleEventsInWindow(testUser.getUsername(), from, to, testCalendar.getId());
+        List<Events> series = eventRepo.findRecurringSeriesInWindow(testUser.getUsername(), from, to, null);
+
+        // Then
+        assertThat(all).extracting(Events::getTitle).containsExactlyInAnyOrder("Inside", "Crossing");
+        assertThat(inCalendar).extracting(Events::getTitle).containsExactly("Inside");
+        assertThat(series).extracting(Events::getTitle).containsExactly("Recurring");
+    }
+
     private Events createTestEvent(String title, Users user, Calendars calendar, boolean isRecurring) {
         LocalDateTime now = LocalDateTime.now();
         Events event = new Events();
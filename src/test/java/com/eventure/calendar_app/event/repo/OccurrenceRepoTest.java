@@ -0,0 +1,93 @@
+package com.eventure.calendar_app.event.repo;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.model.Occurrences;
+import com.eventure.calendar_app.user.model.Users;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class OccurrenceRepoTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    private Events series;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = entityManager.persist(user);
+
+        series = new Events();
+        series.setTitle("Daily");
+        series.setStartTime(LocalDateTime.of(2024, 1, 1, 9, 0));
+        series.setEndTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        series.setRecurrenceRule("FREQ=DAILY");
+        series.setCreatedBy(user);
+        series = entityManager.persist(series);
+
+        for(int i = 0; i < 10; i++) {
+            LocalDateTime start = series.getStartTime().plusDays(i + 1);
+            entityManager.persist(new Occurrences(null, series, i, start, start.plusHours(1)));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void findInWindow_ShouldReturnOverlappingOccurrencesInOrder() {
+        // When
+        List<Occurrences> found = occurrenceRepo.findInWindow(List.of(series.getId()),
+                LocalDateTime.of(2024, 1, 3, 9, 30), LocalDateTime.of(2024, 1, 5, 9, 0));
+
+        // Then
+        assertThat(found).extracting(Occurrences::getOccurrenceIndex).containsExactly(1, 2);
+    }
+
+    @Test
+    void deleteByEventId_ShouldRemoveAllOccurrencesOfTheSeries() {
+        // When
+        occurrenceRepo.deleteByEventId(series.getId());
+
+        // Then
+        assertThat(occurrenceRepo.findByEvent_IdOrderByOccurrenceIndex(series.getId())).isEmpty();
+    }
+
+    @Test
+    void deleteEndedBefore_ShouldKeepOccurrencesEndingAtOrAfterTheCutOff() {
+        // When - the third occurrence runs 09:00 to 10:00 on 4 January
+        int deleted = occurrenceRepo.deleteEndedBefore(LocalDateTime.of(2024, 1, 4, 10, 0));
+
+        // Then
+        assertThat(deleted).isEqualTo(2);
+        assertThat(occurrenceRepo.findByEvent_IdOrderByOccurrenceIndex(series.getId()))
+                .extracting(Occurrences::getOccurrenceIndex).startsWith(2).hasSize(8);
+    }
+
+    @Test
+    void save_WhenPositionAlreadyStored_ShouldViolateUniqueConstraint() {
+        LocalDateTime start = series.getStartTime().plusDays(1);
+
+        assertThatThrownBy(() -> {
+            entityManager.persist(new Occurrences(null, series, 0, start, start.plusHours(1)));
+            entityManager.flush();
+        }).isInstanceOf(PersistenceException.class);
+    }
+}
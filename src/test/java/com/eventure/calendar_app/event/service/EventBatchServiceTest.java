@@ -0,0 +1,155 @@
+package com.eventure.calendar_app.event.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.EventBatchOperation;
+import com.eventure.calendar_app.event.model.EventBatchOperation.Action;
+import com.eventure.calendar_app.event.model.EventBatchResult;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EventBatchServiceTest {
+
+    @Mock
+    private EventRepo eventRepo;
+
+    // The owner lookup is a default method of the repository
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private UserRepo userRepo;
+
+    @Mock
+    private CalendarRepo calendarRepo;
+
+    @Mock
+    private OccurrenceStoreService occurrenceStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private EventBatchService batchService;
+
+    private Users testUser;
+    private Events ownEvent;
+    private Events otherEvent;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new Users();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+
+        Users otherUser = new Users();
+        otherUser.setId(2L);
+        otherUser.setUsername("otheruser");
+
+        ownEvent = event(1, testUser);
+        otherEvent = event(2, otherUser);
+    }
+
+    @Test
+    void apply_ShouldLoadUserAndEventsOnceAndReportEveryOperation() {
+        // Given
+        when(userRepo.findByUsername("testuser")).thenReturn(testUser);
+        when(eventRepo.findAllById(Set.of(1, 2))).thenReturn(List.of(ownEvent, otherEvent));
+        when(eventRepo.save(any(Events.class))).thenAnswer(invocation -> {
+            Events saved = invocation.getArgument(0);
+            saved.setId(51);
+            return saved;
+        });
+
+        Events renamed = new Events();
+        renamed.setTitle("Renamed");
+
+        // When
+        List<EventBatchResult> results = batchService.apply(List.of(
+                new EventBatchOperation(Action.CREATE, null, new Events()),
+                new EventBatchOperation(Action.UPDATE, 1, renamed),
+                new EventBatchOperation(Action.DELETE, 2, null),
+                new EventBatchOperation(Action.DELETE, 1, null),
+                new EventBatchOperation(Action.UPDATE, 1, renamed),
+                new EventBatchOperation(null, null, null)), "testuser");
+
+        // Then
+        assertThat(results).extracting(EventBatchResult::status).containsExactly(201, 200, 403, 204, 404, 400);
+        assertThat(results.get(0).id()).isEqualTo(51);
+        assertThat(ownEvent.getTitle()).isEqualTo("Renamed");
+        verify(userRepo, times(1)).findByUsername("testuser");
+        verify(occurrenceStore).materializeNew(any(Events.class));
+        // Updated and then deleted, so its occurrences are removed instead of replaced
+        verify(occurrenceStore).materializeAll(argThat(updated -> updated.isEmpty()));
+        verify(occurrenceStore, never()).materialize(any(Events.class));
+        verify(occurrenceStore).removeAll(Set.of(1));
+        verify(eventRepo).deleteAllByIdInBatch(Set.of(1));
+        verify(eventPublisher).publishEvent(new EventChange("testuser", 1, null));
+    }
+
+    @Test
+    void apply_WhenCalendarNotFound_ShouldSkipTheOperation() {
+        // Given
+        when(userRepo.findByUsername("testuser")).thenReturn(testUser);
+        Events event = new Events();
+        event.setCalendar(new Calendars());
+        event.getCalendar().setId(9);
+
+        // When
+        List<EventBatchResult> results = batchService.apply(List.of(new EventBatchOperation(Action.CREATE, null, event)), "testuser");
+
+        // Then
+        assertThat(results).containsExactly(EventBatchResult.failed(0, null, 404, "calendar not found: 9"));
+        verify(eventRepo, never()).save(any(Events.class));
+    }
+
+    @Test
+    void apply_WhenUserNotFound_ShouldThrowException() {
+        // Given
+        when(userRepo.findByUsername("nonexistent")).thenReturn(null);
+
+        // Then
+        assertThatThrownBy(() -> batchService.apply(List.of(new EventBatchOperation(Action.DELETE, 1, null)), "nonexistent"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("user not found");
+    }
+
+    @Test
+    void apply_WhenBatchEmptyOrTooLarge_ShouldThrowException() {
+        assertThatThrownBy(() -> batchService.apply(List.of(), "testuser"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        List<EventBatchOperation> tooMany = Collections.nCopies(EventBatchService.MAX_BATCH_SIZE + 1,
+                new EventBatchOperation(Action.DELETE, 1, null));
+        assertThatThrownBy(() -> batchService.apply(tooMany, "testuser"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Events event(int id, Users owner) {
+        Events event = new Events();
+        event.setId(id);
+        event.setTitle("Event " + id);
+        event.setStartTime(LocalDateTime.of(2024, 3, 4, 9, 0));
+        event.setEndTime(LocalDateTime.of(2024, 3, 4, 10, 0));
+        event.setCreatedBy(owner);
+        return event;
+    }
+}
@@ -0,0 +1,331 @@
+package com.eventure.calendar_app.event.service;
+
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class EventIndexServiceTest {
+
+    private EventRepo eventRepo = mock(EventRepo.class);
+    private CalendarVersionService versions = mock(CalendarVersionService.class);
+    private RecurrenceExpander expander = new RecurrenceExpander(new RecurrenceRuleCache(100, new SimpleMeterRegistry()));
+    private EventIndexService indexService;
+
+    private List<Events> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        indexService = new EventIndexService(eventRepo, expander, versions, 100, 30, 365, 90, new SimpleMeterRegistry());
+
+        events.add(event(1, "Meeting", LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 0), null));
+        events.add(event(2, "Trip", LocalDateTime.of(2024, 3, 3, 0, 0), LocalDateTime.of(2024, 3, 10, 0, 0), null));
+        events.add(event(3, "Standup", LocalDateTime.of(2024, 1, 1, 9, 30), LocalDateTime.of(2024, 1, 1, 9, 45), "FREQ=DAILY"));
+        events.add(event(4, "Later", LocalDateTime.of(2024, 6, 1, 9, 0), LocalDateTime.of(2024, 6, 1, 10, 0), null));
+
+        when(eventRepo.findByCreatedBy_Username("testuser")).thenReturn(events);
+        when(versions.userVersion("testuser")).thenReturn(version(5));
+    }
+
+    @Test
+    void findAt_ShouldReturnEventsAndRepetitionsInProgress() {
+        // When
+        List<EventOccurrence> found = indexService.findAt("testuser", LocalDateTime.of(2024, 3, 4, 9, 40));
+
+        // Then - the trip, the meeting and the repetition of the standup on that day
+        assertThat(found).extracting(EventOccurrence::title).containsExactly("Trip", "Meeting", "Standup");
+        assertThat(found.get(2).startTime()).isEqualTo(LocalDateTime.of(2024, 3, 4, 9, 30));
+        assertThat(found.get(2).isRepetition()).isTrue();
+        assertThat(found.get(2).key()).isEqualTo("3:62");
+    }
+
+    @Test
+    void findOverlapping_ShouldMatchExpandedRepetitionsInsideTheRange() {
+        // When
+        List<EventOccurrence> found = indexService.findOverlapping("testuser",
+                LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 3, 8, 0, 0));
+
+        // Then
+        assertThat(found).extracting(EventOccurrence::title).containsExactly("Trip", "Standup", "Standup", "Standup");
+        assertThat(found).extracting(EventOccurrence::startTime).isSorted();
+    }
+
+    @Test
+    void findStartingBetween_ShouldSkipEventsStartedBefore() {
+        // When
+        List<EventOccurrence> found = indexService.findStartingBetween("testuser",
+                LocalDateTime.of(2024, 3, 4, 0, 0), LocalDateTime.of(2024, 3, 5, 0, 0));
+
+        // Then
+        assertThat(found).extracting(EventOccurrence::title).containsExactly("Meeting", "Standup");
+    }
+
+    @Test
+    void findConflicts_ShouldReturnEventsOverlappingTheCandidate() {
+        // Given
+        Events candidate = event(null, "New", LocalDateTime.of(2024, 3, 4, 9, 40), LocalDateTime.of(2024, 3, 4, 10, 30), null);
+
+        // When
+        List<EventOccurrence> conflicts = indexService.findConflicts("testuser", candidate, null);
+
+        // Then
+        assertThat(conflicts).extracting(EventOccurrence::title).containsExactly("Trip", "Meeting", "Standup");
+    }
+
+    @Test
+    void findConflicts_ShouldCheckRepetitionsAndIgnoreTheUpdatedEvent() {
+        // Given - the meeting moved to a weekly evening slot, clear of the standup
+        Events candidate = event(1, "Meeting", LocalDateTime.of(2024, 5, 6, 18, 0), LocalDateTime.of(2024, 5, 6, 19, 0), "FREQ=WEEKLY");
+
+        // When
+        List<EventOccurrence> conflicts = indexService.findConflicts("testuser", candidate, 1);
+
+        // Then
+        assertThat(conflicts).isEmpty();
+
+        // When - moved to Monday mornings until the end of June
+        candidate.setStartTime(LocalDateTime.of(2024, 5, 6, 9, 0));
+        candidate.setEndTime(LocalDateTime.of(2024, 5, 6, 10, 0));
+        candidate.setRecurrenceEndDate(LocalDateTime.of(2024, 6, 30, 0, 0));
+        conflicts = indexService.findConflicts("testuser", candidate, 1);
+
+        // Then - the standup of each of the 8 Mondays, the meeting itself is not a conflict
+        assertThat(conflicts).extracting(EventOccurrence::title).hasSize(8).containsOnly("Standup");
+        assertThat(conflicts).extracting(EventOccurrence::startTime)
+                .allMatch(start -> start.getDayOfWeek() == DayOfWeek.MONDAY && start.getHour() == 9);
+        verify(eventRepo, times(1)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void findConflicts_ShouldQueryTheIndexOnceForAllRepetitions() {
+        // Given - a monthly review on the second Monday, a rule without a native iterator
+        events.add(event(5, "Review", LocalDateTime.of(2024, 1, 8, 14, 0), LocalDateTime.of(2024, 1, 8, 15, 0), "FREQ=MONTHLY;BYDAY=2MO"));
+        EventIndexService spied = spy(indexService);
+        Events candidate = event(null, "Focus", LocalDateTime.of(2024, 3, 11, 14, 30), LocalDateTime.of(2024, 3, 11, 15, 0), "FREQ=DAILY");
+
+        // When - every day until the end of the year is checked
+        List<EventOccurrence> conflicts = spied.findConflicts("testuser", candidate, null);
+
+        // Then - the review of every second Monday from March to December, found with one overlap query
+        assertThat(conflicts).extracting(EventOccurrence::title).hasSize(10).containsOnly("Review");
+        assertThat(conflicts).extracting(EventOccurrence::startTime)
+                .allMatch(start -> start.getDayOfWeek() == DayOfWeek.MONDAY && start.getDayOfMonth() > 7 && start.getDayOfMonth() <= 14);
+        verify(spied, times(1)).findOverlapping(eq("testuser"), any(), any());
+    }
+
+    @Test
+    void onEventChange_ShouldUpdateTheBuiltIndexWithoutReloading() {
+        // Given - the index is built once
+        LocalDateTime at = LocalDateTime.of(2024, 6, 1, 9, 50);
+        assertThat(indexService.findAt("testuser", at)).extracting(EventOccurrence::id).containsExactly(4);
+
+        // When - the event is moved and another one is deleted, each write moving the version on
+        when(versions.userVersion("testuser")).thenReturn(version(6), version(7));
+        Events moved = event(4, "Later", LocalDateTime.of(2024, 6, 2, 9, 0), LocalDateTime.of(2024, 6, 2, 10, 0), null);
+        indexService.onEventChange(new EventChange("testuser", 4, moved));
+        indexService.onEventChange(new EventChange("testuser", 2, null));
+
+        // Then
+        assertThat(indexService.findAt("testuser", at)).isEmpty();
+        assertThat(indexService.findAt("testuser", at.plusDays(1))).extracting(EventOccurrence::id).containsExactly(4);
+        assertThat(indexService.findAt("testuser", LocalDateTime.of(2024, 3, 6, 12, 0))).isEmpty();
+        verify(eventRepo, times(1)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void onEventChange_WhenBulkChange_ShouldRebuildTheIndex() {
+        // Given
+        indexService.findAt("testuser", LocalDateTime.of(2024, 6, 1, 9, 50));
+
+        // When
+        indexService.onEventChange(EventChange.bulk("testuser"));
+        indexService.findAt("testuser", LocalDateTime.of(2024, 6, 1, 9, 50));
+
+        // Then
+        verify(eventRepo, times(2)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void onEventChange_WhenAnotherWriteWasMissed_ShouldRebuildTheIndex() {
+        // Given
+        indexService.findAt("testuser", LocalDateTime.of(2024, 6, 1, 9, 50));
+
+        // When - another node committed a write before this one
+        when(versions.userVersion("testuser")).thenReturn(version(7));
+        indexService.onEventChange(new EventChange("testuser", 2, null));
+        indexService.findAt("testuser", LocalDateTime.of(2024, 6, 1, 9, 50));
+
+        // Then
+        verify(eventRepo, times(2)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void findAt_WhenVersionMovedOnElsewhere_ShouldRebuildTheIndex() {
+        // Given - the index is built at version 5
+        LocalDateTime at = LocalDateTime.of(2024, 6, 1, 9, 50);
+        assertThat(indexService.findAt("testuser", at)).extracting(EventOccurrence::id).containsExactly(4);
+
+        // When - another node deleted the event, this node only sees the new version
+        events.remove(3);
+        when(versions.userVersion("testuser")).thenReturn(version(6));
+
+        // Then
+        assertThat(indexService.findAt("testuser", at)).isEmpty();
+        assertThat(indexService.findAt("testuser", at)).isEmpty();
+        verify(eventRepo, times(2)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void findAt_WhenUserUnknown_ShouldReturnNothingWithoutLoading() {
+        // When
+        List<EventOccurrence> found = indexService.findAt("nobody", LocalDateTime.of(2024, 6, 1, 9, 50));
+
+        // Then
+        assertThat(found).isEmpty();
+        verifyNoInteractions(eventRepo);
+    }
+
+    @Test
+    void onEventChange_WhenIndexNotBuilt_ShouldNotLoadIt() {
+        // When
+        indexService.onEventChange(new EventChange("testuser", 1, null));
+
+        // Then
+        verifyNoInteractions(eventRepo);
+    }
+
+    @Test
+    void findOverlapping_WhenRangeInvalid_ShouldThrowException() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+        assertThatThrownBy(() -> indexService.findOverlapping("testuser", from, from))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> indexService.findOverlapping(null, from, from.plusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void findOverlapping_AcrossTheIndexedWindow_ShouldMatchTheExpandedSeries() {
+        // Given - repetitions are indexed one by one from 10 days ago up to 30 days ahead
+        indexService = new EventIndexService(eventRepo, expander, versions, 100, 30, 30, 10, new SimpleMeterRegistry());
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Events daily = event(6, "Daily", today.minusDays(60).plusHours(9), today.minusDays(60).plusHours(10), "FREQ=DAILY");
+        daily.setRecurrenceEndDate(today.plusDays(120));
+        Events night = event(7, "Night", today.minusDays(60).plusHours(23), today.minusDays(59).plusHours(1), "FREQ=WEEKLY");
+        night.setRecurrenceEndDate(today.plusDays(120));
+        events.clear();
+        events.addAll(List.of(daily, night));
+
+        // When & Then - ranges before, inside, after and across both ends of the window
+        for(int[] days: new int[][] { {-70, -40}, {-11, -9}, {-1, 2}, {29, 31}, {60, 61}, {-70, 130} }) {
+            LocalDateTime from = today.plusDays(days[0]);
+            LocalDateTime to = today.plusDays(days[1]);
+
+            List<String> expected = new ArrayList<>();
+            expected.addAll(expanded(daily, from, to));
+            expected.addAll(expanded(night, from, to));
+            assertThat(indexService.findOverlapping("testuser", from, to)).extracting(EventOccurrence::key)
+                    .as("from %s to %s", from, to)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+        verify(eventRepo, times(1)).findByCreatedBy_Username("testuser");
+    }
+
+    @Test
+    void findOverlapping_WhenSeriesHasMoreRepetitionsThanIndexed_ShouldExpandTheRest() {
+        // Given - a repetition every two minutes, more than MAX_INDEXED_REPETITIONS inside the window
+        indexService = new EventIndexService(eventRepo, expander, versions, 100, 30, 30, 0, new SimpleMeterRegistry());
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Events ticks = event(8, "Ticks", today, today.plusMinutes(1), "FREQ=MINUTELY;INTERVAL=2");
+        ticks.setRecurrenceEndDate(today.plusDays(20));
+        events.clear();
+        events.add(ticks);
+
+        // When - the last indexed repetition starts at the end of day 13
+        LocalDateTime from = today.plusDays(13).plusHours(21);
+        LocalDateTime to = today.plusDays(14).plusHours(3);
+        List<EventOccurrence> found = indexService.findOverlapping("testuser", from, to);
+
+        // Then
+        assertThat(found).extracting(EventOccurrence::key).containsExactlyElementsOf(expanded(ticks, from, to));
+    }
+
+    @Test
+    void findOverlapping_WithTheVersionOfTheCaller_ShouldNotReadItAgain() {
+        // When
+        List<EventOccurrence> found = indexService.findOverlapping("testuser", version(5),
+                LocalDateTime.of(2024, 3, 5, 0, 0), LocalDateTime.of(2024, 3, 8, 0, 0));
+
+        // Then
+        assertThat(found).extracting(EventOccurrence::title).containsExactly("Trip", "Standup", "Standup", "Standup");
+        verifyNoInteractions(versions);
+    }
+
+    @Test
+    void onEventChange_WhenSeriesMoved_ShouldReplaceItsIndexedRepetitions() {
+        // Given - a daily series inside the indexed window
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Events daily = event(6, "Daily", today.plusHours(9), today.plusHours(10), "FREQ=DAILY");
+        daily.setRecurrenceEndDate(today.plusDays(30));
+        events.add(daily);
+        assertThat(indexService.findAt("testuser", today.plusDays(3).plusHours(9))).extracting(EventOccurrence::key).containsExactly("6:2");
+
+        // When - the series moves two hours later
+        when(versions.userVersion("testuser")).thenReturn(version(6));
+        Events moved = event(6, "Daily", today.plusHours(11), today.plusHours(12), "FREQ=DAILY");
+        moved.setRecurrenceEndDate(today.plusDays(30));
+        indexService.onEventChange(new EventChange("testuser", 6, moved));
+
+        // Then
+        assertThat(indexService.findAt("testuser", today.plusDays(3).plusHours(9))).isEmpty();
+        assertThat(indexService.findAt("testuser", today.plusDays(3).plusHours(11))).extracting(EventOccurrence::key).containsExactly("6:2");
+        verify(eventRepo, times(1)).findByCreatedBy_Username("testuser");
+    }
+
+    // Keys of the event and its repetitions overlapping [from, to), expanded directly
+    private List<String> expanded(Events event, LocalDateTime from, LocalDateTime to) {
+        List<String> keys = new ArrayList<>();
+        if(event.getStartTime().isBefore(to) && event.getEndTime().isAfter(from)) {
+            keys.add(String.valueOf(event.getId()));
+        }
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        expander.repetitions(event, EventSeries.of(event), from.minus(duration), to)
+                .filter(occurrence -> occurrence.startTime().isBefore(to) && occurrence.endTime().isAfter(from))
+                .forEach(occurrence -> keys.add(occurrence.key()));
+        return keys;
+    }
+
+    private ChangeVersion version(long version) {
+        return new ChangeVersion(1L, version, null);
+    }
+
+    private Events event(Integer id, String title, LocalDateTime start, LocalDateTime end, String rule) {
+        Events event = new Events();
+        event.setId(id);
+        event.setTitle(title);
+        event.setStartTime(start);
+        event.setEndTime(end);
+        event.setRecurrenceRule(rule);
+        if(rule != null) {
+            event.setRecurrenceEndDate(LocalDateTime.of(2024, 12, 31, 0, 0));
+        }
+        return event;
+    }
+}
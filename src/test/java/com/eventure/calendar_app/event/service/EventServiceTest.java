@@ -2,25 +2,39 @@ package com.eventure.calendar_app.event.service;
 
 import com.eventure.calendar_app.calendar.model.Calendars;
 import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.common.CursorPage;
+import com.eventure.calendar_app.common.Cursors;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
 import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.model.Occurrences;
 import com.eventure.calendar_app.event.repo.EventRepo;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.nio.file.AccessDeniedException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,12 +44,29 @@ public class EventServiceTest {
     @Mock
     private EventRepo eventRepo;
 
-    @Mock
+    // The owner lookup is a default method of the repository
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private UserRepo userRepo;
 
     @Mock
     private CalendarRepo calendarRepo;
 
+    @Spy
+    private RecurrenceExpander recurrenceExpander = new RecurrenceExpander(new RecurrenceRuleCache(100, new SimpleMeterRegistry()));
+
+    @Mock
+    private OccurrenceStoreService occurrenceStore;
+
+    // Threshold 2 so that single-series tests stay sequential and multi-series tests run in parallel
+    @Spy
+    private SeriesExpansionExecutor expansionExecutor = new SeriesExpansionExecutor(true, 2, 2, new SimpleMeterRegistry());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EventIndexService indexService;
+
     @InjectMocks
     private EventService eventService;
 
@@ -76,6 +107,40 @@ public class EventServiceTest {
         assertThat(testEvent.getCreatedBy()).isEqualTo(testUser);
         assertThat(testEvent.getCalendar()).isEqualTo(testCalendar);
         verify(eventRepo, times(1)).save(any(Events.class));
+        verify(occurrenceStore).materialize(testEvent);
+        verify(eventPublisher).publishEvent(new EventChange("testuser", 1, testEvent));
+    }
+
+    @Test
+    void createEvent_WhenConflictsRejected_ShouldNotSaveEvent() {
+        // Given
+        EventOccurrence meeting = new EventOccurrence(7, new EventSeries(7, "Meeting", null, false, null, null),
+                testEvent.getStartTime(), testEvent.getEndTime());
+        when(userRepo.findByUsername("testuser")).thenReturn(testUser);
+        when(indexService.findConflicts("testuser", testEvent, null)).thenReturn(List.of(meeting));
+
+        // When
+        List<EventOccurrence> conflicts = eventService.createEvent(testEvent, "testuser", ConflictMode.REJECT);
+
+        // Then
+        assertThat(conflicts).containsExactly(meeting);
+        verify(eventRepo, never()).save(any(Events.class));
+        verifyNoInteractions(occurrenceStore, eventPublisher);
+    }
+
+    @Test
+    void createEvent_WhenConflictsIgnored_ShouldNotCheckThem() {
+        // Given
+        when(userRepo.findByUsername("testuser")).thenReturn(testUser);
+        when(calendarRepo.findById(1)).thenReturn(Optional.of(testCalendar));
+        when(eventRepo.save(any(Events.class))).thenReturn(testEvent);
+
+        // When
+        List<EventOccurrence> conflicts = eventService.createEvent(testEvent, "testuser", ConflictMode.IGNORE);
+
+        // Then
+        assertThat(conflicts).isEmpty();
+        verifyNoInteractions(indexService);
     }
 
     @Test
@@ -137,6 +202,31 @@ public class EventServiceTest {
         verify(eventRepo, times(1)).save(existingEvent);
     }
 
+    @Test
+    void updateEvent_WhenConflictsRejected_ShouldLeaveEventUnchanged() throws AccessDeniedException {
+        // Given
+        Events existingEvent = new Events();
+        existingEvent.setId(1);
+        existingEvent.setTitle("Original Title");
+        existingEvent.setCreatedBy(testUser);
+
+        Events updatedEvent = new Events();
+        updatedEvent.setTitle("Updated Title");
+
+        EventOccurrence meeting = new EventOccurrence(7, new EventSeries(7, "Meeting", null, false, null, null),
+                LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 0));
+        when(eventRepo.findById(1)).thenReturn(Optional.of(existingEvent));
+        when(indexService.findConflicts("testuser", updatedEvent, 1)).thenReturn(List.of(meeting));
+
+        // When
+        List<EventOccurrence> conflicts = eventService.updateEvent(1, updatedEvent, "testuser", ConflictMode.REJECT);
+
+        // Then
+        assertThat(conflicts).containsExactly(meeting);
+        assertThat(existingEvent.getTitle()).isEqualTo("Original Title");
+        verify(eventRepo, never()).save(any(Events.class));
+    }
+
     @Test
     void updateEvent_WhenUserNotOwner_ShouldThrowAccessDenied() {
         // Given
@@ -164,6 +254,7 @@ public class EventServiceTest {
         eventService.deleteEvent(1, "testuser");
 
         // Then
+        verify(occurrenceStore).remove(1);
         verify(eventRepo, times(1)).deleteById(1);
     }
 
@@ -201,6 +292,31 @@ public class EventServiceTest {
         assertThat(events.get(1).getId()).isNegative(); // Generated ID should be negative
     }
 
+    @Test
+    void getEvents_WithLongSeries_ShouldNotReuseRepetitionIds() {
+        // Given - a series with more than 1000 repetitions next to another series
+        testEvent.setRecurrenceRule("FREQ=DAILY;COUNT=1200");
+        testEvent.setRecurrenceEndDate(testEvent.getStartTime().plusYears(5));
+        Events other = new Events();
+        other.setId(2);
+        other.setTitle("Other Event");
+        other.setStartTime(testEvent.getStartTime());
+        other.setEndTime(testEvent.getEndTime());
+        other.setRecurrenceRule("FREQ=DAILY;COUNT=5");
+        when(eventRepo.findByCreatedBy_Username("testuser")).thenReturn(List.of(other, testEvent));
+
+        // When
+        List<Events> events = eventService.getEvents("testuser");
+
+        // Then - the events keep their ids, the repetitions are numbered by series and position
+        assertThat(events).hasSize(1200 + 5);
+        assertThat(events).extracting(Events::getId).doesNotHaveDuplicates();
+        assertThat(events.get(0).getId()).isEqualTo(2);
+        assertThat(events.get(5).getId()).isEqualTo(1);
+        assertThat(events.get(6).getId()).isEqualTo(-1);
+        assertThat(events.get(1).getId()).isEqualTo(-1200);
+    }
+
     @Test
     void buildSyntheticId_WhenValidInput_ShouldReturnNegativeNumber() {
         // Since buildSyntheticId is private, we'll test it indirectly through the public API
@@ -215,4 +331,331 @@ public class EventServiceTest {
         assertThat(events).hasSize(1);
         assertThat(events.get(0).getId()).isNotNull();
     }
+    @Test
+    void getEventsInWindow_ShouldOnlyExpandOccurrencesInsideWindow() {
+        // Given - a daily series that started long before the window
+        LocalDateTime seriesStart = LocalDateTime.of(2024, 1, 1, 9, 0);
+        testEvent.setStartTime(seriesStart);
+        testEvent.setEndTime(seriesStart.plusHours(1));
+        testEvent.setRecurrenceRule("FREQ=DAILY");
+        testEvent.setRecurrenceEndDate(LocalDateTime.of(2024, 12, 31, 0, 0));
+
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 11, 0, 0);
+        when(eventRepo.findSingleEventsInWindow("testuser", from, to, null)).thenReturn(List.of());
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(List.of(testEvent));
+
+        // When
+        List<EventOccurrence> events = eventService.getEvents("testuser", from, to, null);
+
+        // Then - one occurrence per day of the week, the original event is outside the window
+        assertThat(events).hasSize(7);
+        assertThat(events).extracting(EventOccurrence::startTime)
+                .allMatch(start -> !start.isBefore(from) && start.isBefore(to));
+        assertThat(events.get(0).startTime()).isEqualTo(LocalDateTime.of(2024, 3, 4, 9, 0));
+        assertThat(events).allMatch(EventOccurrence::isRepetition);
+        verify(eventRepo, never()).findByCreatedBy_Username(any());
+    }
+
+    @Test
+    void getEventsInWindow_ShouldIncludeSingleEventsAndSortByStart() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        Events single = new Events();
+        single.setId(2);
+        single.setTitle("Single");
+        single.setStartTime(LocalDateTime.of(2024, 3, 20, 10, 0));
+        single.setEndTime(LocalDateTime.of(2024, 3, 20, 11, 0));
+
+        testEvent.setStartTime(LocalDateTime.of(2024, 3, 5, 9, 0));
+        testEvent.setEndTime(LocalDateTime.of(2024, 3, 5, 10, 0));
+        testEvent.setRecurrenceRule("FREQ=WEEKLY;COUNT=2");
+
+        when(eventRepo.findSingleEventsInWindow("testuser", from, to, 1)).thenReturn(List.of(single));
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, 1)).thenReturn(List.of(testEvent));
+
+        // When
+        List<EventOccurrence> events = eventService.getEvents("testuser", from, to, 1);
+
+        // Then
+        assertThat(events).extracting(EventOccurrence::startTime).containsExactly(
+                LocalDateTime.of(2024, 3, 5, 9, 0),
+                LocalDateTime.of(2024, 3, 12, 9, 0),
+                LocalDateTime.of(2024, 3, 20, 10, 0));
+    }
+
+    @Test
+    void getEventsInWindow_WhenWindowInvalid_ShouldThrowException() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+        assertThatThrownBy(() -> eventService.getEvents("testuser", from, from, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> eventService.getEvents("testuser", from, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void getEventsInWindow_WhenSeriesMaterialized_ShouldReadOccurrenceTable() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 5, 0, 0);
+        testEvent.setStartTime(LocalDateTime.of(2024, 1, 1, 9, 0));
+        testEvent.setEndTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        testEvent.setRecurrenceRule("FREQ=DAILY");
+
+        Occurrences stored = new Occurrences(10L, testEvent, 63,
+                LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 0));
+
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(List.of(testEvent));
+        when(occurrenceStore.covers(testEvent, from, to)).thenReturn(true);
+        when(occurrenceStore.findInWindow(Set.of(1), from, to)).thenReturn(List.of(stored));
+
+        // When
+        List<EventOccurrence> events = eventService.getEvents("testuser", from, to, null);
+
+        // Then
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).startTime()).isEqualTo(LocalDateTime.of(2024, 3, 4, 9, 0));
+        assertThat(events.get(0).title()).isEqualTo("Test Event");
+        verify(recurrenceExpander, never()).repetitions(any(), any(), any(), any());
+    }
+
+    @Test
+    void getEventsInWindow_WithManySeries_ShouldMergeParallelExpansionByStart() {
+        // Given - three daily series starting at different hours, above the test threshold of 2
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 6, 0, 0);
+
+        List<Events> series = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            Events event = new Events();
+            event.setId(10 + i);
+            event.setTitle("Series " + i);
+            event.setStartTime(LocalDateTime.of(2024, 1, 1, 12 - i, 0));
+            event.setEndTime(LocalDateTime.of(2024, 1, 1, 12 - i, 30));
+            event.setRecurrenceRule("FREQ=DAILY");
+            series.add(event);
+        }
+
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(series);
+
+        // When
+        List<EventOccurrence> events = eventService.getEvents("testuser", from, to, null);
+
+        // Then
+        assertThat(events).hasSize(6);
+        assertThat(events).extracting(EventOccurrence::title).containsExactly(
+                "Series 2", "Series 1", "Series 0", "Series 2", "Series 1", "Series 0");
+        assertThat(events).extracting(EventOccurrence::startTime).isSorted();
+    }
+
+    @Test
+    void streamEventsInWindow_ShouldMergeSourcesInStartOrderLikeList() {
+        // Given - three expanded series, a stored series and a single event, all repeating inside the window
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 18, 0, 0);
+
+        List<Events> series = new ArrayList<>();
+        for(String rule: List.of("FREQ=DAILY", "FREQ=DAILY;INTERVAL=3", "FREQ=WEEKLY;BYDAY=MO,TH")) {
+            Events event = new Events();
+            event.setId(10 + series.size());
+            event.setTitle(rule);
+            event.setStartTime(LocalDateTime.of(2024, 1, 1, 8 + series.size(), 0));
+            event.setEndTime(LocalDateTime.of(2024, 1, 1, 8 + series.size(), 45));
+            event.setRecurrenceRule(rule);
+            series.add(event);
+        }
+
+        Events stored = new Events();
+        stored.setId(20);
+        stored.setTitle("Stored");
+        stored.setStartTime(LocalDateTime.of(2024, 1, 1, 8, 30));
+        stored.setEndTime(LocalDateTime.of(2024, 1, 1, 9, 0));
+        stored.setRecurrenceRule("FREQ=DAILY");
+        List<Occurrences> storedOccurrences = new ArrayList<>();
+        for(int day = 0; day < 14; day++) {
+            LocalDateTime start = LocalDateTime.of(2024, 3, 4 + day, 8, 30);
+            storedOccurrences.add(new Occurrences((long) day, stored, 63 + day, start, start.plusMinutes(30)));
+        }
+
+        Events single = new Events();
+        single.setId(2);
+        single.setTitle("Single");
+        single.setStartTime(LocalDateTime.of(2024, 3, 6, 12, 0));
+        single.setEndTime(LocalDateTime.of(2024, 3, 6, 13, 0));
+
+        List<Events> recurring = new ArrayList<>(series);
+        recurring.add(stored);
+        when(eventRepo.findSingleEventsInWindow("testuser", from, to, null)).thenReturn(List.of(single));
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(recurring);
+        when(occurrenceStore.covers(any(), eq(from), eq(to))).thenAnswer(invocation -> invocation.getArgument(0) == stored);
+        when(occurrenceStore.findInWindow(Set.of(20), from, to)).thenReturn(storedOccurrences);
+
+        // When
+        List<EventOccurrence> streamed = eventService.streamEvents("testuser", from, to, null).toList();
+
+        // Then - 14 daily, 5 every third day, 4 on Mondays and Thursdays, 14 stored and the single event
+        assertThat(streamed).hasSize(38);
+        assertThat(streamed).extracting(EventOccurrence::startTime).isSorted();
+        assertThat(streamed.subList(0, 4)).extracting(EventOccurrence::title)
+                .containsExactly("FREQ=DAILY", "Stored", "FREQ=DAILY;INTERVAL=3", "FREQ=WEEKLY;BYDAY=MO,TH");
+        // Only the series that are not stored are expanded, each as its own merged source
+        verify(recurrenceExpander, times(3)).repetitions(any(), any(), any(), any());
+        verify(recurrenceExpander, never()).repetitions(eq(stored), any(), any(), any());
+
+        List<EventOccurrence> listed = eventService.getEvents("testuser", from, to, null);
+        assertThat(streamed).extracting(EventOccurrence::startTime, EventOccurrence::title)
+                .containsExactlyElementsOf(listed.stream().map(e -> tuple(e.startTime(), e.title())).toList());
+    }
+
+    @Test
+    void getEventsInWindow_ShouldGiveEveryRepetitionItsOwnId() {
+        // Given - a series with more than a thousand repetitions before the window, and the next series id
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 7, 0, 0);
+
+        Events longSeries = new Events();
+        longSeries.setId(5);
+        longSeries.setTitle("Long");
+        longSeries.setStartTime(LocalDateTime.of(2020, 1, 1, 9, 0));
+        longSeries.setEndTime(LocalDateTime.of(2020, 1, 1, 10, 0));
+        longSeries.setRecurrenceRule("FREQ=DAILY");
+        longSeries.setRecurrenceEndDate(LocalDateTime.of(2030, 1, 1, 0, 0));
+
+        Events nextSeries = new Events();
+        nextSeries.setId(6);
+        nextSeries.setTitle("Next");
+        nextSeries.setStartTime(LocalDateTime.of(2024, 3, 3, 9, 0));
+        nextSeries.setEndTime(LocalDateTime.of(2024, 3, 3, 10, 0));
+        nextSeries.setRecurrenceRule("FREQ=DAILY");
+
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(List.of(longSeries, nextSeries));
+
+        // When
+        List<EventOccurrence> events = eventService.getEvents("testuser", from, to, null);
+
+        // Then
+        assertThat(events).hasSize(6);
+        assertThat(events).extracting(EventOccurrence::key).doesNotHaveDuplicates();
+        assertThat(events.get(0).key()).isEqualTo("5:1523");
+        assertThat(events).filteredOn(event -> event.seriesId() == 6).extracting(EventOccurrence::key)
+                .containsExactly("6:0", "6:1", "6:2");
+    }
+
+    @Test
+    void streamEvents_ShouldFollowEveryEventWithItsRepetitions() {
+        // Given
+        testEvent.setRecurrenceRule("FREQ=DAILY;COUNT=3");
+        when(eventRepo.findByCreatedBy_Username("testuser")).thenReturn(List.of(testEvent));
+
+        // When
+        List<EventOccurrence> events = eventService.streamEvents("testuser").toList();
+
+        // Then
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0).id()).isEqualTo(testEvent.getId());
+        assertThat(events).extracting(EventOccurrence::series).containsOnly(events.get(0).series());
+        assertThat(events).extracting(EventOccurrence::startTime).isSorted();
+    }
+
+    @Test
+    void getEventPage_ShouldWalkSingleAndRepeatedEventsWithoutGapsOrDuplicates() {
+        // Given - two series with occurrences at the same instant and single events in between
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 18, 0, 0);
+
+        List<Events> series = new ArrayList<>();
+        for(String rule: List.of("FREQ=DAILY", "FREQ=WEEKLY;BYDAY=MO,TH")) {
+            Events event = new Events();
+            event.setId(10 + series.size());
+            event.setTitle(rule);
+            event.setStartTime(LocalDateTime.of(2024, 1, 1, 9, 0));
+            event.setEndTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+            event.setRecurrenceRule(rule);
+            series.add(event);
+        }
+
+        List<Events> singles = new ArrayList<>();
+        for(int day = 4; day < 18; day += 3) {
+            Events single = new Events();
+            single.setId(100 + day);
+            single.setTitle("Single " + day);
+            single.setStartTime(LocalDateTime.of(2024, 3, day, 9, 0));
+            single.setEndTime(LocalDateTime.of(2024, 3, day, 9, 30));
+            singles.add(single);
+        }
+
+        when(eventRepo.findSingleEventsAfter(eq("testuser"), any(), any(), eq(to), eq(null), any())).thenAnswer(invocation -> {
+            LocalDateTime afterStart = invocation.getArgument(1);
+            Integer afterId = invocation.getArgument(2);
+            return singles.stream()
+                    .filter(e -> e.getStartTime().isAfter(afterStart) || (e.getStartTime().equals(afterStart) && e.getId() > afterId))
+                    .limit(invocation.<Pageable>getArgument(5).getPageSize())
+                    .toList();
+        });
+        when(eventRepo.findRecurringSeriesFrom(eq("testuser"), any(), eq(to), eq(null))).thenReturn(series);
+        when(eventRepo.findSingleEventsInWindow("testuser", from, to, null)).thenReturn(singles);
+        when(eventRepo.findRecurringSeriesInWindow("testuser", from, to, null)).thenReturn(series);
+
+        // When - walk the window three events at a time
+        List<EventOccurrence> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<EventOccurrence> page = eventService.getEventPage("testuser", from, to, null, cursor, 3);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(3);
+            paged.addAll(page.items());
+            cursor = page.next();
+            pages++;
+        } while(cursor != null);
+
+        // Then - the same events as the window listing, with the same ids, in (start, series id) order
+        List<EventOccurrence> listed = eventService.getEvents("testuser", from, to, null);
+        assertThat(paged).hasSize(14 + 4 + 5);
+        assertThat(pages).isEqualTo(8);
+        assertThat(paged).extracting(EventOccurrence::key).doesNotHaveDuplicates();
+        assertThat(paged).extracting(EventOccurrence::key)
+                .containsExactlyInAnyOrderElementsOf(listed.stream().map(EventOccurrence::key).toList());
+        assertThat(paged).isSortedAccordingTo(Comparator.comparing(EventOccurrence::startTime)
+                .thenComparing(EventOccurrence::seriesId));
+    }
+
+    @Test
+    void getEventPage_WhenSeriesMaterialized_ShouldReadOccurrenceTableFromCursor() {
+        // Given
+        testEvent.setStartTime(LocalDateTime.of(2024, 1, 1, 9, 0));
+        testEvent.setEndTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        testEvent.setRecurrenceRule("FREQ=DAILY");
+
+        LocalDateTime afterStart = LocalDateTime.of(2024, 3, 4, 9, 0);
+        Occurrences stored = new Occurrences(10L, testEvent, 64,
+                LocalDateTime.of(2024, 3, 5, 9, 0), LocalDateTime.of(2024, 3, 5, 10, 0));
+
+        when(eventRepo.findRecurringSeriesFrom(eq("testuser"), eq(afterStart), any(), eq(null))).thenReturn(List.of(testEvent));
+        when(occurrenceStore.covers(eq(testEvent), any(), any())).thenReturn(true);
+        when(occurrenceStore.findAfter(eq(Set.of(1)), eq(afterStart), eq(1), any(), eq(1))).thenReturn(List.of(stored));
+
+        // When
+        CursorPage<EventOccurrence> page = eventService.getEventPage("testuser", null, null, null,
+                Cursors.encode(afterStart, 1), 1);
+
+        // Then
+        assertThat(page.items()).extracting(EventOccurrence::startTime).containsExactly(LocalDateTime.of(2024, 3, 5, 9, 0));
+        assertThat(page.next()).isNull();
+        verify(recurrenceExpander, never()).occurrences(any(), any(), any());
+    }
+
+    @Test
+    void getEventPage_WhenLimitOrCursorInvalid_ShouldThrowException() {
+        assertThatThrownBy(() -> eventService.getEventPage("testuser", null, null, null, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> eventService.getEventPage("testuser", null, null, null, null, EventService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> eventService.getEventPage("testuser", null, null, null, "not a cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> eventService.getEventPage("testuser", null, null, null, Cursors.encode("x", "y"), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
 }
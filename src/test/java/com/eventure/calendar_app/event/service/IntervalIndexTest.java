@@ -0,0 +1,79 @@
+package com.eventure.calendar_app.event.service;
+
+import com.eventure.calendar_app.event.service.IntervalIndex.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class IntervalIndexTest {
+
+    @Test
+    void overlapping_ShouldMatchLinearScan() {
+        Random random = new Random(20240303L);
+
+        for(int round = 0; round < 200; round++) {
+            List<Interval<Integer>> intervals = randomIntervals(random, random.nextInt(200));
+            IntervalIndex<Integer> index = IntervalIndex.of(intervals);
+
+            for(int query = 0; query < 50; query++) {
+                long from = random.nextInt(1000);
+                long to = from + 1 + random.nextInt(100);
+
+                assertThat(index.overlapping(from, to))
+                        .as("[%d, %d) in %s", from, to, intervals)
+                        .containsExactlyInAnyOrderElementsOf(scan(intervals, from, to));
+            }
+        }
+    }
+
+    @Test
+    void overlapping_ShouldReturnIntervalsInStartOrder() {
+        IntervalIndex<String> index = IntervalIndex.of(List.of(
+                new Interval<>(30, 40, "c"),
+                new Interval<>(10, 100, "a"),
+                new Interval<>(20, 25, "b"),
+                new Interval<>(50, 60, "d")));
+
+        assertThat(index.overlapping(22, 55)).containsExactly("a", "b", "c", "d");
+        assertThat(index.containing(25)).containsExactly("a");
+        assertThat(index.containing(24)).containsExactly("a", "b");
+        assertThat(index.overlapping(100, 200)).isEmpty();
+    }
+
+    @Test
+    void replace_ShouldRemoveAndAddIntervals() {
+        Random random = new Random(20240304L);
+        List<Interval<Integer>> intervals = randomIntervals(random, 100);
+        IntervalIndex<Integer> index = IntervalIndex.of(intervals);
+
+        List<Interval<Integer>> added = List.of(new Interval<>(5, 500, 1000), new Interval<>(990, 995, 1001));
+        IntervalIndex<Integer> replaced = index.replace(value -> value % 3 == 0, added);
+
+        List<Interval<Integer>> expected = new ArrayList<>(intervals.stream().filter(i -> i.value() % 3 != 0).toList());
+        expected.addAll(added);
+
+        assertThat(replaced.size()).isEqualTo(expected.size());
+        assertThat(index.size()).isEqualTo(100);
+        for(long from = 0; from < 1100; from += 37) {
+            assertThat(replaced.overlapping(from, from + 50)).containsExactlyInAnyOrderElementsOf(scan(expected, from, from + 50));
+        }
+    }
+
+    private List<Interval<Integer>> randomIntervals(Random random, int size) {
+        List<Interval<Integer>> intervals = new ArrayList<>();
+        for(int i = 0; i < size; i++) {
+            long start = random.nextInt(1000);
+            long length = random.nextInt(10) == 0 ? random.nextInt(500) : 1 + random.nextInt(20);
+            intervals.add(new Interval<>(start, start + length, i));
+        }
+        return intervals;
+    }
+
+    private List<Integer> scan(List<Interval<Integer>> intervals, long from, long to) {
+        return intervals.stream().filter(i -> i.start() < to && i.end() > from).map(Interval::value).toList();
+    }
+}
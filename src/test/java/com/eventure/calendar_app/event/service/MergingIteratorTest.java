@@ -0,0 +1,38 @@
+package com.eventure.calendar_app.event.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MergingIteratorTest {
+
+    @Test
+    void merge_ShouldInterleaveSortedSourcesAndKeepSourceOrderOnTies() {
+        // Given
+        List<Iterator<String>> sources = List.of(
+                List.of("a1", "c1", "e1").iterator(),
+                List.<String>of().iterator(),
+                List.of("b2", "c2", "f2").iterator());
+
+        // When
+        List<String> merged = new ArrayList<>();
+        new MergingIterator<>(sources, Comparator.comparing((String value) -> value.charAt(0))).forEachRemaining(merged::add);
+
+        // Then
+        assertThat(merged).containsExactly("a1", "b2", "c1", "c2", "e1", "f2");
+    }
+
+    @Test
+    void next_WhenExhausted_ShouldThrow() {
+        MergingIterator<String> iterator = new MergingIterator<>(List.of(), Comparator.naturalOrder());
+
+        assertThat(iterator.hasNext()).isFalse();
+        assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    }
+}
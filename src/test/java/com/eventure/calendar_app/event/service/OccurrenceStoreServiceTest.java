@@ -0,0 +1,200 @@
+package com.eventure.calendar_app.event.service;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.model.Occurrences;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OccurrenceStoreServiceTest {
+
+    @Mock
+    private OccurrenceRepo occurrenceRepo;
+
+    @Mock
+    private EventRepo eventRepo;
+
+    private OccurrenceStoreService occurrenceStore;
+
+    private Events series;
+
+    @BeforeEach
+    void setUp() {
+        occurrenceStore = new OccurrenceStoreService(occurrenceRepo, eventRepo, new RecurrenceExpander(new RecurrenceRuleCache(100, new SimpleMeterRegistry())), 365, 90);
+
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        series = new Events();
+        series.setId(7);
+        series.setTitle("Standup");
+        series.setStartTime(start);
+        series.setEndTime(start.plusMinutes(15));
+        series.setRecurrenceRule("FREQ=DAILY");
+        series.setRecurrenceEndDate(start.plusDays(5));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materialize_ShouldStoreAllRepeatedOccurrencesAndWatermark() {
+        // When
+        occurrenceStore.materialize(series);
+
+        // Then
+        ArgumentCaptor<List<Occurrences>> captor = ArgumentCaptor.forClass(List.class);
+        verify(occurrenceRepo).deleteByEventId(7);
+        verify(occurrenceRepo).saveAll(captor.capture());
+
+        List<Occurrences> stored = captor.getValue();
+        assertThat(stored).hasSize(5);
+        assertThat(stored).extracting(Occurrences::getOccurrenceIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(stored.get(0).getStartTime()).isEqualTo(series.getStartTime().plusDays(1));
+        assertThat(stored.get(0).getEndTime()).isEqualTo(series.getStartTime().plusDays(1).plusMinutes(15));
+        // The entity belongs to the caller's transaction, which writes it
+        assertThat(series.getMaterializedUntil()).isEqualTo(series.getRecurrenceEndDate());
+        verifyNoInteractions(eventRepo);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materialize_WhenSeriesStartedBeforeRetention_ShouldStoreFromCutOffWithSeriesPositions() {
+        // Given - a daily series that started 200 days ago, 90 days are kept
+        LocalDateTime start = LocalDate.now().minusDays(200).atTime(9, 0);
+        series.setStartTime(start);
+        series.setEndTime(start.plusMinutes(15));
+        series.setRecurrenceEndDate(LocalDate.now().plusDays(10).atTime(9, 0));
+
+        // When
+        occurrenceStore.materialize(series);
+
+        // Then - the first stored occurrence is the one on the cut-off day, at its position in the series
+        ArgumentCaptor<List<Occurrences>> captor = ArgumentCaptor.forClass(List.class);
+        verify(occurrenceRepo).saveAll(captor.capture());
+        Occurrences first = captor.getValue().get(0);
+        assertThat(first.getStartTime()).isEqualTo(LocalDate.now().minusDays(90).atTime(9, 0));
+        assertThat(first.getOccurrenceIndex()).isEqualTo(200 - 90 - 1);
+        assertThat(captor.getValue()).hasSize(90 + 10 + 1);
+    }
+
+    @Test
+    void materialize_WhenNotRecurring_ShouldOnlyClearOccurrences() {
+        // Given
+        series.setRecurrenceRule(null);
+        series.setMaterializedUntil(LocalDateTime.now());
+
+        // When
+        occurrenceStore.materialize(series);
+
+        // Then
+        verify(occurrenceRepo).deleteByEventId(7);
+        verify(occurrenceRepo, never()).saveAll(anyList());
+        assertThat(series.getMaterializedUntil()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void extend_ShouldContinueAfterWatermarkAndWriteOnlyTheWatermark() {
+        // Given - the first two occurrences are already stored, the locked row is the current state
+        LocalDateTime watermark = series.getStartTime().plusDays(2);
+        series.setMaterializedUntil(watermark);
+        when(eventRepo.findByIdForUpdate(7)).thenReturn(Optional.of(series));
+        when(eventRepo.updateMaterializedUntil(7, watermark, series.getStartTime().plusDays(4))).thenReturn(1);
+
+        // When
+        occurrenceStore.extend(7, series.getStartTime().plusDays(4));
+
+        // Then
+        ArgumentCaptor<List<Occurrences>> captor = ArgumentCaptor.forClass(List.class);
+        verify(occurrenceRepo).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(Occurrences::getOccurrenceIndex).containsExactly(2, 3);
+        assertThat(captor.getValue()).extracting(Occurrences::getStartTime)
+                .containsExactly(series.getStartTime().plusDays(3), series.getStartTime().plusDays(4));
+        verify(eventRepo).updateMaterializedUntil(7, watermark, series.getStartTime().plusDays(4));
+        verify(eventRepo, never()).save(any());
+        assertThat(series.getMaterializedUntil()).isEqualTo(watermark);
+    }
+
+    @Test
+    void extend_WhenWatermarkMovedConcurrently_ShouldFail() {
+        // Given
+        LocalDateTime watermark = series.getStartTime().plusDays(2);
+        series.setMaterializedUntil(watermark);
+        when(eventRepo.findByIdForUpdate(7)).thenReturn(Optional.of(series));
+        when(eventRepo.updateMaterializedUntil(eq(7), eq(watermark), any())).thenReturn(0);
+
+        // When & Then - the transaction is rolled back with the occurrences it stored
+        assertThatThrownBy(() -> occurrenceStore.extend(7, series.getStartTime().plusDays(4)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void extend_WhenSeriesDeleted_ShouldDoNothing() {
+        // Given
+        when(eventRepo.findByIdForUpdate(7)).thenReturn(Optional.empty());
+
+        // When
+        occurrenceStore.extend(7, series.getStartTime().plusDays(4));
+
+        // Then
+        verifyNoInteractions(occurrenceRepo);
+    }
+
+    @Test
+    void covers_ShouldCompareWatermarkWithWindowAndSeriesEnd() {
+        LocalDateTime from = series.getStartTime();
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusDays(1))).isFalse();
+
+        series.setMaterializedUntil(series.getStartTime().plusDays(2));
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusDays(1))).isTrue();
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusDays(3))).isFalse();
+
+        series.setMaterializedUntil(series.getRecurrenceEndDate());
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusYears(1))).isTrue();
+    }
+
+    @Test
+    void covers_WhenWindowStartsBeforeRetention_ShouldOnlyCoverSeriesStartedAfterIt() {
+        // Given
+        series.setMaterializedUntil(series.getRecurrenceEndDate());
+        LocalDateTime from = LocalDate.now().minusDays(120).atStartOfDay();
+
+        // When & Then - the series started after the cut-off, none of its occurrences was pruned
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusDays(1))).isTrue();
+
+        series.setStartTime(LocalDate.now().minusDays(100).atTime(9, 0));
+        series.setEndTime(series.getStartTime().plusMinutes(15));
+        assertThat(occurrenceStore.covers(series, from, series.getStartTime().plusDays(1))).isFalse();
+    }
+
+    @Test
+    void checkConsistency_ShouldReportDifferences() {
+        // Given
+        series.setMaterializedUntil(series.getStartTime().plusDays(2));
+        List<Occurrences> stored = new ArrayList<>();
+        stored.add(new Occurrences(1L, series, 0, series.getStartTime().plusDays(1), series.getStartTime().plusDays(1).plusMinutes(15)));
+        when(occurrenceRepo.findByEvent_IdOrderByOccurrenceIndex(7)).thenReturn(stored);
+
+        // When & Then - second occurrence is missing
+        assertThat(occurrenceStore.checkConsistency(series)).contains("expected 2 occurrences but found 1");
+
+        stored.add(new Occurrences(2L, series, 1, series.getStartTime().plusDays(2), series.getStartTime().plusDays(2).plusMinutes(15)));
+        assertThat(occurrenceStore.checkConsistency(series)).isNull();
+    }
+}
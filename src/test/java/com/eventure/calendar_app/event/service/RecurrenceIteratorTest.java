@@ -0,0 +1,225 @@
+package com.eventure.calendar_app.event.service;
+
+import net.fortuna.ical4j.model.Recur;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RecurrenceIteratorTest {
+
+    private static final String[] FREQUENCIES = {"DAILY", "WEEKLY", "MONTHLY", "YEARLY"};
+    private static final String[] DAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    @Test
+    void iterator_ShouldMatchIcal4jForRandomRules() {
+        Random random = new Random(20240101L);
+
+        for(int i = 0; i < 5000; i++) {
+            String rule = randomRule(random);
+            LocalDateTime seed = LocalDate.of(2000, 1, 1)
+                    .plusDays(random.nextInt(365 * 30))
+                    .atTime(random.nextInt(24), random.nextInt(4) * 15);
+            LocalDateTime periodStart = seed.plusDays(random.nextInt(400) - 30);
+            LocalDateTime periodEnd = periodStart.plusDays(1 + random.nextInt(900));
+
+            RecurrenceRule compiled = RecurrenceRule.parse(rule, ZoneOffset.UTC);
+            assertThat(compiled.isCompiled()).as(rule).isTrue();
+
+            assertThat(nativeDates(compiled, seed, periodStart, periodEnd))
+                    .as("%s seed=%s period=%s..%s", rule, seed, periodStart, periodEnd)
+                    .isEqualTo(ical4jDates(compiled.recur(), seed, periodStart, periodEnd));
+        }
+    }
+
+    @Test
+    void seek_ShouldMatchIteratingFromTheSeed() {
+        Random random = new Random(20240202L);
+
+        for(int i = 0; i < 5000; i++) {
+            String rule = randomRule(random);
+            LocalDateTime seed = LocalDate.of(2000, 1, 1)
+                    .plusDays(random.nextInt(365 * 30))
+                    .atTime(random.nextInt(24), random.nextInt(4) * 15);
+            LocalDateTime target = seed.plusMinutes(random.nextInt(60 * 24 * 2000) - 60 * 24 * 30);
+            LocalDateTime end = target.plusDays(random.nextInt(400));
+
+            RecurrenceRule compiled = RecurrenceRule.parse(rule, ZoneOffset.UTC);
+            RecurrenceIterator sought = compiled.iterator(seed, end);
+            sought.seek(target);
+            int position = sought.position();
+
+            List<LocalDateTime> dates = new ArrayList<>();
+            while(sought.hasNext()) {
+                dates.add(sought.nextDateTime());
+            }
+
+            assertThat(dates)
+                    .as("%s seed=%s target=%s end=%s", rule, seed, target, end)
+                    .isEqualTo(nativeDates(compiled, seed, target, end));
+            assertThat(position)
+                    .as("position of %s seed=%s target=%s end=%s", rule, seed, target, end)
+                    .isEqualTo(nativeDates(compiled, seed, seed, end).stream().filter(date -> date.isBefore(target)).count());
+        }
+    }
+
+    @Test
+    void seek_ShouldJumpIntoLongLivedSeries() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=MO,WE;COUNT=2000", ZoneOffset.UTC);
+        LocalDateTime seed = LocalDateTime.of(2010, 1, 4, 9, 0);
+        RecurrenceIterator iterator = rule.iterator(seed, LocalDateTime.of(2030, 1, 1, 0, 0));
+
+        iterator.seek(LocalDateTime.of(2025, 3, 5, 9, 0));
+
+        assertThat(iterator.nextDateTime()).isEqualTo(LocalDateTime.of(2025, 3, 5, 9, 0));
+        assertThat(iterator.nextDateTime()).isEqualTo(LocalDateTime.of(2025, 3, 10, 9, 0));
+
+        // 2000 occurrences, two a week from 2010-01-04, end in 2029
+        RecurrenceIterator last = rule.iterator(seed, LocalDateTime.of(2040, 1, 1, 0, 0));
+        last.seek(LocalDateTime.of(2029, 2, 1, 0, 0));
+        LocalDateTime previous = null;
+        while(last.hasNext()) {
+            previous = last.nextDateTime();
+        }
+        assertThat(previous).isEqualTo(seed.plusWeeks(999).plusDays(2));
+    }
+
+    @Test
+    void iterator_ShouldSkipDatesMissingFromTheMonth() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=MONTHLY;COUNT=3", ZoneOffset.UTC);
+        LocalDateTime seed = LocalDateTime.of(2024, 1, 31, 9, 0);
+
+        assertThat(nativeDates(rule, seed, seed, seed.plusYears(1))).containsExactly(
+                LocalDateTime.of(2024, 1, 31, 9, 0),
+                LocalDateTime.of(2024, 3, 31, 9, 0),
+                LocalDateTime.of(2024, 5, 31, 9, 0));
+    }
+
+    @Test
+    void iterator_ShouldHonourWeekStartAndInterval() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,SU;WKST=MO;COUNT=4", ZoneOffset.UTC);
+        LocalDateTime seed = LocalDateTime.of(2024, 1, 3, 9, 0);
+
+        assertThat(nativeDates(rule, seed, seed, seed.plusYears(1))).containsExactly(
+                LocalDateTime.of(2024, 1, 7, 9, 0),
+                LocalDateTime.of(2024, 1, 15, 9, 0),
+                LocalDateTime.of(2024, 1, 21, 9, 0),
+                LocalDateTime.of(2024, 1, 29, 9, 0));
+    }
+
+    @Test
+    void parse_ShouldLeaveUnsupportedRulesToIcal4j() {
+        assertThat(RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=2MO", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=YEARLY;BYMONTH=3", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=MONTHLY;BYSETPOS=-1;BYDAY=MO,TU", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=HOURLY", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=DAILY;UNTIL=20240105", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=MO;BYMONTHDAY=1", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=1,-1", ZoneOffset.UTC).isCompiled()).isFalse();
+        assertThat(RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=5,5", ZoneOffset.UTC).isCompiled()).isFalse();
+    }
+
+    @Test
+    void civilConversions_ShouldRoundTrip() {
+        for(long day = -800_000; day < 800_000; day += 37) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            long civil = RecurrenceIterator.civilFromDays(day);
+
+            assertThat(civil >> 9).isEqualTo(date.getYear());
+            assertThat((civil >> 5) & 15).isEqualTo(date.getMonthValue());
+            assertThat(civil & 31).isEqualTo(date.getDayOfMonth());
+            assertThat(RecurrenceIterator.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth())).isEqualTo(day);
+            assertThat(RecurrenceIterator.weekday(day)).isEqualTo(date.getDayOfWeek().ordinal());
+        }
+    }
+
+    private List<LocalDateTime> nativeDates(RecurrenceRule rule, LocalDateTime seed, LocalDateTime periodStart, LocalDateTime periodEnd) {
+        List<LocalDateTime> dates = new ArrayList<>();
+        RecurrenceIterator iterator = rule.iterator(seed, periodEnd);
+
+        while(iterator.hasNext()) {
+            LocalDateTime date = iterator.nextDateTime();
+            if(!date.isBefore(periodStart)) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    private List<LocalDateTime> ical4jDates(Recur<ZonedDateTime> recur, LocalDateTime seed, LocalDateTime periodStart, LocalDateTime periodEnd) {
+        return recur.getDates(seed.atZone(ZoneOffset.UTC), periodStart.atZone(ZoneOffset.UTC), periodEnd.atZone(ZoneOffset.UTC))
+                .stream()
+                .map(ZonedDateTime::toLocalDateTime)
+                .toList();
+    }
+
+    private String randomRule(Random random) {
+        String frequency = FREQUENCIES[random.nextInt(FREQUENCIES.length)];
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+
+        if(random.nextBoolean()) {
+            rule.append(";INTERVAL=").append(1 + random.nextInt(frequency.equals("DAILY") ? 10 : 4));
+        }
+
+        if(!frequency.equals("YEARLY")) {
+            boolean byDay = random.nextInt(3) > 0;
+            if(byDay) {
+                rule.append(";BYDAY=").append(randomDays(random));
+            }
+            if((!byDay || !frequency.equals("WEEKLY")) && random.nextInt(3) == 0) {
+                rule.append(";BYMONTHDAY=").append(randomMonthDays(random, frequency.equals("MONTHLY")));
+            }
+            if(frequency.equals("WEEKLY") && random.nextBoolean()) {
+                rule.append(";WKST=").append(DAYS[random.nextInt(DAYS.length)]);
+            }
+        }
+
+        switch (random.nextInt(3)) {
+            case 0 -> rule.append(";COUNT=").append(1 + random.nextInt(40));
+            case 1 -> rule.append(";UNTIL=").append(LocalDate.of(2000, 1, 1)
+                    .plusDays(random.nextInt(365 * 32))
+                    .atTime(random.nextInt(24), 0)
+                    .format(UNTIL_FORMAT))
+                    .append(random.nextBoolean() ? "Z" : "");
+            default -> {
+            }
+        }
+
+        return rule.toString();
+    }
+
+    private String randomDays(Random random) {
+        List<String> days = new ArrayList<>();
+        for(String day: DAYS) {
+            if(random.nextInt(3) == 0) {
+                days.add(day);
+            }
+        }
+        if(days.isEmpty()) {
+            days.add(DAYS[random.nextInt(DAYS.length)]);
+        }
+        return String.join(",", days);
+    }
+
+    private String randomMonthDays(Random random, boolean allowNegative) {
+        List<String> days = new ArrayList<>();
+        int size = 1 + random.nextInt(4);
+        int sign = allowNegative && random.nextInt(4) == 0 ? -1 : 1;
+        while(days.size() < size) {
+            String day = String.valueOf(sign * (1 + random.nextInt(31)));
+            if(!days.contains(day)) {
+                days.add(day);
+            }
+        }
+        return String.join(",", days);
+    }
+}
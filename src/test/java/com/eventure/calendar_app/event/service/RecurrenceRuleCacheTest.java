@@ -0,0 +1,50 @@
+package com.eventure.calendar_app.event.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.fortuna.ical4j.transform.recurrence.Frequency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RecurrenceRuleCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecurrenceRuleCache ruleCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ruleCache = new RecurrenceRuleCache(100, meterRegistry);
+    }
+
+    @Test
+    void get_ShouldParseRuleOnceForEquivalentStrings() {
+        // When
+        RecurrenceRule first = ruleCache.get("FREQ=WEEKLY;BYDAY=MO,WE");
+        RecurrenceRule second = ruleCache.get("byday=MO,WE;freq=weekly");
+        RecurrenceRule third = ruleCache.get("RRULE:FREQ=WEEKLY;BYDAY=MO,WE;");
+
+        // Then
+        assertThat(first.recur().getFrequency()).isEqualTo(Frequency.WEEKLY);
+        assertThat(second).isSameAs(first);
+        assertThat(third).isSameAs(first);
+        assertThat(ruleCache.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "recurrence.rules").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "recurrence.rules").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_WhenRuleInvalid_ShouldThrowIllegalArgument() {
+        assertThatThrownBy(() -> ruleCache.get("FREQ=SOMETIMES"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid recurrence rule");
+    }
+
+    @Test
+    void normalize_ShouldSortPartsAndStripPrefix() {
+        assertThat(RecurrenceRuleCache.normalize(" rrule:INTERVAL=2;FREQ=DAILY ")).isEqualTo("FREQ=DAILY;INTERVAL=2");
+    }
+}
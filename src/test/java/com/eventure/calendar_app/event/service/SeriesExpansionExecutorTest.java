@@ -0,0 +1,102 @@
+package com.eventure.calendar_app.event.service;
+
+import com.eventure.calendar_app.event.model.Events;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SeriesExpansionExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SeriesExpansionExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void expandAll_WhenAboveThreshold_ShouldRunInParallelAndKeepSeriesOrder() {
+        // Given
+        executor = new SeriesExpansionExecutor(true, 10, 4, meterRegistry);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        // When
+        List<Integer> results = executor.expandAll(series(200), event -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of(event.getId() * 10, event.getId() * 10 + 1);
+        });
+
+        // Then
+        List<Integer> expected = new ArrayList<>();
+        for(int id = 0; id < 200; id++) {
+            expected.add(id * 10);
+            expected.add(id * 10 + 1);
+        }
+        assertThat(results).isEqualTo(expected);
+        assertThat(threads).noneMatch(name -> name.equals(Thread.currentThread().getName()));
+        assertThat(meterRegistry.get("recurrence.expansion").tag("mode", "parallel").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("recurrence.expansion.series").summary().totalAmount()).isEqualTo(200);
+    }
+
+    @Test
+    void expandAll_WhenBelowThreshold_ShouldStayOnCallingThread() {
+        // Given
+        executor = new SeriesExpansionExecutor(true, 10, 4, meterRegistry);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        // When
+        List<Integer> results = executor.expandAll(series(9), event -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of(event.getId());
+        });
+
+        // Then
+        assertThat(results).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+        assertThat(meterRegistry.get("recurrence.expansion").tag("mode", "sequential").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void expandAll_WhenDisabled_ShouldStaySequential() {
+        // Given
+        executor = new SeriesExpansionExecutor(false, 1, 4, meterRegistry);
+
+        // When
+        executor.expandAll(series(100), event -> List.of(event.getId()));
+
+        // Then
+        assertThat(meterRegistry.get("recurrence.expansion").tag("mode", "parallel").timer().count()).isZero();
+        assertThat(meterRegistry.get("recurrence.expansion").tag("mode", "sequential").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void expandAll_WhenExpansionFails_ShouldRethrow() {
+        // Given
+        executor = new SeriesExpansionExecutor(true, 1, 4, meterRegistry);
+
+        // When & Then
+        assertThatThrownBy(() -> executor.expandAll(series(50), event -> {
+            if(event.getId() == 42) {
+                throw new IllegalArgumentException("broken series");
+            }
+            return List.of(event.getId());
+        })).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("broken series");
+    }
+
+    private List<Events> series(int size) {
+        return IntStream.range(0, size).mapToObj(id -> {
+            Events event = new Events();
+            event.setId(id);
+            return event;
+        }).toList();
+    }
+}
@@ -0,0 +1,112 @@
+package com.eventure.calendar_app.freebusy.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.eventure.calendar_app.freebusy.model.BusyBlock;
+import com.eventure.calendar_app.freebusy.model.FreeSlot;
+import com.eventure.calendar_app.freebusy.service.FreeBusyService;
+import com.eventure.calendar_app.freebusy.service.SlotFinderService;
+import com.eventure.calendar_app.testconfig.TestSecurityConfig;
+
+@WebMvcTest(FreeBusyController.class)
+@Import(TestSecurityConfig.class)
+@ContextConfiguration(classes = {FreeBusyController.class, TestSecurityConfig.class})
+public class FreeBusyControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FreeBusyService freeBusyService;
+
+    @MockBean
+    private SlotFinderService slotFinderService;
+
+    @Test
+    void getFreeBusy_ShouldReturnBusyBlocks() throws Exception {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 5, 0, 0);
+        when(freeBusyService.getBusy(any(), eq(from), eq(to), eq(15))).thenReturn(List.of(
+                new BusyBlock(LocalDateTime.of(2024, 3, 4, 9, 0), LocalDateTime.of(2024, 3, 4, 10, 30))));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/freebusy")
+                .param("from", "2024-03-04T00:00:00")
+                .param("to", "2024-03-05T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].start").value("2024-03-04T09:00:00"))
+                .andExpect(jsonPath("$[0].end").value("2024-03-04T10:30:00"));
+    }
+
+    @Test
+    void getFreeBusy_WhenGranularityInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(freeBusyService.getBusy(any(), any(), any(), eq(7)))
+                .thenThrow(new IllegalArgumentException("invalid granularity"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/freebusy")
+                .param("from", "2024-03-04T00:00:00")
+                .param("to", "2024-03-05T00:00:00")
+                .param("granularity", "7"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("invalid granularity"));
+    }
+
+    @Test
+    void findSlots_ShouldReturnSlotsFreeForAttendees() throws Exception {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 3, 4, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 4, 18, 0);
+        when(slotFinderService.findSlots(argThat(usernames -> usernames.containsAll(List.of("alice", "bob"))),
+                eq(Duration.ofMinutes(30)), eq(from), eq(to), eq(5)))
+                .thenReturn(List.of(new FreeSlot(from, from.plusHours(1))));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/freebusy/slots")
+                .param("attendees", "alice,bob")
+                .param("duration", "30")
+                .param("from", "2024-03-04T08:00:00")
+                .param("to", "2024-03-04T18:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].start").value("2024-03-04T08:00:00"))
+                .andExpect(jsonPath("$[0].end").value("2024-03-04T09:00:00"));
+    }
+
+    @Test
+    void findSlots_WhenAttendeesUnknown_ShouldReturnBadRequestWithoutNamingThem() throws Exception {
+        // Arrange
+        when(slotFinderService.findSlots(any(), any(), any(), any(), anyInt()))
+                .thenThrow(new IllegalArgumentException("unknown attendees"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/freebusy/slots")
+                .param("attendees", "alice,bbo")
+                .param("duration", "30")
+                .param("from", "2024-03-04T08:00:00")
+                .param("to", "2024-03-04T18:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("unknown attendees"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.eventure.calendar_app.freebusy.service;
+
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.service.EventIndexService;
+import com.eventure.calendar_app.freebusy.model.BusyBlock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class FreeBusyServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 4);
+
+    private EventIndexService indexService = mock(EventIndexService.class);
+    private CalendarVersionService versions = mock(CalendarVersionService.class);
+    private FreeBusyService freeBusyService;
+
+    @BeforeEach
+    void setUp() {
+        freeBusyService = new FreeBusyService(indexService, versions, 1000, new SimpleMeterRegistry());
+        when(indexService.findOverlapping(eq("testuser"), any(ChangeVersion.class), any(), any())).thenReturn(List.of());
+        when(versions.userVersion("testuser")).thenReturn(new ChangeVersion(1L, 5L, null));
+    }
+
+    @Test
+    void getBusy_ShouldMergeOverlappingEventsIntoBlocksOnTheGrid() {
+        // Given
+        dayEvents(DAY,
+                event(9, 0, 10, 0),
+                event(9, 50, 10, 20),
+                event(13, 7, 13, 8));
+
+        // When
+        List<BusyBlock> busy = freeBusyService.getBusy("testuser", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), 15);
+
+        // Then
+        assertThat(busy).containsExactly(
+                new BusyBlock(DAY.atTime(9, 0), DAY.atTime(10, 30)),
+                new BusyBlock(DAY.atTime(13, 0), DAY.atTime(13, 15)));
+    }
+
+    @Test
+    void getBusy_ShouldClipBlocksToTheWindowAndJoinThemAcrossMidnight() {
+        // Given - an event running into the next day
+        EventOccurrence overnight = new EventOccurrence(1, series(), DAY.atTime(22, 0), DAY.plusDays(1).atTime(2, 0));
+        events(DAY, DAY.plusDays(2), overnight);
+
+        // When
+        List<BusyBlock> busy = freeBusyService.getBusy("testuser", DAY.atTime(23, 0), DAY.plusDays(1).atTime(1, 10), 30);
+
+        // Then
+        assertThat(busy).containsExactly(new BusyBlock(DAY.atTime(23, 0), DAY.plusDays(1).atTime(1, 10)));
+    }
+
+    @Test
+    void getBusy_ShouldCacheDaysUntilTheVersionOfTheUserMovesOn() {
+        // Given
+        dayEvents(DAY, event(9, 0, 10, 0));
+        LocalDateTime from = DAY.atStartOfDay();
+        LocalDateTime to = DAY.plusDays(1).atStartOfDay();
+
+        // When
+        freeBusyService.getBusy("testuser", from, to, 5);
+        freeBusyService.getBusy("testuser", from, to, 60);
+        // A write committed on any node moves the version on
+        when(versions.userVersion("testuser")).thenReturn(new ChangeVersion(1L, 6L, null));
+        freeBusyService.getBusy("testuser", from, to, 5);
+
+        // Then - one build before the change and one after
+        verify(indexService, times(2)).findOverlapping(eq("testuser"), any(ChangeVersion.class), eq(from), eq(to));
+    }
+
+    @Test
+    void getBusy_ShouldQueryTheIndexOnceForTheDaysNotCached() {
+        // Given - the first day is cached, an event runs from it into the next one
+        EventOccurrence overnight = new EventOccurrence(1, series(), DAY.atTime(22, 0), DAY.plusDays(1).atTime(2, 0));
+        EventOccurrence later = new EventOccurrence(2, series(), DAY.plusDays(2).atTime(9, 0), DAY.plusDays(2).atTime(10, 0));
+        dayEvents(DAY, overnight);
+        events(DAY.plusDays(1), DAY.plusDays(3), overnight, later);
+        freeBusyService.getBusy("testuser", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), 60);
+
+        // When
+        List<BusyBlock> busy = freeBusyService.getBusy("testuser", DAY.atStartOfDay(), DAY.plusDays(3).atStartOfDay(), 60);
+
+        // Then - the two other days come from one query with the version read for the request
+        assertThat(busy).containsExactly(
+                new BusyBlock(DAY.atTime(22, 0), DAY.plusDays(1).atTime(2, 0)),
+                new BusyBlock(DAY.plusDays(2).atTime(9, 0), DAY.plusDays(2).atTime(10, 0)));
+        verify(indexService).findOverlapping("testuser", new ChangeVersion(1L, 5L, null), DAY.plusDays(1).atStartOfDay(), DAY.plusDays(3).atStartOfDay());
+        verify(indexService, times(2)).findOverlapping(eq("testuser"), any(ChangeVersion.class), any(), any());
+        verify(indexService, never()).findOverlapping(any(), any(LocalDateTime.class), any());
+        verify(versions, times(2)).userVersion("testuser");
+    }
+
+    @Test
+    void getBusy_WhenUserUnknown_ShouldReturnNoBlocks() {
+        // When
+        List<BusyBlock> busy = freeBusyService.getBusy("nobody", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), 15);
+
+        // Then
+        assertThat(busy).isEmpty();
+        verifyNoInteractions(indexService);
+    }
+
+    @Test
+    void getBusy_WhenParametersInvalid_ShouldThrowException() {
+        LocalDateTime from = DAY.atStartOfDay();
+
+        assertThatThrownBy(() -> freeBusyService.getBusy("testuser", from, from.plusDays(1), 7))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeBusyService.getBusy("testuser", from, from.plusDays(1), 25))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeBusyService.getBusy("testuser", from, from, 15))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeBusyService.getBusy("testuser", from, from.plusYears(2), 15))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeBusyService.getBusy("testuser", from, from.plusDays(FreeBusyService.MAX_DAYS).plusMinutes(1), 15))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("time window must not exceed " + FreeBusyService.MAX_DAYS + " days");
+        // A window of MAX_DAYS days starting in the middle of a day is accepted
+        assertThatCode(() -> freeBusyService.getBusy("testuser", from.plusHours(12), from.plusHours(12).plusDays(FreeBusyService.MAX_DAYS), 15))
+                .doesNotThrowAnyException();
+    }
+
+    private void dayEvents(LocalDate day, EventOccurrence... events) {
+        events(day, day.plusDays(1), events);
+    }
+
+    // Events returned by the index for the days from firstDay until lastDay (exclusive)
+    private void events(LocalDate firstDay, LocalDate lastDay, EventOccurrence... events) {
+        when(indexService.findOverlapping(eq("testuser"), any(ChangeVersion.class), eq(firstDay.atStartOfDay()), eq(lastDay.atStartOfDay())))
+                .thenReturn(List.of(events));
+    }
+
+    private EventOccurrence event(int startHour, int startMinute, int endHour, int endMinute) {
+        return new EventOccurrence(1, series(), DAY.atTime(startHour, startMinute), DAY.atTime(endHour, endMinute));
+    }
+
+    private EventSeries series() {
+        return new EventSeries(1, "Busy", null, false, null, null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.eventure.calendar_app.freebusy.service;
+
+import com.eventure.calendar_app.calendar.service.CalendarVersionService;
+import com.eventure.calendar_app.common.ChangeVersion;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.service.EventIndexService;
+import com.eventure.calendar_app.event.service.RecurrenceExpander;
+import com.eventure.calendar_app.event.service.RecurrenceRuleCache;
+import com.eventure.calendar_app.freebusy.model.FreeSlot;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Slot finder over synthetic calendars: every attendee has daily and weekly recurring meetings running for months
+// plus a few single events a day. "cold" includes building the interval indexes, "warm" reuses them.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.eventure.calendar_app.freebusy.service.SlotFinderBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotFinderBenchmark {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 4, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(90);
+
+    @Param({"12", "48"})
+    private int attendees;
+
+    // Minutes, long meetings force the sweep far into the window
+    @Param({"30", "240"})
+    private int duration;
+
+    private EventRepo eventRepo;
+    private CalendarVersionService versions;
+    private UserRepo userRepo;
+    private List<String> usernames;
+    private SlotFinderService warmFinder;
+    private SlotFinderService coldFinder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        usernames = IntStream.range(0, attendees).mapToObj(i -> "user" + i).toList();
+        Map<String, List<Events>> calendars = usernames.stream()
+                .collect(Collectors.toMap(Function.identity(), username -> calendar(random)));
+
+        eventRepo = mock(EventRepo.class);
+        when(eventRepo.findByCreatedBy_Username(anyString())).thenAnswer(invocation -> calendars.get(invocation.<String>getArgument(0)));
+        versions = mock(CalendarVersionService.class);
+        when(versions.userVersion(anyString())).thenReturn(new ChangeVersion(1L, 1L, null));
+        userRepo = mock(UserRepo.class);
+        when(userRepo.findExistingUsernames(any())).thenReturn(usernames);
+
+        warmFinder = new SlotFinderService(indexService(), userRepo);
+        warmFinder.findSlots(usernames, Duration.ofMinutes(duration), FROM, TO, 10);
+    }
+
+    @Setup(Level.Invocation)
+    public void newIndexes() {
+        coldFinder = new SlotFinderService(indexService(), userRepo);
+    }
+
+    @Benchmark
+    public List<FreeSlot> warm() {
+        return warmFinder.findSlots(usernames, Duration.ofMinutes(duration), FROM, TO, 10);
+    }
+
+    @Benchmark
+    public List<FreeSlot> cold() {
+        return coldFinder.findSlots(usernames, Duration.ofMinutes(duration), FROM, TO, 10);
+    }
+
+    private EventIndexService indexService() {
+        RecurrenceExpander expander = new RecurrenceExpander(new RecurrenceRuleCache(10_000, new SimpleMeterRegistry()));
+        return new EventIndexService(eventRepo, expander, versions, 10_000, 60, 365, 90, new SimpleMeterRegistry());
+    }
+
+    // A standup every working day, three weekly meetings and three single events a day for the window
+    private List<Events> calendar(Random random) {
+        List<Events> events = new ArrayList<>();
+        LocalDateTime seriesStart = FROM.minusMonths(6);
+        int id = random.nextInt(1_000_000);
+
+        events.add(event(id++, seriesStart.withHour(9).withMinute(15 * random.nextInt(3)), 15, "FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR"));
+        for(String day: List.of("MO", "WE", "TH")) {
+            events.add(event(id++, seriesStart.withHour(10 + random.nextInt(7)).withMinute(30 * random.nextInt(2)), 60,
+                    "FREQ=WEEKLY;BYDAY=" + day));
+        }
+        for(int day = 0; day < 90; day++) {
+            for(int i = 0; i < 3; i++) {
+                LocalDateTime start = FROM.plusDays(day).withHour(8 + random.nextInt(10)).withMinute(15 * random.nextInt(4));
+                events.add(event(id++, start, 30 * (1 + random.nextInt(3)), null));
+            }
+        }
+        return events;
+    }
+
+    private Events event(int id, LocalDateTime start, int minutes, String rule) {
+        Events event = new Events();
+        event.setId(id);
+        event.setStartTime(start);
+        event.setEndTime(start.plusMinutes(minutes));
+        event.setRecurrenceRule(rule);
+        if(rule != null) {
+            event.setRecurrenceEndDate(TO.plusMonths(6));
+        }
+        return event;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SlotFinderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,176 @@
+package com.eventure.calendar_app.freebusy.service;
+
+import com.eventure.calendar_app.event.model.EventOccurrence;
+import com.eventure.calendar_app.event.model.EventSeries;
+import com.eventure.calendar_app.event.service.EventIndexService;
+import com.eventure.calendar_app.freebusy.model.FreeSlot;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SlotFinderServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 3, 4, 8, 0);
+
+    private EventIndexService indexService = mock(EventIndexService.class);
+    private UserRepo userRepo = mock(UserRepo.class);
+    private SlotFinderService slotFinder = new SlotFinderService(indexService, userRepo);
+
+    @BeforeEach
+    void setUp() {
+        when(indexService.findOverlapping(anyString(), any(), any())).thenReturn(List.of());
+        when(userRepo.findExistingUsernames(any())).thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(0)));
+    }
+
+    @Test
+    void findSlots_ShouldReturnGapsFreeForEveryAttendee() {
+        // Given
+        busy("alice", at(9, 0), at(10, 0), at(12, 0), at(13, 0));
+        busy("bob", at(9, 30), at(11, 0), at(14, 0), at(14, 20));
+
+        // When
+        List<FreeSlot> slots = slotFinder.findSlots(List.of("alice", "bob"), Duration.ofMinutes(30), FROM, at(18, 0), 10);
+
+        // Then - the 20 minute gap before 14:20 is too short
+        assertThat(slots).containsExactly(
+                new FreeSlot(at(8, 0), at(9, 0)),
+                new FreeSlot(at(11, 0), at(12, 0)),
+                new FreeSlot(at(13, 0), at(14, 0)),
+                new FreeSlot(at(14, 20), at(18, 0)));
+    }
+
+    @Test
+    void findSlots_ShouldStopAfterLimitAndSkipLaterChunks() {
+        // Given
+        busy("alice", at(9, 0), at(10, 0));
+
+        // When
+        List<FreeSlot> slots = slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM, FROM.plusDays(60), 1);
+
+        // Then
+        assertThat(slots).containsExactly(new FreeSlot(at(8, 0), at(9, 0)));
+        verify(indexService, times(1)).findOverlapping(eq("alice"), any(), any());
+    }
+
+    @Test
+    void findSlots_ShouldKeepFreeRangesOpenAcrossChunks() {
+        // When - nobody has anything planned
+        List<FreeSlot> slots = slotFinder.findSlots(List.of("alice", "bob"), Duration.ofHours(1), FROM, FROM.plusDays(20), 5);
+
+        // Then
+        assertThat(slots).containsExactly(new FreeSlot(FROM, FROM.plusDays(20)));
+    }
+
+    @Test
+    void findSlots_ShouldMatchPairwiseScanOnRandomCalendars() {
+        Random random = new Random(20240305L);
+
+        for(int round = 0; round < 200; round++) {
+            List<String> users = List.of("a", "b", "c", "d");
+            List<EventOccurrence> all = new ArrayList<>();
+            reset(indexService);
+
+            for(String user: users) {
+                List<EventOccurrence> events = new ArrayList<>();
+                for(int i = 0; i < random.nextInt(8); i++) {
+                    LocalDateTime start = FROM.plusMinutes(15L * random.nextInt(40));
+                    events.add(occurrence(start, start.plusMinutes(15L * (1 + random.nextInt(8)))));
+                }
+                events.sort((x, y) -> x.startTime().compareTo(y.startTime()));
+                when(indexService.findOverlapping(eq(user), any(), any())).thenReturn(events);
+                all.addAll(events);
+            }
+
+            Duration duration = Duration.ofMinutes(15L * (1 + random.nextInt(4)));
+            List<FreeSlot> slots = slotFinder.findSlots(users, duration, FROM, FROM.plusHours(10), 100);
+
+            // Every minute is free in the result exactly when nobody is busy and it lies in a long enough gap
+            assertThat(slots).as("round %d", round).isEqualTo(scan(all, duration, FROM, FROM.plusHours(10)));
+        }
+    }
+
+    @Test
+    void findSlots_WhenParametersInvalid_ShouldThrowException() {
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of(), Duration.ofMinutes(30), FROM, FROM.plusDays(1), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice"), Duration.ZERO, FROM, FROM.plusDays(1), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM, FROM, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM, FROM.plusYears(2), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Same limit as free/busy
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM,
+                FROM.plusDays(FreeBusyService.MAX_DAYS).plusMinutes(1), 5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("time window must not exceed " + FreeBusyService.MAX_DAYS + " days");
+        assertThatCode(() -> slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM, FROM.plusDays(FreeBusyService.MAX_DAYS), 5))
+                .doesNotThrowAnyException();
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice"), Duration.ofMinutes(30), FROM, FROM.plusDays(1), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void findSlots_WhenAttendeesUnknown_ShouldRejectWithoutNamingThemOrSearching() {
+        // Given
+        doReturn(List.of("alice")).when(userRepo).findExistingUsernames(any());
+
+        // When & Then
+        assertThatThrownBy(() -> slotFinder.findSlots(List.of("alice", "bbo", "carol"), Duration.ofMinutes(30), FROM, FROM.plusDays(1), 5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("unknown attendees");
+        verify(userRepo, times(1)).findExistingUsernames(any());
+        verifyNoInteractions(indexService);
+    }
+
+    // Reference: walk the window minute by minute
+    private List<FreeSlot> scan(List<EventOccurrence> busy, Duration duration, LocalDateTime from, LocalDateTime to) {
+        List<FreeSlot> slots = new ArrayList<>();
+        LocalDateTime gapStart = null;
+
+        for(LocalDateTime minute = from; !minute.isAfter(to); minute = minute.plusMinutes(1)) {
+            LocalDateTime current = minute;
+            boolean free = minute.isBefore(to) && busy.stream()
+                    .noneMatch(e -> !e.startTime().isAfter(current) && e.endTime().isAfter(current));
+
+            if(free && gapStart == null) {
+                gapStart = minute;
+            } else if(!free && gapStart != null) {
+                if(!gapStart.plus(duration).isAfter(minute)) {
+                    slots.add(new FreeSlot(gapStart, minute));
+                }
+                gapStart = null;
+            }
+        }
+        return slots;
+    }
+
+    private void busy(String username, LocalDateTime... times) {
+        List<EventOccurrence> events = new ArrayList<>();
+        for(int i = 0; i < times.length; i += 2) {
+            events.add(occurrence(times[i], times[i + 1]));
+        }
+        when(indexService.findOverlapping(eq(username), any(), any())).thenReturn(events);
+    }
+
+    private EventOccurrence occurrence(LocalDateTime start, LocalDateTime end) {
+        return new EventOccurrence(1, new EventSeries(1, "Busy", null, false, null, null), start, end);
+    }
+
+    private LocalDateTime at(int hour, int minute) {
+        return FROM.withHour(hour).withMinute(minute);
+    }
+}
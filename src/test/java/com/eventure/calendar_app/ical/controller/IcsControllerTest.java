@@ -0,0 +1,207 @@
+package com.eventure.calendar_app.ical.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.eventure.calendar_app.ical.model.IcsFeed;
+import com.eventure.calendar_app.ical.model.ImportSummary;
+import com.eventure.calendar_app.ical.service.IcsExportService;
+import com.eventure.calendar_app.ical.service.IcsImportService;
+import com.eventure.calendar_app.testconfig.TestSecurityConfig;
+
+import net.fortuna.ical4j.data.ParserException;
+
+@WebMvcTest(IcsController.class)
+@Import(TestSecurityConfig.class)
+@ContextConfiguration(classes = {IcsController.class, TestSecurityConfig.class})
+public class IcsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private IcsImportService importService;
+
+    @MockBean
+    private IcsExportService exportService;
+
+    private final IcsFeed feed = new IcsFeed("Work", 1, null, "testuser", 7, Instant.parse("2024-03-01T10:00:00Z"));
+
+    @Test
+    void importCalendar_ShouldReturnSummary() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(1), any(), any())).thenReturn(new ImportSummary(4, 2, 1, 1, 0, 0, List.of()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/calendars/{id}/import", 1)
+                .contentType("text/calendar")
+                .content("BEGIN:VCALENDAR\nEND:VCALENDAR\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.read").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.updated").value(1));
+    }
+
+    @Test
+    void importCalendarFile_ShouldReadUploadedFile() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(1), any(), any())).thenReturn(new ImportSummary(1, 1, 0, 0, 0, 0, List.of()));
+        MockMultipartFile file = new MockMultipartFile("file", "calendar.ics", "text/calendar", "BEGIN:VCALENDAR\n".getBytes());
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/calendars/{id}/import", 1).file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+    }
+
+    @Test
+    void importCalendar_WhenDataInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(1), any(), any())).thenThrow(new ParserException("Error at line 2", 2));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/calendars/{id}/import", 1)
+                .contentType("text/calendar")
+                .content("BEGIN:VCALENDAR\nnot ical\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importCalendar_WhenContentRejectedByParser_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(1), any(), any())).thenThrow(new IllegalArgumentException("Invalid property value"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/calendars/{id}/import", 1)
+                .contentType("text/calendar")
+                .content("BEGIN:VCALENDAR\nEND:VCALENDAR\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid property value"));
+    }
+
+    @Test
+    void importCalendar_WhenCalendarUnknown_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(9), any(), any())).thenThrow(new NoSuchElementException("calendar not found: 9"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/calendars/{id}/import", 9)
+                .contentType("text/calendar")
+                .content("BEGIN:VCALENDAR\nEND:VCALENDAR\n"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("calendar not found: 9"));
+    }
+
+    @Test
+    void importCalendarFile_WhenCalendarUnknown_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(9), any(), any())).thenThrow(new NoSuchElementException("calendar not found: 9"));
+        MockMultipartFile file = new MockMultipartFile("file", "events.ics", "text/calendar",
+                "BEGIN:VCALENDAR\nEND:VCALENDAR\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/calendars/{id}/import", 9).file(file))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importCalendar_WhenNotOwner_ShouldReturnForbidden() throws Exception {
+        // Arrange
+        when(importService.importEvents(eq(1), any(), any())).thenThrow(new AccessDeniedException("Not allowed to import into this calendar"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/calendars/{id}/import", 1)
+                .contentType("text/calendar")
+                .content("BEGIN:VCALENDAR\nEND:VCALENDAR\n"))
+                .andExpect(status().isForbidden())
+                .andExpect(content().string("Not allowed to import into this calendar"));
+    }
+
+    @Test
+    void exportCalendar_ShouldStreamFeedWithValidators() throws Exception {
+        // Arrange
+        when(exportService.calendarFeed(eq(1), any())).thenReturn(feed);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).write(eq(feed), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/calendars/{id}.ics", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/calendar;charset=UTF-8"))
+                .andExpect(header().string("ETag", "W/\"c1-v7\""))
+                .andExpect(header().dateValue("Last-Modified", feed.lastModified()))
+                .andExpect(content().string("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n"));
+    }
+
+    @Test
+    void exportCalendar_WhenEtagMatches_ShouldReturnNotModifiedWithoutWriting() throws Exception {
+        // Arrange
+        when(exportService.calendarFeed(eq(1), any())).thenReturn(feed);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars/{id}.ics", 1).header("If-None-Match", feed.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", feed.etag()))
+                .andExpect(content().string(""));
+        verify(exportService, never()).write(any(), any());
+    }
+
+    @Test
+    void exportAllCalendars_WhenVersionChanged_ShouldReturnNewFeed() throws Exception {
+        // Arrange - the client still has version 6
+        IcsFeed userFeed = new IcsFeed("testuser", null, 3L, "testuser", 7, null);
+        when(exportService.userFeed(any())).thenReturn(userFeed);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars.ics").header("If-None-Match", "W/\"u3-v6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"u3-v7\""));
+    }
+
+    @Test
+    void exportCalendar_WhenNotOwner_ShouldReturnForbidden() throws Exception {
+        // Arrange
+        when(exportService.calendarFeed(eq(1), any())).thenThrow(new AccessDeniedException("Not allowed to export this calendar"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/calendars/{id}.ics", 1))
+                .andExpect(status().isForbidden());
+    }
+}
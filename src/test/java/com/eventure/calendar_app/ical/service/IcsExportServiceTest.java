@@ -0,0 +1,223 @@
+package com.eventure.calendar_app.ical.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.EventBatchOperation;
+import com.eventure.calendar_app.event.model.EventBatchOperation.Action;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.event.service.EventBatchService;
+import com.eventure.calendar_app.event.service.EventService;
+import com.eventure.calendar_app.ical.model.IcsFeed;
+import com.eventure.calendar_app.ical.model.ImportSummary;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class IcsExportServiceTest {
+
+    @Autowired
+    private IcsExportService exportService;
+
+    @Autowired
+    private IcsImportService importService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventBatchService batchService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    private Calendars calendar;
+    private Calendars copy;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = userRepo.save(user);
+
+        calendar = calendar("Work, main", user);
+        copy = calendar("Copy", user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void write_ShouldKeepRecurrenceRulesAndImportBackTheSameEvents() throws Exception {
+        // Given
+        eventService.createEvent(event("Standup; daily", LocalDateTime.of(2024, 3, 4, 9, 30), "FREQ=DAILY;COUNT=10"), "testuser");
+        eventService.createEvent(event("Review", LocalDateTime.of(2024, 3, 6, 15, 0), "FREQ=WEEKLY;BYDAY=WE"), "testuser");
+        eventService.createEvent(event("Call", LocalDateTime.of(2024, 3, 7, 11, 0), null), "testuser");
+
+        // When
+        String ics = export(exportService.calendarFeed(calendar.getId(), "testuser"));
+
+        // Then - one VEVENT per event, the series are not expanded
+        assertThat(ics).startsWith("BEGIN:VCALENDAR\r\n").endsWith("END:VCALENDAR\r\n");
+        assertThat(ics).contains("X-WR-CALNAME:Work\\, main\r\n");
+        assertThat(ics.split("BEGIN:VEVENT", -1)).hasSize(4);
+        assertThat(ics).contains("SUMMARY:Standup\\; daily\r\n", "RRULE:FREQ=DAILY;COUNT=10\r\n");
+        // The unbounded rule is written as it is stored
+        assertThat(ics).contains("RRULE:FREQ=WEEKLY;BYDAY=WE\r\n");
+
+        ImportSummary summary = importService.importEvents(copy.getId(),
+                new ByteArrayInputStream(ics.getBytes(StandardCharsets.UTF_8)), "testuser");
+        assertThat(summary.created()).isEqualTo(3);
+
+        List<Events> original = eventsOf(calendar);
+        List<Events> imported = eventsOf(copy);
+        assertThat(imported).extracting(Events::getTitle).containsExactlyElementsOf(original.stream().map(Events::getTitle).toList());
+        assertThat(imported).extracting(Events::getStartTime).containsExactlyElementsOf(original.stream().map(Events::getStartTime).toList());
+        assertThat(imported).extracting(Events::getEndTime).containsExactlyElementsOf(original.stream().map(Events::getEndTime).toList());
+    }
+
+    @Test
+    void write_WhenServerZoneHasRules_ShouldWriteItsVTimezone() throws Exception {
+        TimeZone server = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        try {
+            // Given - a series with an end date stored apart from its rule
+            Events review = event("Review", LocalDateTime.of(2024, 3, 6, 15, 0), "FREQ=WEEKLY;BYDAY=WE");
+            review.setRecurrenceEndDate(LocalDateTime.of(2024, 6, 26, 15, 0));
+            eventService.createEvent(review, "testuser");
+
+            // When
+            String ics = export(exportService.calendarFeed(calendar.getId(), "testuser"));
+
+            // Then - the TZID has its VTIMEZONE before the events
+            assertThat(ics).contains("BEGIN:VTIMEZONE\r\nTZID:Europe/Berlin\r\n", "DTSTART;TZID=Europe/Berlin:20240306T150000\r\n");
+            assertThat(ics.indexOf("END:VTIMEZONE")).isLessThan(ics.indexOf("BEGIN:VEVENT"));
+            assertThat(ics).contains("RRULE:FREQ=WEEKLY;BYDAY=WE;UNTIL=20240626T130000Z\r\n");
+
+            ImportSummary summary = importService.importEvents(copy.getId(),
+                    new ByteArrayInputStream(ics.getBytes(StandardCharsets.UTF_8)), "testuser");
+            assertThat(summary.created()).isEqualTo(1);
+            assertThat(eventsOf(copy)).extracting(Events::getStartTime).containsExactly(LocalDateTime.of(2024, 3, 6, 15, 0));
+        } finally {
+            TimeZone.setDefault(server);
+        }
+    }
+
+    @Test
+    void write_ShouldPageThroughLargeCalendars() throws Exception {
+        // Given
+        int count = IcsExportService.PAGE_SIZE + 3;
+        List<EventBatchOperation> operations = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            operations.add(new EventBatchOperation(Action.CREATE, null, event("Event " + i, LocalDateTime.of(2024, 3, 4, 9, 0), null)));
+        }
+        batchService.apply(operations.subList(0, EventBatchService.MAX_BATCH_SIZE), "testuser");
+        batchService.apply(operations.subList(EventBatchService.MAX_BATCH_SIZE, count), "testuser");
+
+        // When
+        String ics = export(exportService.calendarFeed(calendar.getId(), "testuser"));
+
+        // Then
+        assertThat(ics.split("BEGIN:VEVENT", -1)).hasSize(count + 1);
+    }
+
+    @Test
+    void calendarFeed_ShouldChangeVersionOncePerCommittedWrite() throws Exception {
+        // Given
+        IcsFeed before = exportService.calendarFeed(calendar.getId(), "testuser");
+        IcsFeed userBefore = exportService.userFeed("testuser");
+
+        // When - a single write and a batch of two
+        eventService.createEvent(event("One", LocalDateTime.of(2024, 3, 4, 9, 0), null), "testuser");
+        IcsFeed afterCreate = exportService.calendarFeed(calendar.getId(), "testuser");
+        batchService.apply(List.of(
+                new EventBatchOperation(Action.CREATE, null, event("Two", LocalDateTime.of(2024, 3, 5, 9, 0), null)),
+                new EventBatchOperation(Action.CREATE, null, event("Three", LocalDateTime.of(2024, 3, 6, 9, 0), null))), "testuser");
+        IcsFeed afterBatch = exportService.calendarFeed(calendar.getId(), "testuser");
+
+        // Then
+        assertThat(before.version()).isZero();
+        assertThat(before.changedAt()).isNull();
+        assertThat(afterCreate.version()).isEqualTo(1);
+        assertThat(afterCreate.changedAt()).isNotNull();
+        assertThat(afterBatch.version()).isEqualTo(2);
+        assertThat(afterBatch.etag()).isNotEqualTo(afterCreate.etag());
+        assertThat(exportService.userFeed("testuser").version()).isEqualTo(userBefore.version() + 2);
+        // Calendars without changes keep their version
+        assertThat(exportService.calendarFeed(copy.getId(), "testuser").version()).isZero();
+    }
+
+    @Test
+    void calendarFeed_WhenNotOwner_ShouldThrowAccessDenied() {
+        assertThatThrownBy(() -> exportService.calendarFeed(calendar.getId(), "otheruser"))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private String export(IcsFeed feed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.write(feed, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<Events> eventsOf(Calendars target) {
+        return eventRepo.findAll().stream()
+                .filter(event -> event.getCalendar().getId().equals(target.getId()))
+                .sorted(Comparator.comparing(Events::getStartTime))
+                .toList();
+    }
+
+    private Calendars calendar(String name, Users owner) {
+        Calendars created = new Calendars();
+        created.setName(name);
+        created.setOwner(owner);
+        return calendarRepo.save(created);
+    }
+
+    private Events event(String title, LocalDateTime start, String rule) {
+        Events event = new Events();
+        event.setTitle(title);
+        event.setStartTime(start);
+        event.setEndTime(start.plusMinutes(45));
+        event.setIsRecurring(rule != null);
+        event.setRecurrenceRule(rule);
+        Calendars reference = new Calendars();
+        reference.setId(calendar.getId());
+        event.setCalendar(reference);
+        return event;
+    }
+}
@@ -0,0 +1,238 @@
+package com.eventure.calendar_app.ical.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.ical.model.ImportSummary;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import net.fortuna.ical4j.data.ParserException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class IcsImportServiceTest {
+
+    private static final String CALENDAR = """
+            BEGIN:VCALENDAR
+            VERSION:2.0
+            PRODID:-//Test//Import//EN
+            BEGIN:VTIMEZONE
+            TZID:Europe/Berlin
+            BEGIN:STANDARD
+            DTSTART:19701025T030000
+            TZOFFSETFROM:+0200
+            TZOFFSETTO:+0100
+            END:STANDARD
+            END:VTIMEZONE
+            BEGIN:VEVENT
+            UID:standup@example.com
+            SUMMARY:Standup\\, daily
+            DTSTART;TZID=Europe/Berlin:20240304T093000
+            DTEND;TZID=Europe/Berlin:20240304T094500
+            RRULE:FREQ=DAILY;UNTIL=20240329
+            EXDATE;TZID=Europe/Berlin:20240306T093000
+            BEGIN:VALARM
+            ACTION:DISPLAY
+            DESCRIPTION:Reminder
+            TRIGGER:-PT10M
+            END:VALARM
+            END:VEVENT
+            BEGIN:VEVENT
+            UID:standup@example.com
+            RECURRENCE-ID;TZID=Europe/Berlin:20240305T093000
+            SUMMARY:Standup (moved)
+            DTSTART;TZID=Europe/Berlin:20240305T100000
+            DTEND;TZID=Europe/Berlin:20240305T101500
+            END:VEVENT
+            BEGIN:VEVENT
+            UID:holiday@example.com
+            SUMMARY:Holiday
+            DTSTART;VALUE=DATE:20240401
+            END:VEVENT
+            BEGIN:VEVENT
+            UID:call@example.com
+            SUMMARY:Call
+            DTSTART:20240306T150000Z
+            DURATION:PT30M
+            END:VEVENT
+            BEGIN:VEVENT
+            UID:broken@example.com
+            SUMMARY:Broken
+            DTSTART:not-a-date
+            END:VEVENT
+            END:VCALENDAR
+            """;
+
+    @Autowired
+    private IcsImportService importService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    private Calendars calendar;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user = userRepo.save(user);
+
+        calendar = new Calendars();
+        calendar.setName("Imported");
+        calendar.setOwner(user);
+        calendar = calendarRepo.save(calendar);
+    }
+
+    @AfterEach
+    void tearDown() {
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void importEvents_ShouldMapEventsAndReportCounts() throws Exception {
+        // When
+        ImportSummary summary = importService.importEvents(calendar.getId(), stream(CALENDAR), "testuser");
+
+        // Then
+        assertThat(summary.read()).isEqualTo(5);
+        assertThat(summary.created()).isEqualTo(3);
+        assertThat(summary.skipped()).isEqualTo(1);
+        assertThat(summary.partial()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(1);
+        // The series counts as created, the override and the exception date it lost are reported
+        assertThat(summary.errors()).satisfiesExactly(
+                error -> assertThat(error).contains("standup@example.com", "EXDATE"),
+                error -> assertThat(error).contains("standup@example.com", "RECURRENCE-ID"),
+                error -> assertThat(error).contains("broken@example.com"));
+
+        List<Events> events = eventRepo.findAll();
+        events.sort(Comparator.comparing(Events::getStartTime));
+
+        Events standup = events.get(0);
+        assertThat(standup.getTitle()).isEqualTo("Standup, daily");
+        assertThat(standup.getStartTime()).isEqualTo(serverTime(LocalDateTime.of(2024, 3, 4, 9, 30), "Europe/Berlin"));
+        assertThat(standup.getRecurrenceRule()).isEqualTo("FREQ=DAILY;UNTIL=20240329T235959");
+        assertThat(standup.getRecurrenceEndDate()).isEqualTo(LocalDateTime.of(2024, 3, 29, 23, 59, 59));
+        assertThat(standup.getMaterializedUntil()).isNotNull();
+
+        Events call = events.get(1);
+        assertThat(call.getStartTime()).isEqualTo(serverTime(LocalDateTime.of(2024, 3, 6, 15, 0), "UTC"));
+        assertThat(call.getEndTime()).isEqualTo(call.getStartTime().plusMinutes(30));
+
+        Events holiday = events.get(2);
+        assertThat(holiday.getStartTime()).isEqualTo(LocalDateTime.of(2024, 4, 1, 0, 0));
+        assertThat(holiday.getEndTime()).isEqualTo(LocalDateTime.of(2024, 4, 2, 0, 0));
+        assertThat(holiday.getIsRecurring()).isFalse();
+    }
+
+    @Test
+    void importEvents_WhenImportedAgain_ShouldUpdateByUid() throws Exception {
+        // Given
+        importService.importEvents(calendar.getId(), stream(CALENDAR), "testuser");
+        long occurrences = occurrenceRepo.count();
+
+        // When
+        ImportSummary summary = importService.importEvents(calendar.getId(),
+                stream(CALENDAR.replace("SUMMARY:Holiday", "SUMMARY:Public holiday")), "testuser");
+
+        // Then
+        assertThat(summary.created()).isZero();
+        assertThat(summary.updated()).isEqualTo(3);
+        assertThat(eventRepo.count()).isEqualTo(3);
+        assertThat(eventRepo.findAll()).extracting(Events::getTitle).contains("Public holiday");
+        // The occurrences of the updated events are replaced, not added to
+        assertThat(occurrenceRepo.count()).isEqualTo(occurrences);
+    }
+
+    @Test
+    void importEvents_ShouldWriteLargeFilesInBatches() throws Exception {
+        // Given - more events than fit in two batches, streamed without building the file in memory
+        int count = IcsImportService.BATCH_SIZE * 2 + 7;
+        List<InputStream> parts = new ArrayList<>();
+        parts.add(stream("BEGIN:VCALENDAR\nVERSION:2.0\nPRODID:-//Test//Import//EN\n"));
+        IntStream.range(0, count).forEach(i -> parts.add(stream("""
+                BEGIN:VEVENT
+                UID:event-%d@example.com
+                SUMMARY:Event %d
+                DTSTART:20240304T090000
+                DTEND:20240304T100000
+                END:VEVENT
+                """.formatted(i, i))));
+        parts.add(stream("END:VCALENDAR\n"));
+
+        // When
+        ImportSummary summary = importService.importEvents(calendar.getId(),
+                new SequenceInputStream(Collections.enumeration(parts)), "testuser");
+
+        // Then
+        assertThat(summary.created()).isEqualTo(count);
+        assertThat(eventRepo.count()).isEqualTo(count);
+    }
+
+    @Test
+    void importEvents_WhenDataInvalid_ShouldThrowParserException() {
+        assertThatThrownBy(() -> importService.importEvents(calendar.getId(), stream("BEGIN:VCALENDAR\nnot ical\n"), "testuser"))
+                .isInstanceOf(ParserException.class);
+    }
+
+    @Test
+    void importEvents_WhenNotOwner_ShouldThrowAccessDenied() {
+        assertThatThrownBy(() -> importService.importEvents(calendar.getId(), stream(CALENDAR), "otheruser"))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThat(eventRepo.count()).isZero();
+    }
+
+    @Test
+    void importEvents_WhenCalendarUnknown_ShouldThrowNoSuchElement() {
+        assertThatThrownBy(() -> importService.importEvents(calendar.getId() + 1000, stream(CALENDAR), "testuser"))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessage("calendar not found: " + (calendar.getId() + 1000));
+        assertThat(eventRepo.count()).isZero();
+    }
+
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private LocalDateTime serverTime(LocalDateTime time, String zone) {
+        return ZonedDateTime.of(time, ZoneId.of(zone)).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,80 @@
+package com.eventure.calendar_app.sync.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.sync.model.SyncChanges;
+import com.eventure.calendar_app.sync.service.ChangeStreamService;
+import com.eventure.calendar_app.sync.service.SyncService;
+import com.eventure.calendar_app.testconfig.TestSecurityConfig;
+
+@WebMvcTest(SyncController.class)
+@Import(TestSecurityConfig.class)
+@ContextConfiguration(classes = {SyncController.class, TestSecurityConfig.class})
+public class SyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SyncService syncService;
+
+    @MockBean
+    private ChangeStreamService changeStream;
+
+    @Test
+    void getChanges_ShouldReturnChangesAndNextToken() throws Exception {
+        // Arrange
+        Events event = new Events();
+        event.setId(7);
+        event.setTitle("Added");
+        when(syncService.changes(any(), eq("token-1")))
+                .thenReturn(new SyncChanges(false, List.of(event), List.of(), List.of(3), List.of(), "token-2"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events/changes").param("since", "token-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.events[0].id").value(7))
+                .andExpect(jsonPath("$.deletedEventIds[0]").value(3))
+                .andExpect(jsonPath("$.syncToken").value("token-2"));
+    }
+
+    @Test
+    void getChanges_WhenTokenInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(syncService.changes(any(), eq("bad"))).thenThrow(new IllegalArgumentException("invalid cursor"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/events/changes").param("since", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void stream_ShouldStartAsyncEventStream() throws Exception {
+        // Arrange
+        when(changeStream.subscribe(any())).thenReturn(new SseEmitter());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/stream"))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+}
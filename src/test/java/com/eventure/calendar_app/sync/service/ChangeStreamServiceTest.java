@@ -0,0 +1,194 @@
+package com.eventure.calendar_app.sync.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.event.service.EventService;
+import com.eventure.calendar_app.sync.model.ChangeNotification;
+import com.eventure.calendar_app.sync.model.ChangeNotification.Operation;
+import com.eventure.calendar_app.sync.model.Tombstones.Kind;
+import com.eventure.calendar_app.sync.repo.TombstoneRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// The change stream over a real async request: committed writes reach the open streams of their user only
+@SpringBootTest(properties = "app.stream.queue-capacity=4")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "streamuser")
+public class ChangeStreamServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    @Autowired
+    private TombstoneRepo tombstoneRepo;
+
+    private Calendars calendar;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setUsername("streamuser");
+        user.setEmail("stream@example.com");
+        user = userRepo.save(user);
+
+        calendar = new Calendars();
+        calendar.setName("Work");
+        calendar.setOwner(user);
+        calendar = calendarRepo.save(calendar);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tombstoneRepo.deleteAll();
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void stream_ShouldReceiveCommittedWritesOfTheUser() throws Exception {
+        // Given
+        MockHttpServletResponse response = open();
+
+        // When
+        Events saved = event("Planning");
+        eventService.createEvent(saved, "streamuser");
+        eventService.deleteEvent(saved.getId(), "streamuser");
+        changeStream.publish("otheruser", List.of(new ChangeNotification(Kind.EVENT, -1, Operation.CHANGED, 1)));
+
+        // Then
+        String stream = await(response, "\"operation\":\"DELETED\"");
+        assertThat(stream).startsWith(":connected");
+        assertThat(stream).contains("event:change\ndata:{\"kind\":\"EVENT\",\"id\":" + saved.getId() + ",\"operation\":\"CHANGED\",\"version\":1}");
+        assertThat(stream).contains("event:change\ndata:{\"kind\":\"EVENT\",\"id\":" + saved.getId() + ",\"operation\":\"DELETED\",\"version\":2}");
+        assertThat(stream).doesNotContain("\"id\":-1");
+    }
+
+    @Test
+    void poll_WhenWriteCommittedOnAnotherNode_ShouldSendResync() throws Exception {
+        // Given
+        MockHttpServletResponse response = open();
+        await(response, ":connected");
+
+        // When - the version moves on without a publish on this node
+        userRepo.bumpChangeVersion(List.of("streamuser"), Instant.now());
+        changeStream.poll();
+
+        // Then
+        assertThat(await(response, "event:resync")).contains("event:resync");
+    }
+
+    @Test
+    void poll_WhenWritesWerePublishedHere_ShouldNotSendResync() throws Exception {
+        // Given
+        MockHttpServletResponse response = open();
+        eventService.createEvent(event("Planning"), "streamuser");
+
+        // When
+        changeStream.poll();
+        changeStream.publish("streamuser", List.of(new ChangeNotification(Kind.EVENT, -1, Operation.CHANGED, 1)));
+
+        // Then - the marker published after the poll arrives without a resync before it
+        assertThat(await(response, "\"id\":-1")).contains("\"id\":-1").doesNotContain("event:resync");
+    }
+
+    @Test
+    void heartbeat_ShouldWriteCommentToIdleStreams() throws Exception {
+        // Given
+        MockHttpServletResponse response = open();
+        await(response, ":connected");
+
+        // When
+        changeStream.heartbeat();
+
+        // Then
+        assertThat(await(response, ":heartbeat")).contains(":heartbeat");
+        assertThat(changeStream.subscriberCount()).isPositive();
+    }
+
+    @Test
+    void publish_WhenClientFallsBehind_ShouldReplaceQueuedChangesWithResync() throws Exception {
+        // Given
+        MockHttpServletResponse response = open();
+        List<ChangeNotification> burst = IntStream.range(0, 1000)
+                .mapToObj(id -> new ChangeNotification(Kind.EVENT, id, Operation.CHANGED, id))
+                .toList();
+
+        // When - far more than the queue of 4 holds while the sender is busy
+        changeStream.publish("streamuser", burst);
+
+        // Then
+        assertThat(await(response, "event:resync")).contains("event:resync");
+    }
+
+    private MockHttpServletResponse open() throws Exception {
+        return mockMvc.perform(get("/api/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    // Sends happen on the stream's own thread
+    private String await(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while(!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+
+    private Events event(String title) {
+        Events event = new Events();
+        event.setTitle(title);
+        event.setStartTime(LocalDateTime.of(2024, 3, 4, 9, 0));
+        event.setEndTime(LocalDateTime.of(2024, 3, 4, 10, 0));
+        Calendars reference = new Calendars();
+        reference.setId(calendar.getId());
+        event.setCalendar(reference);
+        return event;
+    }
+}
@@ -0,0 +1,203 @@
+package com.eventure.calendar_app.sync.service;
+
+import com.eventure.calendar_app.calendar.model.Calendars;
+import com.eventure.calendar_app.calendar.repo.CalendarRepo;
+import com.eventure.calendar_app.calendar.service.CalendarService;
+import com.eventure.calendar_app.common.Cursors;
+import com.eventure.calendar_app.event.model.EventBatchOperation;
+import com.eventure.calendar_app.event.model.EventBatchOperation.Action;
+import com.eventure.calendar_app.event.model.Events;
+import com.eventure.calendar_app.event.repo.EventRepo;
+import com.eventure.calendar_app.event.repo.OccurrenceRepo;
+import com.eventure.calendar_app.event.service.EventBatchService;
+import com.eventure.calendar_app.event.service.EventService;
+import com.eventure.calendar_app.event.service.OccurrenceMaintenance;
+import com.eventure.calendar_app.sync.model.SyncChanges;
+import com.eventure.calendar_app.sync.model.Tombstones;
+import com.eventure.calendar_app.sync.model.Tombstones.Kind;
+import com.eventure.calendar_app.sync.repo.TombstoneRepo;
+import com.eventure.calendar_app.user.model.Users;
+import com.eventure.calendar_app.user.repo.UserRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SyncServiceTest {
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventBatchService batchService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private OccurrenceMaintenance occurrenceMaintenance;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private CalendarRepo calendarRepo;
+
+    @Autowired
+    private EventRepo eventRepo;
+
+    @Autowired
+    private OccurrenceRepo occurrenceRepo;
+
+    @Autowired
+    private TombstoneRepo tombstoneRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Users user;
+    private Calendars calendar;
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setUsername("syncuser");
+        user.setEmail("sync@example.com");
+        user = userRepo.save(user);
+
+        calendar = new Calendars();
+        calendar.setName("Work");
+        calendar.setOwner(user);
+        calendar = calendarRepo.save(calendar);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tombstoneRepo.deleteAll();
+        occurrenceRepo.deleteAll();
+        eventRepo.deleteAll();
+        calendarRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+
+    @Test
+    void changes_WithoutToken_ShouldReturnEverything() {
+        // Given
+        eventService.createEvent(event("Planning", null), "syncuser");
+
+        // When
+        SyncChanges changes = syncService.changes("syncuser", null);
+
+        // Then
+        assertThat(changes.full()).isTrue();
+        assertThat(changes.events()).extracting(Events::getTitle).containsExactly("Planning");
+        assertThat(changes.calendars()).extracting(Calendars::getName).containsExactly("Work");
+        assertThat(changes.syncToken()).isNotBlank();
+    }
+
+    @Test
+    void changes_ShouldReturnOnlyWritesAndDeletionsSinceToken() throws Exception {
+        // Given
+        Events kept = event("Kept", null);
+        Events renamed = event("Renamed", null);
+        Events removed = event("Removed", null);
+        batchService.apply(List.of(
+                new EventBatchOperation(Action.CREATE, null, kept),
+                new EventBatchOperation(Action.CREATE, null, renamed),
+                new EventBatchOperation(Action.CREATE, null, removed)), "syncuser");
+        Calendars spare = new Calendars();
+        spare.setName("Spare");
+        calendarService.createCalendar(spare, "syncuser");
+        String token = syncService.changes("syncuser", null).syncToken();
+
+        // When
+        Events update = event("Renamed (new title)", null);
+        eventService.updateEvent(renamed.getId(), update, "syncuser");
+        eventService.deleteEvent(removed.getId(), "syncuser");
+        eventService.createEvent(event("Added", null), "syncuser");
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                calendarService.deleteCalendar(spare.getId(), "syncuser");
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        SyncChanges changes = syncService.changes("syncuser", token);
+
+        // Then
+        assertThat(changes.full()).isFalse();
+        assertThat(changes.events()).extracting(Events::getTitle).containsExactlyInAnyOrder("Renamed (new title)", "Added");
+        assertThat(changes.deletedEventIds()).containsExactly(removed.getId());
+        assertThat(changes.deletedCalendarIds()).containsExactly(spare.getId());
+        // The calendar of the events did not change itself
+        assertThat(changes.calendars()).isEmpty();
+
+        SyncChanges next = syncService.changes("syncuser", changes.syncToken());
+        assertThat(next.events()).isEmpty();
+        assertThat(next.deletedEventIds()).isEmpty();
+    }
+
+    @Test
+    void changes_WhenOccurrencesExtendedInBackground_ShouldNotReportEvents() {
+        // Given
+        eventService.createEvent(event("Standup", "FREQ=DAILY"), "syncuser");
+        String token = syncService.changes("syncuser", null).syncToken();
+
+        // When
+        occurrenceMaintenance.extendHorizon();
+
+        // Then
+        assertThat(syncService.changes("syncuser", token).events()).isEmpty();
+    }
+
+    @Test
+    void compactTombstones_ShouldDropOldTombstonesAndExpiredTokensGetEverything() {
+        // Given
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        tombstoneRepo.save(new Tombstones(null, user.getId(), Kind.EVENT, 1, 1L, old));
+        tombstoneRepo.save(new Tombstones(null, user.getId(), Kind.EVENT, 2, 2L, Instant.now()));
+
+        // When
+        int removed = syncService.compactTombstones();
+
+        // Then
+        assertThat(removed).isEqualTo(1);
+        assertThat(tombstoneRepo.findAll()).filteredOn(tombstone -> user.getId().equals(tombstone.getUserId()))
+                .extracting(Tombstones::getEntityId).containsExactly(2);
+        assertThat(syncService.changes("syncuser", Cursors.encode(0, old.getEpochSecond())).full()).isTrue();
+    }
+
+    @Test
+    void changes_WhenTokenInvalid_ShouldThrowIllegalArgument() {
+        assertThatThrownBy(() -> syncService.changes("syncuser", "not-a-token"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Events event(String title, String rule) {
+        Events event = new Events();
+        event.setTitle(title);
+        event.setStartTime(LocalDateTime.of(2024, 3, 4, 9, 0));
+        event.setEndTime(LocalDateTime.of(2024, 3, 4, 10, 0));
+        event.setIsRecurring(rule != null);
+        event.setRecurrenceRule(rule);
+        Calendars reference = new Calendars();
+        reference.setId(calendar.getId());
+        event.setCalendar(reference);
+        return event;
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.eventure.calendar_app.config.jwtFilter;
@@ -114,4 +115,29 @@ class UserControllerTest {
         verify(userService).verify(argThat(user ->
                 "john.doe".equals(user.getUsername()) && "bad-password".equals(user.getPassword())));
     }
+
+    @Test
+    @WithMockUser
+    void logout_WhenTokenRevoked_ShouldReturnNoContent() throws Exception {
+        // Arrange
+        when(userService.logout("Bearer jwt-token")).thenReturn(true);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/users/logout")
+                .header("Authorization", "Bearer jwt-token"))
+            .andExpect(status().isNoContent());
+
+        verify(userService).logout("Bearer jwt-token");
+    }
+
+    @Test
+    @WithMockUser
+    void logout_WhenTokenCannotBeRevoked_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(userService.logout(null)).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/users/logout"))
+            .andExpect(status().isBadRequest());
+    }
 }
@@ -73,4 +73,30 @@ class UserRepoTest {
 
         assertThat(found).as("Should be null when username is not in database").isNull();
     }
+
+    @Test
+    void findOwner_returnsUserById_whenIdExists() {
+        Users found = userRepo.findOwner(persistedUser.getId(), "ignored");
+
+        assertThat(found).as("Should return the user with the id of the token").isNotNull();
+        assertThat(found.getId()).isEqualTo(persistedUser.getId());
+    }
+
+    @Test
+    void findOwner_returnsNull_whenIdDoesNotExist() {
+        Users found = userRepo.findOwner(persistedUser.getId() + 1000, "john_doe");
+
+        assertThat(found).as("Should be null for the token of a deleted user").isNull();
+    }
+
+    @Test
+    void findOwner_returnsUserByUsername_whenNoId() {
+        Users found = userRepo.findOwner(null, "john_doe");
+
+        assertThat(found)
+                .as("Should look the user up by username without an id")
+                .isNotNull()
+                .extracting(Users::getEmail)
+                .isEqualTo("john.doe@example.com");
+    }
 }
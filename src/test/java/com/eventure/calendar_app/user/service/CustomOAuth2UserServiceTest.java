@@ -38,11 +38,14 @@ class CustomOAuth2UserServiceTest {
     @Mock
     private JWTService jwtService;
 
+    @Mock
+    private MyUserDetailsService userDetailsService;
+
     private CustomOAuth2UserService service;
 
     @BeforeEach
     void setUp() {
-        service = org.mockito.Mockito.spy(new CustomOAuth2UserService(userRepo, jwtService));
+        service = org.mockito.Mockito.spy(new CustomOAuth2UserService(userRepo, jwtService, userDetailsService));
     }
 
     @Test
@@ -78,6 +81,7 @@ class CustomOAuth2UserServiceTest {
         assertThat(saved.getName()).isEqualTo("New User");
         assertThat(saved.getProvider()).isEqualTo("google");
         assertThat(saved.getProviderId()).isEqualTo("provider-id");
+        verify(userDetailsService).evict("google_provider-id");
 
         assertThat(result.getAttributes())
                 .containsEntry("appUserId", 42L)
@@ -111,6 +115,7 @@ class CustomOAuth2UserServiceTest {
         var result = service.loadUser(userRequest);
 
         verify(userRepo).save(existing);
+        verify(userDetailsService).evict("google_provider-id");
         assertThat(existing.getEmail()).isEqualTo("updated.email@example.com");
         assertThat(existing.getName()).isEqualTo("Updated Name");
 
@@ -2,12 +2,13 @@ package com.eventure.calendar_app.user.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,15 +18,24 @@ import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class MyUserDetailsServiceTest {
 
     @Mock
     private UserRepo userRepo;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private MyUserDetailsService myUserDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        myUserDetailsService = new MyUserDetailsService(userRepo, 100, 60, meterRegistry);
+    }
+
     @Test
     void loadUserByUsername_WhenUserExists_ShouldReturnUserPrincipal() {
         Users existingUser = new Users();
@@ -52,4 +62,27 @@ class MyUserDetailsServiceTest {
             .hasMessage("User not found");
         verify(userRepo).findByUsername("missing");
     }
+
+    @Test
+    void loadUserByUsername_WhenCached_ShouldNotQueryAgainUntilEvicted() {
+        Users existingUser = new Users();
+        existingUser.setUsername("jane.doe");
+
+        when(userRepo.findByUsername("jane.doe")).thenReturn(existingUser);
+
+        UserDetails first = myUserDetailsService.loadUserByUsername("jane.doe");
+        UserDetails second = myUserDetailsService.loadUserByUsername("jane.doe");
+
+        assertThat(second).isSameAs(first);
+        verify(userRepo, times(1)).findByUsername("jane.doe");
+        // The saved lookup shows up as a cache hit
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "users.principals").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+
+        myUserDetailsService.evict("jane.doe");
+        UserDetails reloaded = myUserDetailsService.loadUserByUsername("jane.doe");
+
+        assertThat(reloaded).isNotSameAs(first);
+        verify(userRepo, times(2)).findByUsername("jane.doe");
+    }
 }
@@ -18,6 +18,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import com.eventure.calendar_app.auth.service.JWTService;
+import com.eventure.calendar_app.user.model.UserPrincipal;
 import com.eventure.calendar_app.user.model.Users;
 import com.eventure.calendar_app.user.repo.UserRepo;
 
@@ -33,6 +34,9 @@ public class UserServiceTest {
     @Mock
     private AuthenticationManager authManager;
 
+    @Mock
+    private MyUserDetailsService userDetailsService;
+
     @InjectMocks
     private UserService userService;
 
@@ -70,6 +74,7 @@ public class UserServiceTest {
             .isNotEqualTo(rawPassword)
             .matches(encoded -> new BCryptPasswordEncoder().matches(rawPassword, encoded));
         verify(userRepo, times(1)).save(any(Users.class));
+        verify(userDetailsService).evict("testuser");
     }
 
     @Test
@@ -89,6 +94,24 @@ public class UserServiceTest {
         verify(jwtService, times(1)).generateToken(testUser.getUsername());
     }
 
+    @Test
+    void verify_WithUserPrincipal_ShouldIssueTokenWithUserClaims() {
+        // Arrange
+        UserPrincipal principal = new UserPrincipal(testUser);
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getPrincipal()).thenReturn(principal);
+        when(authManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
+        when(jwtService.generateToken(principal)).thenReturn(authToken);
+
+        // Act
+        String result = userService.verify(testUser);
+
+        // Assert
+        assertThat(result).isEqualTo(authToken);
+        verify(jwtService, never()).generateToken(anyString());
+    }
+
     @Test
     void verify_WithInvalidCredentials_ShouldReturnFail() {
         // Arrange
@@ -119,4 +142,16 @@ public class UserServiceTest {
         verify(authManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtService, never()).generateToken(anyString());
     }
+
+    @Test
+    void logout_ShouldRevokeTheBearerToken() {
+        // Arrange
+        when(jwtService.revoke(authToken)).thenReturn(true);
+
+        // Act & Assert
+        assertThat(userService.logout("Bearer " + authToken)).isTrue();
+        assertThat(userService.logout(authToken)).isFalse();
+        assertThat(userService.logout(null)).isFalse();
+        verify(jwtService).revoke(authToken);
+    }
 }